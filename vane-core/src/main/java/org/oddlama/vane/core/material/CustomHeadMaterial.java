@@ -0,0 +1,56 @@
+package org.oddlama.vane.core.material;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.bukkit.NamespacedKey;
+
+// A head that is not part of the head library, and therefore stores its data directly.
+public class CustomHeadMaterial extends HeadMaterial {
+
+	private final NamespacedKey key;
+	private final String name;
+	private final String category;
+	private final Set<String> tags;
+	private final String base64_texture;
+
+	public CustomHeadMaterial(
+		final NamespacedKey key,
+		final String name,
+		final String category,
+		final List<String> tags,
+		final String base64_texture
+	) {
+		super(null, -1);
+		this.key = key;
+		this.name = name;
+		this.category = category;
+		this.tags = new HashSet<>(tags);
+		this.base64_texture = base64_texture;
+	}
+
+	@Override
+	public NamespacedKey key() {
+		return key;
+	}
+
+	@Override
+	public String name() {
+		return name;
+	}
+
+	@Override
+	public String category() {
+		return category;
+	}
+
+	@Override
+	public Set<String> tags() {
+		return tags;
+	}
+
+	@Override
+	public String texture() {
+		return base64_texture;
+	}
+}
@@ -0,0 +1,279 @@
+package org.oddlama.vane.core.material;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+// Packed storage for all heads of the head library. Instead of one object graph per head,
+// all data lives in a few shared arrays and is only decoded when it is accessed:
+//
+// - Names and ids are stored as UTF-8 in a single string table.
+// - Categories and tags are dictionary coded, so each distinct string exists only once.
+// - Textures are stored base64-decoded in a single byte buffer, which saves a quarter
+//   of their size and avoids one string object per head. Textures that would not
+//   survive the round trip unchanged are stored verbatim instead.
+// - Lookups by key and by texture use open addressing tables over 64-bit string hashes,
+//   which are verified against the stored data, so no string keys are retained.
+public class HeadLibraryStorage {
+	private static final long EMPTY = 0;
+
+	private int size = 0;
+
+	// String table with the name and id of each head. Strings are appended in order
+	// (name 0, id 0, name 1, id 1, ...), so each string ends where the next one starts.
+	private byte[] string_data = new byte[1 << 16];
+	private int string_data_size = 0;
+	private int[] name_start = new int[1024];
+	private int[] id_start = new int[1024];
+
+	// Dictionary coded categories and tags
+	private final List<String> category_dict = new ArrayList<>();
+	private final Map<String, Integer> category_codes = new HashMap<>();
+	private final List<String> tag_dict = new ArrayList<>();
+	private final Map<String, Integer> tag_codes_by_tag = new HashMap<>();
+	private int[] category = new int[1024];
+	private int[] tag_codes = new int[1024];
+	private int tag_codes_size = 0;
+	// Tags of head i are tag_codes[tag_start[i], tag_start[i + 1])
+	private int[] tag_start = new int[1025];
+
+	// Textures of head i are texture_data[texture_start[i], texture_start[i + 1])
+	private byte[] texture_data = new byte[1 << 16];
+	private int texture_data_size = 0;
+	private int[] texture_start = new int[1025];
+	private final BitSet texture_verbatim = new BitSet();
+
+	// Hashes of the key and texture of each head, computed while the strings are at hand
+	private long[] key_hash = new long[1024];
+	private long[] texture_hash = new long[1024];
+
+	// Lookup tables (hash → head index), rebuilt by build_lookup_tables().
+	private long[] key_hashes = new long[0];
+	private int[] key_heads = new int[0];
+	private long[] texture_hashes = new long[0];
+	private int[] texture_heads = new int[0];
+	// Heads that were replaced by a later head with the same key
+	private final BitSet shadowed = new BitSet();
+
+	public int size() {
+		return size;
+	}
+
+	public boolean is_shadowed(int head) {
+		return shadowed.get(head);
+	}
+
+	private void ensure_head_capacity() {
+		if (size + 1 < name_start.length) {
+			return;
+		}
+		final var capacity = name_start.length * 2;
+		name_start = Arrays.copyOf(name_start, capacity);
+		id_start = Arrays.copyOf(id_start, capacity);
+		category = Arrays.copyOf(category, capacity);
+		key_hash = Arrays.copyOf(key_hash, capacity);
+		texture_hash = Arrays.copyOf(texture_hash, capacity);
+		tag_start = Arrays.copyOf(tag_start, capacity + 1);
+		texture_start = Arrays.copyOf(texture_start, capacity + 1);
+	}
+
+	private int append_string(final String s) {
+		final var bytes = s.getBytes(StandardCharsets.UTF_8);
+		if (string_data_size + bytes.length > string_data.length) {
+			string_data = Arrays.copyOf(string_data, Math.max(string_data.length * 2, string_data_size + bytes.length));
+		}
+		final var start = string_data_size;
+		System.arraycopy(bytes, 0, string_data, start, bytes.length);
+		string_data_size += bytes.length;
+		return start;
+	}
+
+	private void append_texture(final String base64_texture) {
+		byte[] bytes = null;
+		try {
+			bytes = Base64.getDecoder().decode(base64_texture);
+			if (!Base64.getEncoder().encodeToString(bytes).equals(base64_texture)) {
+				bytes = null;
+			}
+		} catch (IllegalArgumentException e) {
+			// Not valid base64, store verbatim.
+		}
+
+		if (bytes == null) {
+			texture_verbatim.set(size);
+			bytes = base64_texture.getBytes(StandardCharsets.UTF_8);
+		}
+
+		if (texture_data_size + bytes.length > texture_data.length) {
+			texture_data = Arrays.copyOf(texture_data, Math.max(texture_data.length * 2, texture_data_size + bytes.length));
+		}
+		System.arraycopy(bytes, 0, texture_data, texture_data_size, bytes.length);
+		texture_data_size += bytes.length;
+	}
+
+	// Appends a head and returns its index. Lookup tables must be rebuilt afterwards.
+	public int add(final String id, final String name, final String category_name, final List<String> tags, final String base64_texture) {
+		ensure_head_capacity();
+		final var head = size;
+
+		name_start[head] = append_string(name);
+		id_start[head] = append_string(id);
+
+		category[head] = category_codes.computeIfAbsent(category_name, k -> {
+			category_dict.add(k);
+			return category_dict.size() - 1;
+		});
+
+		tag_start[head] = tag_codes_size;
+		final var seen = new HashSet<Integer>();
+		for (final var tag : tags) {
+			final var code = tag_codes_by_tag.computeIfAbsent(tag, k -> {
+				tag_dict.add(k);
+				return tag_dict.size() - 1;
+			});
+			if (!seen.add(code)) {
+				continue;
+			}
+			if (tag_codes_size == tag_codes.length) {
+				tag_codes = Arrays.copyOf(tag_codes, tag_codes.length * 2);
+			}
+			tag_codes[tag_codes_size++] = code;
+		}
+		tag_start[head + 1] = tag_codes_size;
+
+		texture_start[head] = texture_data_size;
+		append_texture(base64_texture);
+		texture_start[head + 1] = texture_data_size;
+
+		key_hash[head] = hash(category_name + "_" + id);
+		texture_hash[head] = hash(base64_texture);
+
+		++size;
+		return head;
+	}
+
+	private String string(int start, int end) {
+		return new String(string_data, start, end - start, StandardCharsets.UTF_8);
+	}
+
+	public String name(int head) {
+		return string(name_start[head], id_start[head]);
+	}
+
+	public String id(int head) {
+		final var end = head + 1 < size ? name_start[head + 1] : string_data_size;
+		return string(id_start[head], end);
+	}
+
+	public String category(int head) {
+		return category_dict.get(category[head]);
+	}
+
+	// The key of a head without namespace
+	public String key(int head) {
+		return category(head) + "_" + id(head);
+	}
+
+	public Set<String> tags(int head) {
+		final var tags = new HashSet<String>();
+		for (int i = tag_start[head]; i < tag_start[head + 1]; ++i) {
+			tags.add(tag_dict.get(tag_codes[i]));
+		}
+		return tags;
+	}
+
+	public String texture(int head) {
+		final var start = texture_start[head];
+		final var end = texture_start[head + 1];
+		if (texture_verbatim.get(head)) {
+			return new String(texture_data, start, end - start, StandardCharsets.UTF_8);
+		}
+		return Base64.getEncoder().encodeToString(Arrays.copyOfRange(texture_data, start, end));
+	}
+
+	// 64-bit FNV-1a over the chars of the string. Zero is reserved for empty slots.
+	private static long hash(final String s) {
+		long h = 0xcbf29ce484222325l;
+		for (int i = 0; i < s.length(); ++i) {
+			h ^= s.charAt(i);
+			h *= 0x100000001b3l;
+		}
+		return h == EMPTY ? 1 : h;
+	}
+
+	private static int slot(long hash, int mask) {
+		return (int)(hash ^ (hash >>> 32)) & mask;
+	}
+
+	// Inserts the head into the table. If a head that equals it according to
+	// the predicate already exists, it is replaced and its index is returned.
+	private static int put(final long[] hashes, final int[] heads, long hash, int head, final IntPredicate equals) {
+		final var mask = hashes.length - 1;
+		var i = slot(hash, mask);
+		while (hashes[i] != EMPTY) {
+			if (hashes[i] == hash && equals.test(heads[i])) {
+				final var previous = heads[i];
+				heads[i] = head;
+				return previous;
+			}
+			i = (i + 1) & mask;
+		}
+		hashes[i] = hash;
+		heads[i] = head;
+		return -1;
+	}
+
+	private static int get(final long[] hashes, final int[] heads, long hash, final IntPredicate equals) {
+		if (hashes.length == 0) {
+			return -1;
+		}
+		final var mask = hashes.length - 1;
+		var i = slot(hash, mask);
+		while (hashes[i] != EMPTY) {
+			if (hashes[i] == hash && equals.test(heads[i])) {
+				return heads[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	// Rebuilds the key and texture lookup tables. Later heads replace earlier
+	// heads with the same key or texture, which are then marked as shadowed.
+	public void build_lookup_tables() {
+		final var capacity = Integer.highestOneBit(Math.max(16, size * 2) - 1) << 1;
+		key_hashes = new long[capacity];
+		key_heads = new int[capacity];
+		texture_hashes = new long[capacity];
+		texture_heads = new int[capacity];
+		shadowed.clear();
+
+		// Strings are only decoded if two hashes collide.
+		for (int head = 0; head < size; ++head) {
+			final var h = head;
+			final var previous = put(key_hashes, key_heads, key_hash[head], head, other -> key(other).equals(key(h)));
+			if (previous != -1) {
+				shadowed.set(previous);
+			}
+			put(texture_hashes, texture_heads, texture_hash[head], head, other -> texture(other).equals(texture(h)));
+		}
+	}
+
+	// Returns the head with the given key (without namespace), or -1.
+	public int find_by_key(final String key) {
+		return get(key_hashes, key_heads, hash(key), head -> key(head).equals(key));
+	}
+
+	// Returns the head with the given base64 texture, or -1.
+	public int find_by_texture(final String base64_texture) {
+		return get(texture_hashes, texture_heads, hash(base64_texture), head -> texture(head).equals(base64_texture));
+	}
+}
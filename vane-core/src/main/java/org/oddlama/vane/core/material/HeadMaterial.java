@@ -4,57 +4,63 @@ import static org.oddlama.vane.util.ItemUtil.skull_with_texture;
 import static org.oddlama.vane.util.StorageUtil.namespaced_key;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
 import org.json.JSONObject;
 
+// A head of the library. It only refers to its entry in the packed library storage,
+// and decodes its data on access. Heads that are not part of the library are
+// represented by CustomHeadMaterial, which stores its data directly.
 public class HeadMaterial {
 
-	private NamespacedKey key;
-	private String name;
-	private String category;
-	private Set<String> tags;
-	private String base64_texture;
+	private final HeadLibraryStorage storage;
+	private final int library_id;
 
-	public HeadMaterial(
-		final NamespacedKey key,
-		final String name,
-		final String category,
-		final List<String> tags,
-		final String base64_texture
-	) {
-		this.key = key;
-		this.name = name;
-		this.category = category;
-		this.tags = new HashSet<>(tags);
-		this.base64_texture = base64_texture;
+	HeadMaterial(final HeadLibraryStorage storage, int library_id) {
+		this.storage = storage;
+		this.library_id = library_id;
 	}
 
 	public NamespacedKey key() {
-		return key;
+		return namespaced_key("vane", storage.key(library_id));
 	}
 
 	public String name() {
-		return name;
+		return storage.name(library_id);
 	}
 
 	public String category() {
-		return category;
+		return storage.category(library_id);
 	}
 
 	public Set<String> tags() {
-		return tags;
+		return storage.tags(library_id);
 	}
 
 	public String texture() {
-		return base64_texture;
+		return storage.texture(library_id);
+	}
+
+	// Index in the head library, or -1 if this head is not part of the library
+	public int library_id() {
+		return library_id;
 	}
 
 	public ItemStack item() {
-		return skull_with_texture(name, base64_texture);
+		return skull_with_texture(name(), texture());
+	}
+
+	// Creates a head that is not part of the library. This replaces the former public constructor.
+	public static HeadMaterial of(
+		final NamespacedKey key,
+		final String name,
+		final String category,
+		final List<String> tags,
+		final String base64_texture
+	) {
+		return new CustomHeadMaterial(key, name, category, tags, base64_texture);
 	}
 
 	public static HeadMaterial from(final JSONObject json) {
@@ -70,6 +76,6 @@ public class HeadMaterial {
 		}
 
 		final var key = namespaced_key("vane", category + "_" + id);
-		return new HeadMaterial(key, name, category, tags, texture);
+		return of(key, name, category, tags, texture);
 	}
 }
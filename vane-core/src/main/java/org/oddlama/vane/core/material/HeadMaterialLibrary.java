@@ -2,50 +2,95 @@ package org.oddlama.vane.core.material;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Predicate;
 import org.bukkit.NamespacedKey;
-import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
 
 public class HeadMaterialLibrary {
 
-	private static final Map<NamespacedKey, HeadMaterial> registry = new HashMap<>();
-	private static final Map<String, List<HeadMaterial>> categories = new HashMap<>();
-	private static final Map<String, List<HeadMaterial>> tags = new HashMap<>();
-	private static final Map<String, HeadMaterial> by_texture = new HashMap<>();
+	// All head data is kept in packed form, see HeadLibraryStorage.
+	private static final HeadLibraryStorage storage = new HeadLibraryStorage();
+	// Lightweight handles for all heads, indexed by their library id
+	private static final List<HeadMaterial> heads = new ArrayList<>();
+	// All heads that are not shadowed by a later head with the same key
+	private static List<HeadMaterial> available = Collections.emptyList();
+	// Built lazily on the first search, so loading stays cheap
+	private static HeadSearchIndex search_index = null;
 
 	public static void load(final String string) {
-		final var json = new JSONArray(string);
-		for (int i = 0; i < json.length(); ++i) {
-			// Deserialize
-			final var mat = HeadMaterial.from(json.getJSONObject(i));
-
-			// Add to registry
-			registry.put(mat.key(), mat);
-			by_texture.put(mat.texture(), mat);
-
-			// Add to category lookup
-			var category = categories.computeIfAbsent(mat.category(), k -> new ArrayList<>());
-			category.add(mat);
-
-			// Add to tag lookup
-			for (final var tag : mat.tags()) {
-				var tag_list = tags.computeIfAbsent(tag, k -> new ArrayList<>());
-				tag_list.add(mat);
+		// Stream the array, so only one entry is ever held as a json object
+		final var tokener = new JSONTokener(string);
+		if (tokener.nextClean() != '[') {
+			throw tokener.syntaxError("A JSONArray text must start with '['");
+		}
+
+		if (tokener.nextClean() != ']') {
+			tokener.back();
+			while (true) {
+				final var json = (JSONObject) tokener.nextValue();
+				final var tags = new ArrayList<String>();
+				final var tags_arr = json.getJSONArray("tags");
+				for (int i = 0; i < tags_arr.length(); ++i) {
+					tags.add(tags_arr.getString(i));
+				}
+
+				final var id = storage.add(
+					json.getString("id"),
+					json.getString("name"),
+					json.getString("category"),
+					tags,
+					json.getString("texture")
+				);
+				heads.add(new HeadMaterial(storage, id));
+
+				final var c = tokener.nextClean();
+				if (c == ']') {
+					break;
+				} else if (c != ',') {
+					throw tokener.syntaxError("Expected a ',' or ']'");
+				}
+			}
+		}
+
+		storage.build_lookup_tables();
+		final var list = new ArrayList<HeadMaterial>(heads.size());
+		for (final var head : heads) {
+			if (!storage.is_shadowed(head.library_id())) {
+				list.add(head);
 			}
 		}
+		available = Collections.unmodifiableList(list);
+		search_index = null;
 	}
 
 	public static HeadMaterial from(final NamespacedKey key) {
-		return registry.get(key);
+		if (!"vane".equals(key.getNamespace())) {
+			return null;
+		}
+		final var id = storage.find_by_key(key.getKey());
+		return id == -1 ? null : heads.get(id);
 	}
 
 	public static HeadMaterial from_texture(final String base64_texture) {
-		return by_texture.get(base64_texture);
+		final var id = storage.find_by_texture(base64_texture);
+		return id == -1 ? null : heads.get(id);
+	}
+
+	// Returns a predicate matching all heads whose name, category or any tag
+	// contains the given query, ignoring case.
+	public static Predicate<HeadMaterial> matching(final String query) {
+		if (search_index == null) {
+			search_index = new HeadSearchIndex(heads);
+		}
+
+		final var matches = search_index.search(query);
+		return material -> material.library_id() >= 0 && matches.get(material.library_id());
 	}
 
 	public static Collection<HeadMaterial> all() {
-		return registry.values();
+		return available;
 	}
 }
@@ -0,0 +1,175 @@
+package org.oddlama.vane.core.material;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Case-insensitive substring search over the names, categories and tags of heads.
+// Every distinct lower-case string is interned once as a term, with a sorted posting
+// list of the heads it belongs to. All 1-, 2- and 3-grams of each term are indexed with
+// sorted posting lists of the terms containing them. Queries of up to three characters
+// are answered directly by a single gram, longer queries intersect the posting lists of
+// their trigrams and only verify the few remaining candidate terms.
+public class HeadSearchIndex {
+	private static final int MAX_GRAM = 3;
+
+	private final int head_count;
+	private final String[] terms;
+	private final int[][] term_heads;
+	private final Map<Long, int[]> grams;
+
+	public HeadSearchIndex(final List<HeadMaterial> heads) {
+		head_count = heads.size();
+
+		// Intern terms and collect the heads of each term
+		final var term_ids = new HashMap<String, Integer>();
+		final var term_list = new ArrayList<String>();
+		final var heads_of_term = new ArrayList<IntList>();
+		for (int head = 0; head < heads.size(); ++head) {
+			final var material = heads.get(head);
+			add_term(term_ids, term_list, heads_of_term, material.name(), head);
+			add_term(term_ids, term_list, heads_of_term, material.category(), head);
+			for (final var tag : material.tags()) {
+				add_term(term_ids, term_list, heads_of_term, tag, head);
+			}
+		}
+
+		terms = term_list.toArray(new String[0]);
+		term_heads = new int[terms.length][];
+		for (int t = 0; t < terms.length; ++t) {
+			term_heads[t] = heads_of_term.get(t).to_array();
+		}
+
+		// Index all grams of each term. Terms are visited in ascending order,
+		// so the posting lists are sorted by construction.
+		final var gram_terms = new HashMap<Long, IntList>();
+		for (int t = 0; t < terms.length; ++t) {
+			final var term = terms[t];
+			for (int n = 1; n <= MAX_GRAM; ++n) {
+				for (int i = 0; i + n <= term.length(); ++i) {
+					gram_terms.computeIfAbsent(gram(term, i, n), k -> new IntList()).add_unique(t);
+				}
+			}
+		}
+
+		grams = new HashMap<>(gram_terms.size() * 2);
+		for (final var entry : gram_terms.entrySet()) {
+			grams.put(entry.getKey(), entry.getValue().to_array());
+		}
+	}
+
+	private static void add_term(final Map<String, Integer> term_ids, final List<String> term_list,
+			final List<IntList> heads_of_term, final String text, int head) {
+		final var term = text.toLowerCase();
+		var id = term_ids.get(term);
+		if (id == null) {
+			id = term_list.size();
+			term_ids.put(term, id);
+			term_list.add(term);
+			heads_of_term.add(new IntList());
+		}
+		heads_of_term.get(id).add_unique(head);
+	}
+
+	// Packs up to three characters and the gram length into a single key.
+	private static long gram(final String s, int from, int length) {
+		long key = length;
+		for (int i = 0; i < length; ++i) {
+			key = (key << 16) | s.charAt(from + i);
+		}
+		return key;
+	}
+
+	// Returns the set of heads (by their index in the list given at construction)
+	// whose name, category or any tag contains the given query, ignoring case.
+	public BitSet search(final String query) {
+		final var q = query.toLowerCase();
+		final var result = new BitSet(head_count);
+		if (q.isEmpty()) {
+			result.set(0, head_count);
+			return result;
+		}
+
+		if (q.length() <= MAX_GRAM) {
+			// The gram itself is the query, so all terms containing it match.
+			final var matching_terms = grams.get(gram(q, 0, q.length()));
+			if (matching_terms != null) {
+				for (final var t : matching_terms) {
+					add_heads(result, t);
+				}
+			}
+			return result;
+		}
+
+		// Intersect the term lists of all trigrams, starting with the shortest list.
+		final var lists = new int[q.length() - MAX_GRAM + 1][];
+		for (int i = 0; i < lists.length; ++i) {
+			lists[i] = grams.get(gram(q, i, MAX_GRAM));
+			if (lists[i] == null) {
+				return result;
+			}
+		}
+		Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+
+		var candidates = lists[0];
+		for (int i = 1; i < lists.length && candidates.length > 0; ++i) {
+			candidates = intersect(candidates, lists[i]);
+		}
+
+		// Trigrams may appear in a different order, so verify each candidate.
+		for (final var t : candidates) {
+			if (terms[t].contains(q)) {
+				add_heads(result, t);
+			}
+		}
+		return result;
+	}
+
+	private void add_heads(final BitSet result, int term) {
+		for (final var head : term_heads[term]) {
+			result.set(head);
+		}
+	}
+
+	private static int[] intersect(final int[] a, final int[] b) {
+		final var out = new int[Math.min(a.length, b.length)];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				++i;
+			} else if (a[i] > b[j]) {
+				++j;
+			} else {
+				out[n++] = a[i];
+				++i;
+				++j;
+			}
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	// Growable sorted list of ints, which ignores consecutive duplicates.
+	private static class IntList {
+		private int[] values = new int[4];
+		private int size = 0;
+
+		private void add_unique(int value) {
+			if (size > 0 && values[size - 1] == value) {
+				return;
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		private int[] to_array() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
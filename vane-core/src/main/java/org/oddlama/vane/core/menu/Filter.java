@@ -1,6 +1,7 @@
 package org.oddlama.vane.core.menu;
 
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -19,7 +20,17 @@ public interface Filter<T> {
 
 	public void reset();
 
-	public List<T> filter(final List<T> things);
+	// Returns a predicate that matches all things passing this filter,
+	// or null if the filter currently accepts everything.
+	public Predicate<T> predicate();
+
+	public default List<T> filter(final List<T> things) {
+		final var predicate = predicate();
+		if (predicate == null) {
+			return things;
+		}
+		return things.stream().filter(predicate).collect(Collectors.toList());
+	}
 
 	public static class StringFilter<T> implements Filter<T> {
 
@@ -66,9 +77,9 @@ public interface Filter<T> {
 		}
 
 		@Override
-		public List<T> filter(final List<T> things) {
+		public Predicate<T> predicate() {
 			if (str == null) {
-				return things;
+				return null;
 			} else {
 				final String f_str;
 				if (ignore_case) {
@@ -77,7 +88,7 @@ public interface Filter<T> {
 					f_str = str;
 				}
 
-				return things.stream().filter(t -> do_filter.apply(t, f_str)).collect(Collectors.toList());
+				return t -> do_filter.apply(t, f_str);
 			}
 		}
 	}
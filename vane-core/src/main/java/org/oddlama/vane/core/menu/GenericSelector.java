@@ -1,6 +1,8 @@
 package org.oddlama.vane.core.menu;
 
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
@@ -19,17 +21,24 @@ public class GenericSelector<T, F extends Filter<T>> {
 	private Function1<T, ItemStack> to_item;
 	private Function4<Player, Menu, T, InventoryClickEvent, ClickResult> on_click;
 
-	private List<T> things;
+	private SelectorSource<T> source;
 	private F filter;
 	private int page_size;
 
 	private boolean update_filter = true;
 	private int page = 0;
 	private int last_page = 0;
-	private List<T> filtered_things = null;
+
+	// Items are only created for elements that are actually shown, and then
+	// reused when the same element is shown again (e.g. when switching pages).
+	private final Map<T, ItemStack> item_cache = new IdentityHashMap<>();
 
 	private GenericSelector() {}
 
+	private ItemStack item_for(final T thing) {
+		return item_cache.computeIfAbsent(thing, to_item::apply);
+	}
+
 	public static <T, F extends Filter<T>> Menu create(
 		final Context<?> context,
 		final Player player,
@@ -40,6 +49,20 @@ public class GenericSelector<T, F extends Filter<T>> {
 		final F filter,
 		final Function4<Player, Menu, T, InventoryClickEvent, ClickResult> on_click,
 		final Consumer1<Player> on_cancel
+	) {
+		return create(context, player, title, filter_title, SelectorSource.of(things), to_item, filter, on_click, on_cancel);
+	}
+
+	public static <T, F extends Filter<T>> Menu create(
+		final Context<?> context,
+		final Player player,
+		final String title,
+		final String filter_title,
+		final SelectorSource<T> source,
+		final Function1<T, ItemStack> to_item,
+		final F filter,
+		final Function4<Player, Menu, T, InventoryClickEvent, ClickResult> on_click,
+		final Consumer1<Player> on_cancel
 	) {
 		final var columns = 9;
 
@@ -47,7 +70,7 @@ public class GenericSelector<T, F extends Filter<T>> {
 		generic_selector.menu_manager = context.get_module().core.menu_manager;
 		generic_selector.to_item = to_item;
 		generic_selector.on_click = on_click;
-		generic_selector.things = things;
+		generic_selector.source = source;
 		generic_selector.filter = filter;
 		generic_selector.page_size = 5 * columns;
 
@@ -58,11 +81,11 @@ public class GenericSelector<T, F extends Filter<T>> {
 			@Override
 			public void update(boolean force_update) {
 				if (generic_selector.update_filter) {
-					// Filter list before update
-					generic_selector.filtered_things = generic_selector.filter.filter(generic_selector.things);
+					// Filter source before update
+					generic_selector.source.filter(generic_selector.filter.predicate());
 					generic_selector.page = 0;
 					generic_selector.last_page =
-						Math.max(0, generic_selector.filtered_things.size() - 1) / generic_selector.page_size;
+						Math.max(0, generic_selector.source.size() - 1) / generic_selector.page_size;
 					generic_selector.update_filter = false;
 				}
 				super.update(force_update);
@@ -156,7 +179,7 @@ public class GenericSelector<T, F extends Filter<T>> {
 						generic_selector.menu_manager.generic_selector_current_page.item(
 							"§6" + (page + 1),
 							"§6" + (generic_selector.last_page + 1),
-							"§6" + generic_selector.filtered_things.size()
+							"§6" + generic_selector.source.size()
 						);
 				} else if (no_op) {
 					item = null;
@@ -238,15 +261,10 @@ public class GenericSelector<T, F extends Filter<T>> {
 		public boolean update(final Menu menu) {
 			for (int i = 0; i < generic_selector.page_size; ++i) {
 				final var idx = generic_selector.page * generic_selector.page_size + i;
-				if (idx >= generic_selector.filtered_things.size()) {
+				if (idx >= generic_selector.source.size()) {
 					menu.inventory().setItem(first_slot + i, null);
 				} else {
-					menu
-						.inventory()
-						.setItem(
-							first_slot + i,
-							generic_selector.to_item.apply(generic_selector.filtered_things.get(idx))
-						);
+					menu.inventory().setItem(first_slot + i, generic_selector.item_for(generic_selector.source.get(idx)));
 				}
 			}
 			return true;
@@ -269,7 +287,7 @@ public class GenericSelector<T, F extends Filter<T>> {
 			}
 
 			final var idx = generic_selector.page * generic_selector.page_size + (slot - first_slot);
-			return generic_selector.on_click.apply(player, menu, generic_selector.filtered_things.get(idx), event);
+			return generic_selector.on_click.apply(player, menu, generic_selector.source.get(idx), event);
 		}
 	}
 }
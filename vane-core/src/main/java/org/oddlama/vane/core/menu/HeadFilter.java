@@ -1,11 +1,11 @@
 package org.oddlama.vane.core.menu;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.oddlama.vane.core.material.HeadMaterial;
+import org.oddlama.vane.core.material.HeadMaterialLibrary;
 import org.oddlama.vane.core.menu.Menu.ClickResult;
 import org.oddlama.vane.core.module.Context;
 
@@ -44,33 +44,13 @@ public class HeadFilter implements Filter<HeadMaterial> {
 		str = null;
 	}
 
-	private boolean filter_by_categories(final HeadMaterial material) {
-		return material.category().toLowerCase().contains(str);
-	}
-
-	private boolean filter_by_tags(final HeadMaterial material) {
-		for (final var tag : material.tags()) {
-			if (tag.toLowerCase().contains(str)) {
-				return true;
-			}
-		}
-
-		return false;
-	}
-
-	private boolean filter_by_name(final HeadMaterial material) {
-		return material.name().toLowerCase().contains(str);
-	}
-
 	@Override
-	public List<HeadMaterial> filter(final List<HeadMaterial> things) {
+	public Predicate<HeadMaterial> predicate() {
 		if (str == null) {
-			return things;
+			return null;
 		}
 
-		return things
-			.stream()
-			.filter(t -> filter_by_categories(t) || filter_by_tags(t) || filter_by_name(t))
-			.collect(Collectors.toList());
+		// Matches names, categories and tags using the library's search index
+		return HeadMaterialLibrary.matching(str);
 	}
 }
@@ -4,7 +4,6 @@ import static org.oddlama.vane.util.ItemUtil.name_item;
 import static org.oddlama.vane.util.ItemUtil.name_of;
 
 import java.util.List;
-import java.util.stream.Collectors;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -288,6 +287,30 @@ public class MenuFactory {
 		);
 	}
 
+	public static <T, F extends Filter<T>> Menu generic_selector(
+		final Context<?> context,
+		final Player player,
+		final String title,
+		final String filter_title,
+		final SelectorSource<T> source,
+		final Function1<T, ItemStack> to_item,
+		final F filter,
+		final Function4<Player, Menu, T, InventoryClickEvent, ClickResult> on_click,
+		final Consumer1<Player> on_cancel
+	) {
+		return GenericSelector.create(
+			context,
+			player,
+			title,
+			filter_title,
+			source,
+			to_item,
+			filter,
+			on_click,
+			on_cancel
+		);
+	}
+
 	public static Menu head_selector(
 		final Context<?> context,
 		final Player player,
@@ -314,11 +337,11 @@ public class MenuFactory {
 		final Consumer1<Player> on_cancel
 	) {
 		final var menu_manager = context.get_module().core.menu_manager;
-		final var all_heads = HeadMaterialLibrary
-			.all()
-			.stream()
-			.sorted((a, b) -> a.key().toString().compareToIgnoreCase(b.key().toString()))
-			.collect(Collectors.toList());
+		// Heads are sorted lazily, as usually only the first few pages are ever looked at.
+		final var all_heads = SelectorSource.sorted(
+			HeadMaterialLibrary.all(),
+			(HeadMaterial a, HeadMaterial b) -> a.key().toString().compareToIgnoreCase(b.key().toString())
+		);
 
 		final var filter = new HeadFilter();
 		return MenuFactory.generic_selector(
@@ -0,0 +1,183 @@
+package org.oddlama.vane.core.menu;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+// A pull-based source of elements for a GenericSelector. Elements are only
+// filtered and ordered up to the point that is actually requested, so showing
+// the first page of a large selector only costs about one page of work.
+public interface SelectorSource<T> {
+	// Restricts this source to the elements matching the given predicate,
+	// or to all elements if the predicate is null.
+	public void filter(final Predicate<T> predicate);
+
+	// Returns the amount of elements matching the current filter.
+	public int size();
+
+	// Returns the element at the given index in the current (filtered) order.
+	public T get(int index);
+
+	// A source that keeps the order of the given list.
+	public static <T> SelectorSource<T> of(final List<T> things) {
+		return new ListSource<>(things);
+	}
+
+	// A source that orders the given elements by the comparator. Sorting happens
+	// incrementally, so only the requested prefix of the order is ever fully sorted.
+	public static <T> SelectorSource<T> sorted(final Collection<T> things, final Comparator<? super T> comparator) {
+		return new SortedSource<>(things, comparator);
+	}
+
+	public static class ListSource<T> implements SelectorSource<T> {
+
+		private final List<T> things;
+		private Predicate<T> predicate = null;
+
+		// Indices of the matching elements found so far, and the index up to which we have scanned.
+		private int[] matches = new int[64];
+		private int match_count = 0;
+		private int scanned = 0;
+
+		private ListSource(final List<T> things) {
+			this.things = things;
+		}
+
+		@Override
+		public void filter(final Predicate<T> predicate) {
+			this.predicate = predicate;
+			match_count = 0;
+			scanned = 0;
+		}
+
+		// Scans until at least count matches are known or the list is exhausted.
+		private void scan(int count) {
+			while (match_count < count && scanned < things.size()) {
+				final var i = scanned++;
+				if (predicate.test(things.get(i))) {
+					if (match_count == matches.length) {
+						matches = Arrays.copyOf(matches, matches.length * 2);
+					}
+					matches[match_count++] = i;
+				}
+			}
+		}
+
+		@Override
+		public int size() {
+			if (predicate == null) {
+				return things.size();
+			}
+			scan(Integer.MAX_VALUE);
+			return match_count;
+		}
+
+		@Override
+		public T get(int index) {
+			if (predicate == null) {
+				return things.get(index);
+			}
+			scan(index + 1);
+			if (index >= match_count) {
+				throw new IndexOutOfBoundsException(index);
+			}
+			return things.get(matches[index]);
+		}
+	}
+
+	public static class SortedSource<T> implements SelectorSource<T> {
+
+		// The minimum amount of elements that are sorted in one step
+		private static final int SORT_CHUNK = 64;
+
+		private final List<T> things;
+		private final Comparator<? super T> comparator;
+
+		// The elements matching the current filter. The first sorted_count
+		// elements are in final order, all others are in arbitrary order.
+		private ArrayList<T> candidates;
+		private int sorted_count = 0;
+
+		private SortedSource(final Collection<T> things, final Comparator<? super T> comparator) {
+			this.things = new ArrayList<>(things);
+			this.comparator = comparator;
+			filter(null);
+		}
+
+		@Override
+		public void filter(final Predicate<T> predicate) {
+			if (predicate == null) {
+				candidates = new ArrayList<>(things);
+			} else {
+				candidates = new ArrayList<>();
+				for (final var t : things) {
+					if (predicate.test(t)) {
+						candidates.add(t);
+					}
+				}
+			}
+			sorted_count = 0;
+		}
+
+		// Moves the smallest elements of the unsorted remainder to its front
+		// until at least count elements are in their final position.
+		private void sort_prefix(int count) {
+			final var n = candidates.size();
+			if (count <= sorted_count || sorted_count >= n) {
+				return;
+			}
+
+			final var end = Math.min(n, Math.max(count, sorted_count + SORT_CHUNK));
+			select(sorted_count, n - 1, end - 1);
+			candidates.subList(sorted_count, end).sort(comparator);
+			sorted_count = end;
+		}
+
+		// Partially orders the range [lo, hi] so that all elements in [lo, k]
+		// are smaller or equal than all elements in (k, hi] (quickselect).
+		private void select(int lo, int hi, int k) {
+			while (lo < hi) {
+				final var pivot = candidates.get((lo + hi) >>> 1);
+				int i = lo;
+				int j = hi;
+				while (i <= j) {
+					while (comparator.compare(candidates.get(i), pivot) < 0) {
+						++i;
+					}
+					while (comparator.compare(candidates.get(j), pivot) > 0) {
+						--j;
+					}
+					if (i <= j) {
+						final var tmp = candidates.get(i);
+						candidates.set(i, candidates.get(j));
+						candidates.set(j, tmp);
+						++i;
+						--j;
+					}
+				}
+
+				if (k <= j) {
+					hi = j;
+				} else if (k >= i) {
+					lo = i;
+				} else {
+					return;
+				}
+			}
+		}
+
+		@Override
+		public int size() {
+			return candidates.size();
+		}
+
+		@Override
+		public T get(int index) {
+			sort_prefix(index + 1);
+			return candidates.get(index);
+		}
+	}
+}
@@ -1,9 +1,8 @@
 package org.oddlama.vane.core.misc;
 
-import static org.oddlama.vane.util.Resolve.resolve_skin;
-
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,19 +11,20 @@ import java.util.logging.Level;
 
 import com.destroystokyo.paper.profile.ProfileProperty;
 
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.plugin.messaging.PluginMessageListener;
+import org.oddlama.vane.annotation.config.ConfigInt;
+import org.oddlama.vane.annotation.config.ConfigLong;
 import org.oddlama.vane.annotation.persistent.Persistent;
 import org.oddlama.vane.core.Core;
 import org.oddlama.vane.core.Listener;
 import org.oddlama.vane.core.module.Context;
 
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
-import org.oddlama.vane.util.Resolve;
+import org.oddlama.vane.util.ProfileResolver;
 
 public class AuthMultiplexer extends Listener<Core> implements PluginMessageListener {
 	// Channel for proxy messages to multiplex connections
@@ -37,6 +37,14 @@ public class AuthMultiplexer extends Listener<Core> implements PluginMessageList
 	@Persistent
 	public Map<UUID, Integer> storage_auth_multiplexer_id = new HashMap<>();
 
+	@ConfigLong(def = 6 * 60 * 60, min = 0, desc = "Time in seconds for which resolved player skins are cached.")
+	public long config_skin_cache_time;
+
+	@ConfigInt(def = 1024, min = 1, desc = "Maximum amount of cached player skins.")
+	public int config_skin_cache_size;
+
+	private ProfileResolver resolver = null;
+
 	public AuthMultiplexer(Context<Core> context) {
 		super(context);
 	}
@@ -44,6 +52,18 @@ public class AuthMultiplexer extends Listener<Core> implements PluginMessageList
 	@Override
 	protected void on_enable() {
 		super.on_enable();
+		resolver = new ProfileResolver(
+			ProfileResolver.MOJANG,
+			task -> get_module().getServer().getScheduler().runTaskAsynchronously(get_module(), task),
+			config_skin_cache_time * 1000,
+			config_skin_cache_size,
+			new File(get_module().getDataFolder(), "skin_cache.txt")
+		);
+		try {
+			resolver.load();
+		} catch (IOException e) {
+			get_module().log.log(Level.WARNING, "Failed to load skin cache", e);
+		}
 		get_module().getServer().getMessenger().registerIncomingPluginChannel(get_module(), CHANNEL_AUTH_MULTIPLEX, this);
 	}
 
@@ -51,6 +71,12 @@ public class AuthMultiplexer extends Listener<Core> implements PluginMessageList
 	protected void on_disable() {
 		super.on_disable();
 		get_module().getServer().getMessenger().unregisterIncomingPluginChannel(get_module(), CHANNEL_AUTH_MULTIPLEX, this);
+		try {
+			resolver.save();
+		} catch (IOException e) {
+			get_module().log.log(Level.WARNING, "Failed to save skin cache", e);
+		}
+		resolver = null;
 	}
 
 	public synchronized String auth_multiplex_player_name(final UUID uuid) {
@@ -84,18 +110,22 @@ public class AuthMultiplexer extends Listener<Core> implements PluginMessageList
 		player.displayName(display_name_component);
 		player.playerListName(display_name_component);
 
+		// The skin is resolved asynchronously and applied once it is known, so the join
+		// never waits for the session server.
 		final var original_player_id = storage_auth_multiplex.get(id);
-		Resolve.Skin skin;
-		try {
-			skin = resolve_skin(original_player_id);
-		} catch (IOException e) {
-			Bukkit.getLogger().log(Level.WARNING, "Failed to resolve skin for uuid '" + id + "'", e);
-			return;
-		}
+		resolver.skin(original_player_id).whenComplete((skin, e) -> schedule_next_tick(() -> {
+			if (e != null) {
+				get_module().log.log(Level.WARNING, "Failed to resolve skin for uuid '" + id + "'", e);
+				return;
+			}
+			if (!player.isOnline()) {
+				return;
+			}
 
-		final var profile = player.getPlayerProfile();
-		profile.setProperty(new ProfileProperty("textures", skin.texture, skin.signature));
-		player.setPlayerProfile(profile);
+			final var profile = player.getPlayerProfile();
+			profile.setProperty(new ProfileProperty("textures", skin.texture, skin.signature));
+			player.setPlayerProfile(profile);
+		}));
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = false)
@@ -135,6 +165,9 @@ public class AuthMultiplexer extends Listener<Core> implements PluginMessageList
 			storage_auth_multiplexer_id.put(new_uuid, multiplexer_id);
 			mark_persistent_storage_dirty();
 
+			// Start resolving the skin now, the player will join shortly.
+			resolver.skin(old_uuid);
+
 			final var multiplexed_player = get_module().getServer().getOfflinePlayer(new_uuid);
 			if (multiplexed_player.isOnline()) {
 				try_init_multiplexed_player_name(multiplexed_player.getPlayer());
@@ -240,8 +240,9 @@ public abstract class Module<T extends Module<T>> extends JavaPlugin implements
 	public void onDisable() {
 		disable();
 
-		// Save persistent storage
-		save_persistent_storage();
+		// Save persistent storage, and wait until everything has been written
+		persistent_storage_manager.save(get_persistent_storage_file());
+		persistent_storage_manager.shutdown();
 
 		// Unregister in core
 		core.unregister_module(this);
@@ -411,9 +412,10 @@ public abstract class Module<T extends Module<T>> extends JavaPlugin implements
 	}
 
 	public void save_persistent_storage() {
-		// Save automatic persistent variables
+		// Save automatic persistent variables. The current state is captured
+		// immediately, but the file is written in the background.
 		final var file = get_persistent_storage_file();
-		persistent_storage_manager.save(file);
+		persistent_storage_manager.save_async(file);
 	}
 
 	public void register_listener(Listener listener) {
@@ -0,0 +1,274 @@
+package org.oddlama.vane.core.persistent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+
+// Compact binary encoding for objects stored in persistent data containers.
+// Encoded data always starts with a format version byte, which can never be
+// the first byte of a JSON document. This allows readers to transparently
+// accept both the binary format and the legacy JSON format for each object.
+// Integers are written as (zigzag) varints, UUIDs as two raw longs and block
+// positions as packed zigzag varint deltas.
+public class BinaryCodec {
+
+	// Version bytes must stay below any printable character, so they are never confused with JSON.
+	public static final int MAX_VERSION = 0x1f;
+
+	public static boolean is_binary(final byte[] data) {
+		return data.length > 0 && (data[0] & 0xff) <= MAX_VERSION;
+	}
+
+	// Implemented by enums that are stored in binary data. Each constant carries an
+	// explicit code, so constants can be reordered or added without affecting stored
+	// data. Codes of existing constants must never change.
+	public static interface Coded {
+		public int binary_code();
+	}
+
+	public static class Writer {
+
+		private byte[] buffer;
+		private int size = 0;
+
+		public Writer(int version) {
+			if (version <= 0 || version > MAX_VERSION) {
+				throw new IllegalArgumentException("Invalid binary format version " + version);
+			}
+			buffer = new byte[64];
+			write_byte(version);
+		}
+
+		private void ensure(int additional) {
+			if (size + additional > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+			}
+		}
+
+		public void write_byte(int b) {
+			ensure(1);
+			buffer[size++] = (byte) b;
+		}
+
+		public void write_bytes(final byte[] bytes) {
+			write_varint(bytes.length);
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		}
+
+		public void write_boolean(boolean b) {
+			write_byte(b ? 1 : 0);
+		}
+
+		public void write_varint(int v) {
+			write_varlong(v & 0xffffffffl);
+		}
+
+		public void write_varlong(long v) {
+			ensure(10);
+			while ((v & ~0x7fl) != 0) {
+				buffer[size++] = (byte) ((v & 0x7f) | 0x80);
+				v >>>= 7;
+			}
+			buffer[size++] = (byte) v;
+		}
+
+		// Enums are stored by ordinal, so constants must only ever be appended.
+		public <T extends Enum<T> & Coded> void write_enum(final T e) {
+			write_varint(e.binary_code());
+		}
+
+		public void write_zigzag(int v) {
+			write_varint((v << 1) ^ (v >> 31));
+		}
+
+		public void write_long(long v) {
+			ensure(8);
+			for (int i = 56; i >= 0; i -= 8) {
+				buffer[size++] = (byte) (v >>> i);
+			}
+		}
+
+		public void write_double(double v) {
+			write_long(Double.doubleToRawLongBits(v));
+		}
+
+		public void write_float(float v) {
+			write_varint(Integer.reverseBytes(Float.floatToRawIntBits(v)));
+		}
+
+		public void write_string(final String s) {
+			write_bytes(s.getBytes(StandardCharsets.UTF_8));
+		}
+
+		public void write_uuid(final UUID id) {
+			write_long(id.getMostSignificantBits());
+			write_long(id.getLeastSignificantBits());
+		}
+
+		// Writes a presence flag followed by the uuid if it is not null.
+		public void write_nullable_uuid(final UUID id) {
+			write_boolean(id != null);
+			if (id != null) {
+				write_uuid(id);
+			}
+		}
+
+		public void write_nullable_string(final String s) {
+			write_boolean(s != null);
+			if (s != null) {
+				write_string(s);
+			}
+		}
+
+		public void write_namespaced_key(final NamespacedKey key) {
+			write_nullable_string(key == null ? null : key.toString());
+		}
+
+		public void write_item_stack(final ItemStack item) {
+			write_boolean(item != null);
+			if (item != null) {
+				write_bytes(item.serializeAsBytes());
+			}
+		}
+
+		// Writes a block position as delta to the given previous position.
+		// Positions of consecutive blocks are usually adjacent, so this
+		// typically needs only three bytes per block.
+		public void write_block_delta(int x, int y, int z, int prev_x, int prev_y, int prev_z) {
+			write_zigzag(x - prev_x);
+			write_zigzag(y - prev_y);
+			write_zigzag(z - prev_z);
+		}
+
+		public byte[] to_byte_array() {
+			return Arrays.copyOf(buffer, size);
+		}
+	}
+
+	public static class Reader {
+
+		private final byte[] data;
+		private int pos = 0;
+		private final int version;
+
+		public Reader(final byte[] data) throws IOException {
+			this.data = data;
+			if (!is_binary(data)) {
+				throw new IOException("Data is not in binary format");
+			}
+			this.version = read_byte();
+		}
+
+		public int version() {
+			return version;
+		}
+
+		public int read_byte() throws IOException {
+			if (pos >= data.length) {
+				throw new IOException("Unexpected end of binary data");
+			}
+			return data[pos++] & 0xff;
+		}
+
+		public byte[] read_bytes() throws IOException {
+			final var length = read_varint();
+			if (length < 0 || length > data.length - pos) {
+				throw new IOException("Invalid length " + length + " in binary data");
+			}
+			final var bytes = Arrays.copyOfRange(data, pos, pos + length);
+			pos += length;
+			return bytes;
+		}
+
+		public boolean read_boolean() throws IOException {
+			return read_byte() != 0;
+		}
+
+		public int read_varint() throws IOException {
+			return (int) read_varlong();
+		}
+
+		public long read_varlong() throws IOException {
+			long v = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				final var b = read_byte();
+				v |= (long) (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) {
+					return v;
+				}
+			}
+			throw new IOException("Malformed varint in binary data");
+		}
+
+		public int read_zigzag() throws IOException {
+			final var v = read_varint();
+			return (v >>> 1) ^ -(v & 1);
+		}
+
+		public long read_long() throws IOException {
+			long v = 0;
+			for (int i = 0; i < 8; ++i) {
+				v = (v << 8) | read_byte();
+			}
+			return v;
+		}
+
+		public double read_double() throws IOException {
+			return Double.longBitsToDouble(read_long());
+		}
+
+		public float read_float() throws IOException {
+			return Float.intBitsToFloat(Integer.reverseBytes(read_varint()));
+		}
+
+		public String read_string() throws IOException {
+			return new String(read_bytes(), StandardCharsets.UTF_8);
+		}
+
+		public UUID read_uuid() throws IOException {
+			final var msb = read_long();
+			final var lsb = read_long();
+			return new UUID(msb, lsb);
+		}
+
+		public UUID read_nullable_uuid() throws IOException {
+			return read_boolean() ? read_uuid() : null;
+		}
+
+		public String read_nullable_string() throws IOException {
+			return read_boolean() ? read_string() : null;
+		}
+
+		public NamespacedKey read_namespaced_key() throws IOException {
+			final var s = read_nullable_string();
+			if (s == null) {
+				return null;
+			}
+			final var key = NamespacedKey.fromString(s);
+			if (key == null) {
+				throw new IOException("Invalid namespaced key '" + s + "'");
+			}
+			return key;
+		}
+
+		public ItemStack read_item_stack() throws IOException {
+			return read_boolean() ? ItemStack.deserializeBytes(read_bytes()) : null;
+		}
+
+		// Reads an enum constant stored as its binary code.
+		public <T extends Enum<T> & Coded> T read_enum(final T[] values) throws IOException {
+			final var code = read_varint();
+			for (final var value : values) {
+				if (value.binary_code() == code) {
+					return value;
+				}
+			}
+			throw new IOException("Invalid enum code " + code + " in binary data");
+		}
+	}
+}
@@ -40,8 +40,12 @@ public class PersistentField {
 			throw new IOException("Missing key in persistent storage: '" + path + "'");
 		}
 
+		load_value(json.get(path));
+	}
+
+	public void load_value(Object value) throws IOException {
 		try {
-			field.set(owner, PersistentSerializer.from_json(field, json.get(path)));
+			field.set(owner, PersistentSerializer.from_json(field, value));
 		} catch (IllegalAccessException e) {
 			throw new RuntimeException("Invalid field access on '" + field.getName() + "'. This is a bug.");
 		}
@@ -0,0 +1,51 @@
+package org.oddlama.vane.core.persistent;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Records which objects stored in a world's persistent data container have changed
+// since they were last saved. Saving a world can then write exactly the changed keys
+// and delete exactly the removed ones, without scanning all stored keys.
+public class PersistentJournal {
+
+	// world id → ids of objects that were added or modified
+	private final Map<UUID, Set<UUID>> changed = new HashMap<>();
+	// world id → ids of objects that were removed
+	private final Map<UUID, Set<UUID>> removed = new HashMap<>();
+
+	public void mark_changed(final UUID world_id, final UUID id) {
+		changed.computeIfAbsent(world_id, k -> new HashSet<>()).add(id);
+		final var world_removed = removed.get(world_id);
+		if (world_removed != null) {
+			world_removed.remove(id);
+		}
+	}
+
+	public void mark_removed(final UUID world_id, final UUID id) {
+		removed.computeIfAbsent(world_id, k -> new HashSet<>()).add(id);
+		final var world_changed = changed.get(world_id);
+		if (world_changed != null) {
+			world_changed.remove(id);
+		}
+	}
+
+	public boolean is_empty(final UUID world_id) {
+		return !changed.containsKey(world_id) && !removed.containsKey(world_id);
+	}
+
+	// Returns and forgets all ids that were added or modified in the given world.
+	public Set<UUID> take_changed(final UUID world_id) {
+		final var ids = changed.remove(world_id);
+		return ids == null ? Collections.emptySet() : ids;
+	}
+
+	// Returns and forgets all ids that were removed in the given world.
+	public Set<UUID> take_removed(final UUID world_id) {
+		final var ids = removed.remove(world_id);
+		return ids == null ? Collections.emptySet() : ids;
+	}
+}
@@ -10,12 +10,19 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.oddlama.vane.annotation.persistent.Persistent;
 import org.oddlama.vane.core.module.Module;
 
@@ -34,11 +41,35 @@ public class PersistentStorageManager {
 		}
 	}
 
+	private enum StreamingLoadResult {
+		LOADED,
+		FAILED,
+		NEEDS_MIGRATION,
+	}
+
+	private static class PendingWrite {
+
+		public File file;
+		public JSONObject json;
+
+		public PendingWrite(File file, JSONObject json) {
+			this.file = file;
+			this.json = json;
+		}
+	}
+
 	private List<PersistentField> persistent_fields = new ArrayList<>();
 	private List<Migration> migrations = new ArrayList<>();
 	Module<?> module;
 	boolean is_loaded = false;
 
+	// Asynchronous saves are written by a single background thread, so writes
+	// never overlap and always happen in order. If a new save is requested while
+	// an older snapshot is still waiting to be written, the older one is replaced.
+	private ExecutorService writer = null;
+	private final Object pending_lock = new Object();
+	private PendingWrite pending_write = null;
+
 	public PersistentStorageManager(Module<?> module) {
 		this.module = module;
 		compile(module, s -> s);
@@ -101,6 +132,9 @@ public class PersistentStorageManager {
 
 	@SuppressWarnings("unchecked")
 	public boolean load(File file) {
+		// Never read while an older snapshot might still be written
+		flush();
+
 		if (!file.exists() && is_loaded) {
 			module.log.severe("Cannot reload persistent storage from nonexistent file '" + file.getName() + "'");
 			return false;
@@ -109,6 +143,20 @@ public class PersistentStorageManager {
 		// Reset loaded status
 		is_loaded = false;
 
+		// Usually no migration is necessary, so we can load the fields directly
+		// while reading the file. Otherwise, fall back to loading the whole tree.
+		if (file.exists()) {
+			switch (load_streaming(file)) {
+				case LOADED:
+					is_loaded = true;
+					return true;
+				case FAILED:
+					return false;
+				case NEEDS_MIGRATION:
+					break;
+			}
+		}
+
 		final JSONObject json;
 		if (file.exists()) {
 			// Open file and read json
@@ -165,12 +213,96 @@ public class PersistentStorageManager {
 		return true;
 	}
 
-	public void save(File file) {
-		if (!is_loaded) {
-			// Don't save if never loaded or a previous load was faulty.
-			return;
+	// Reads the top-level object of the storage file entry by entry and passes each value
+	// directly to its persistent field, so the complete json tree is never held in memory.
+	// Returns NEEDS_MIGRATION as soon as it is known that migrations have to be applied,
+	// which requires the whole tree. Fields loaded until then will be overwritten.
+	private StreamingLoadResult load_streaming(File file) {
+		final var version_path = module.storage_path_of("storage_version");
+		final var needed_version = module.annotation.storage_version();
+		final var fields = new HashMap<String, PersistentField>();
+		for (final var f : persistent_fields) {
+			fields.put(f.path(), f);
+		}
+
+		long version = 0;
+		final var loaded_paths = new HashSet<String>();
+		IOException field_error = null;
+		try (final var reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			final var tokener = new JSONTokener(reader);
+			if (tokener.nextClean() != '{') {
+				throw tokener.syntaxError("A JSONObject text must begin with '{'");
+			}
+
+			var c = tokener.nextClean();
+			if (c != '}') {
+				tokener.back();
+				while (true) {
+					final var key = tokener.nextValue().toString();
+					if (tokener.nextClean() != ':') {
+						throw tokener.syntaxError("Expected a ':' after a key");
+					}
+
+					final var value = tokener.nextValue();
+					if (key.equals(version_path)) {
+						version = Long.parseLong(value.toString());
+						if (version != needed_version && migrations.size() > 0) {
+							return StreamingLoadResult.NEEDS_MIGRATION;
+						}
+					} else {
+						final var field = fields.get(key);
+						if (field != null && field_error == null) {
+							try {
+								field.load_value(value);
+								loaded_paths.add(key);
+							} catch (IOException e) {
+								// Might still be fixed by a migration, which we only know once the version was read.
+								field_error = e;
+							}
+						}
+					}
+
+					c = tokener.nextClean();
+					if (c == '}') {
+						break;
+					}
+					if (c != ',') {
+						throw tokener.syntaxError("Expected a ',' or '}'");
+					}
+				}
+			}
+		} catch (IOException | JSONException | NumberFormatException e) {
+			module.log.severe("error while loading persistent data from '" + file.getName() + "':");
+			module.log.severe(e.getMessage());
+			return StreamingLoadResult.FAILED;
+		}
+
+		// A missing version key means version 0
+		if (version != needed_version && migrations.size() > 0) {
+			return StreamingLoadResult.NEEDS_MIGRATION;
+		}
+
+		if (field_error == null && version != 0) {
+			// All fields must be present, unless this is a freshly initialized storage
+			for (final var f : persistent_fields) {
+				if (!loaded_paths.contains(f.path())) {
+					field_error = new IOException("Missing key in persistent storage: '" + f.path() + "'");
+					break;
+				}
+			}
+		}
+
+		if (field_error != null) {
+			module.log.log(Level.SEVERE, "error while loading persistent variables from '" + file.getName() + "'", field_error);
+			return StreamingLoadResult.FAILED;
 		}
 
+		return StreamingLoadResult.LOADED;
+	}
+
+	// Serializes all persistent fields into a new json document. This must happen on the
+	// main thread, but the result doesn't reference any live data and can be written anywhere.
+	private JSONObject snapshot() {
 		// Create json with whole content
 		final var json = new JSONObject();
 
@@ -187,6 +319,85 @@ public class PersistentStorageManager {
 			}
 		}
 
+		return json;
+	}
+
+	// Saves the storage synchronously. Any pending asynchronous save is written first.
+	public void save(File file) {
+		if (!is_loaded) {
+			// Don't save if never loaded or a previous load was faulty.
+			return;
+		}
+
+		flush();
+		write(file, snapshot());
+	}
+
+	// Takes a snapshot of the storage now and writes it to the file in the background.
+	public void save_async(File file) {
+		if (!is_loaded) {
+			// Don't save if never loaded or a previous load was faulty.
+			return;
+		}
+
+		final var json = snapshot();
+		synchronized (pending_lock) {
+			final var already_scheduled = pending_write != null;
+			pending_write = new PendingWrite(file, json);
+			if (already_scheduled) {
+				// The scheduled write will pick up the newer snapshot
+				return;
+			}
+		}
+
+		if (writer == null) {
+			writer = Executors.newSingleThreadExecutor(runnable -> {
+				final var thread = new Thread(runnable, "vane-" + module.get_name() + "-storage-writer");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		writer.execute(this::write_pending);
+	}
+
+	private void write_pending() {
+		final PendingWrite write;
+		synchronized (pending_lock) {
+			write = pending_write;
+			pending_write = null;
+		}
+
+		if (write != null) {
+			write(write.file, write.json);
+		}
+	}
+
+	// Blocks until all previously requested asynchronous saves have been written.
+	public void flush() {
+		if (writer == null) {
+			return;
+		}
+
+		try {
+			// The writer is single threaded, so once this no-op has run, all prior writes are done.
+			writer.submit(() -> {}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			module.log.log(Level.SEVERE, "error while waiting for persistent data to be written!", e);
+		}
+	}
+
+	// Writes all pending saves and stops the background writer.
+	public void shutdown() {
+		flush();
+		if (writer != null) {
+			writer.shutdown();
+			writer = null;
+		}
+	}
+
+	private void write(File file, JSONObject json) {
 		// Save to tmp file, then move atomically to prevent corruption.
 		final var tmp_file = new File(file.getAbsolutePath() + ".tmp");
 		try {
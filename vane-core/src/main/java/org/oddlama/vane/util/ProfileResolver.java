@@ -0,0 +1,207 @@
+package org.oddlama.vane.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+// Resolves player names to uuids and uuids to skins without blocking the caller.
+// Results are kept in a bounded cache for a fixed time, concurrent requests for the
+// same name or uuid share a single request to the endpoint, and the cache can be
+// persisted to a file so it survives restarts. All requests run on the given executor.
+public class ProfileResolver {
+	// The remote service to query. Can be replaced, e.g. by a local stub in tests.
+	public interface Endpoint {
+		UUID resolve_uuid(String name) throws IOException;
+
+		Resolve.Skin resolve_skin(UUID id) throws IOException;
+	}
+
+	public static Endpoint endpoint(final String api_url, final String session_url) {
+		return new Endpoint() {
+			@Override
+			public UUID resolve_uuid(String name) throws IOException {
+				return Resolve.resolve_uuid(api_url, name);
+			}
+
+			@Override
+			public Resolve.Skin resolve_skin(UUID id) throws IOException {
+				return Resolve.resolve_skin(session_url, id);
+			}
+		};
+	}
+
+	public static final Endpoint MOJANG = endpoint(Resolve.MOJANG_API_URL, Resolve.MOJANG_SESSION_URL);
+
+	private interface Fetcher<K, V> {
+		V fetch(K key) throws IOException;
+	}
+
+	private final Endpoint endpoint;
+	private final Executor executor;
+	private final long ttl_ms;
+	private final File cache_file;
+
+	// lower-case name → uuid
+	private final Cache<String, UUID> uuids;
+	private final Cache<UUID, Resolve.Skin> skins;
+	private final ConcurrentHashMap<String, CompletableFuture<UUID>> pending_uuids = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<UUID, CompletableFuture<Resolve.Skin>> pending_skins = new ConcurrentHashMap<>();
+
+	// The cache file may be null to keep the cache in memory only.
+	public ProfileResolver(final Endpoint endpoint, final Executor executor, long ttl_ms, int capacity, final File cache_file) {
+		this.endpoint = endpoint;
+		this.executor = executor;
+		this.ttl_ms = ttl_ms;
+		this.cache_file = cache_file;
+		this.uuids = new Cache<>(capacity);
+		this.skins = new Cache<>(capacity);
+	}
+
+	public CompletableFuture<UUID> uuid(final String name) {
+		return lookup(name.toLowerCase(), uuids, pending_uuids, key -> endpoint.resolve_uuid(name));
+	}
+
+	public CompletableFuture<Resolve.Skin> skin(final UUID id) {
+		return lookup(id, skins, pending_skins, endpoint::resolve_skin);
+	}
+
+	private <K, V> CompletableFuture<V> lookup(final K key, final Cache<K, V> cache,
+			final ConcurrentHashMap<K, CompletableFuture<V>> pending, final Fetcher<K, V> fetcher) {
+		final var cached = cache.get(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(cached);
+		}
+
+		// Join the request that is already in flight, if any
+		final var future = new CompletableFuture<V>();
+		final var in_flight = pending.putIfAbsent(key, future);
+		if (in_flight != null) {
+			return in_flight;
+		}
+
+		executor.execute(() -> {
+			try {
+				final var value = fetcher.fetch(key);
+				// Cache before removing the pending request, so no second request can start in between.
+				cache.put(key, value, System.currentTimeMillis() + ttl_ms);
+				pending.remove(key);
+				future.complete(value);
+			} catch (Exception e) {
+				pending.remove(key);
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	// Loads the cache file, skipping expired and malformed entries. Each line is either
+	// "uuid <name> <uuid> <expires_at>" or "skin <uuid> <expires_at> <texture> <signature>".
+	public void load() throws IOException {
+		if (cache_file == null || !cache_file.exists()) {
+			return;
+		}
+
+		final var now = System.currentTimeMillis();
+		for (final var line : Files.readAllLines(cache_file.toPath(), StandardCharsets.UTF_8)) {
+			final var parts = line.split(" ");
+			try {
+				if (parts.length == 4 && parts[0].equals("uuid")) {
+					final var expires_at = Long.parseLong(parts[3]);
+					if (expires_at > now) {
+						uuids.put(parts[1], UUID.fromString(parts[2]), expires_at);
+					}
+				} else if (parts.length == 5 && parts[0].equals("skin")) {
+					final var expires_at = Long.parseLong(parts[2]);
+					if (expires_at > now) {
+						final var skin = new Resolve.Skin();
+						skin.texture = parts[3];
+						skin.signature = parts[4];
+						skins.put(UUID.fromString(parts[1]), skin, expires_at);
+					}
+				}
+			} catch (IllegalArgumentException e) {
+				// Skip malformed entry
+			}
+		}
+	}
+
+	// Writes all cached entries to the cache file.
+	public void save() throws IOException {
+		if (cache_file == null) {
+			return;
+		}
+
+		final var lines = new ArrayList<String>();
+		uuids.for_each((name, entry) -> lines.add("uuid " + name + " " + entry.value + " " + entry.expires_at));
+		skins.for_each((id, entry) -> lines.add("skin " + id + " " + entry.expires_at + " " + entry.value.texture + " " + entry.value.signature));
+
+		// Save to tmp file, then move atomically to prevent corruption.
+		final var tmp_file = new File(cache_file.getAbsolutePath() + ".tmp");
+		Files.write(tmp_file.toPath(), lines, StandardCharsets.UTF_8);
+		Files.move(
+			tmp_file.toPath(),
+			cache_file.toPath(),
+			StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE
+		);
+	}
+
+	// Bounded map with per-entry expiry, which evicts the least recently used entry when full.
+	private static class Cache<K, V> {
+		private static class Entry<V> {
+			private final V value;
+			private final long expires_at;
+
+			private Entry(final V value, long expires_at) {
+				this.value = value;
+				this.expires_at = expires_at;
+			}
+		}
+
+		private final LinkedHashMap<K, Entry<V>> entries;
+
+		private Cache(int capacity) {
+			entries = new LinkedHashMap<>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+					return size() > capacity;
+				}
+			};
+		}
+
+		private synchronized V get(final K key) {
+			final var entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expires_at <= System.currentTimeMillis()) {
+				entries.remove(key);
+				return null;
+			}
+			return entry.value;
+		}
+
+		private synchronized void put(final K key, final V value, long expires_at) {
+			entries.put(key, new Entry<>(value, expires_at));
+		}
+
+		private synchronized void for_each(final BiConsumer<K, Entry<V>> consumer) {
+			final var now = System.currentTimeMillis();
+			entries.forEach((key, entry) -> {
+				if (entry.expires_at > now) {
+					consumer.accept(key, entry);
+				}
+			});
+		}
+	}
+}
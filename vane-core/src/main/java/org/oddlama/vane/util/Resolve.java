@@ -4,6 +4,9 @@ import java.io.IOException;
 import java.util.UUID;
 
 public class Resolve {
+	public static final String MOJANG_API_URL = "https://api.mojang.com";
+	public static final String MOJANG_SESSION_URL = "https://sessionserver.mojang.com";
+
 	public static class Skin {
 
 		public String texture;
@@ -11,7 +14,11 @@ public class Resolve {
 	}
 
 	public static Skin resolve_skin(UUID id) throws IOException {
-		final var url = "https://sessionserver.mojang.com/session/minecraft/profile/" + id + "?unsigned=false";
+		return resolve_skin(MOJANG_SESSION_URL, id);
+	}
+
+	public static Skin resolve_skin(String session_url, UUID id) throws IOException {
+		final var url = session_url + "/session/minecraft/profile/" + id + "?unsigned=false";
 
 		final var json = IOUtil.read_json_from_url(url);
 		final var skin = new Skin();
@@ -22,7 +29,11 @@ public class Resolve {
 	}
 
 	public static UUID resolve_uuid(String name) throws IOException {
-		final var url = "https://api.mojang.com/users/profiles/minecraft/" + name;
+		return resolve_uuid(MOJANG_API_URL, name);
+	}
+
+	public static UUID resolve_uuid(String api_url, String name) throws IOException {
+		final var url = api_url + "/users/profiles/minecraft/" + name;
 
 		final var json = IOUtil.read_json_from_url(url);
 		final var id_str = json.getString("id");
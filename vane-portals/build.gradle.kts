@@ -1,5 +1,6 @@
 plugins {
 	id("com.github.johnrengelman.shadow") version "7.1.0"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 dependencies {
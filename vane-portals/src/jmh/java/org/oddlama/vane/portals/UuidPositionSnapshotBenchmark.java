@@ -0,0 +1,187 @@
+package org.oddlama.vane.portals;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Compares one tick of movement detection (snapshot, compare, swap) between the
+// primitive position snapshot and the previous HashMap<UUID, Pair<Entity, Location>>
+// approach. Bukkit types are replaced by plain objects with the same allocation profile.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidPositionSnapshotBenchmark {
+	// Fraction of entities that move each tick
+	private static final double MOVING_FRACTION = 0.1;
+
+	@Param({ "1000", "10000", "50000" })
+	public int entities;
+
+	private UUID[] ids;
+	private Object[] payloads;
+	private double[] x;
+	private double[] y;
+	private double[] z;
+	private boolean[] moving;
+
+	private UuidPositionSnapshot<Object> snapshot_current = new UuidPositionSnapshot<>();
+	private UuidPositionSnapshot<Object> snapshot_old = new UuidPositionSnapshot<>();
+
+	private HashMap<UUID, Map.Entry<Object, Position>> map_current = new HashMap<>();
+	private HashMap<UUID, Map.Entry<Object, Position>> map_old = new HashMap<>();
+
+	// Stand-in for the processing queue, which is keyed by the entity (snapshot) or
+	// its uuid (map). It stays empty, but both paths check it for every moved entity.
+	private final LinkedHashMap<Object, Object> queue = new LinkedHashMap<>();
+
+	// Stand-in for org.bukkit.Location
+	private static final class Position {
+		final Object world;
+		final double x, y, z;
+		final float yaw, pitch;
+
+		Position(Object world, double x, double y, double z, float yaw, float pitch) {
+			this.world = world;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.yaw = yaw;
+			this.pitch = pitch;
+		}
+	}
+
+	private static final Object WORLD = new Object();
+
+	@Setup
+	public void setup() {
+		final var random = new Random(42);
+		ids = new UUID[entities];
+		payloads = new Object[entities];
+		x = new double[entities];
+		y = new double[entities];
+		z = new double[entities];
+		moving = new boolean[entities];
+		for (int i = 0; i < entities; ++i) {
+			ids[i] = UUID.randomUUID();
+			payloads[i] = new Object();
+			x[i] = random.nextDouble() * 1000.0;
+			y[i] = random.nextDouble() * 256.0;
+			z[i] = random.nextDouble() * 1000.0;
+			moving[i] = random.nextDouble() < MOVING_FRACTION;
+		}
+
+		// Fill both sides once, so we measure steady state ticks.
+		snapshot_tick(null);
+		map_tick(null);
+	}
+
+	private void advance() {
+		for (int i = 0; i < entities; ++i) {
+			if (moving[i]) {
+				x[i] += 0.1;
+			}
+		}
+	}
+
+	private void snapshot_tick(final Blackhole bh) {
+		advance();
+		for (int i = 0; i < entities; ++i) {
+			snapshot_current.put(ids[i], payloads[i], 0, x[i], y[i], z[i], 0.0f, 0.0f);
+		}
+
+		final var current = snapshot_current;
+		final var old = snapshot_old;
+		for (int i = 0; i < current.size(); ++i) {
+			final var slot = current.slot_at(i);
+			final var old_slot = old.slot_of(current.uuid_msb(slot), current.uuid_lsb(slot));
+			if (old_slot == -1 || !current.is_movement(slot, old, old_slot)) {
+				continue;
+			}
+
+			final var payload = current.payload(slot);
+			if (queue.containsKey(payload)) {
+				continue;
+			}
+
+			// The old location is only materialized for entities that moved
+			final var old_position = new Position(WORLD, old.x(old_slot), old.y(old_slot), old.z(old_slot), old.yaw(old_slot), old.pitch(old_slot));
+			if (bh != null) {
+				bh.consume(payload);
+				bh.consume(old_position);
+			}
+		}
+
+		snapshot_current = old;
+		snapshot_old = current;
+		snapshot_current.clear();
+	}
+
+	private static boolean is_movement(final Position l1, final Position l2) {
+		return l1.world == l2.world && (
+			   l1.x     != l2.x
+			|| l1.y     != l2.y
+			|| l1.z     != l2.z
+			|| l1.pitch != l2.pitch
+			|| l1.yaw   != l2.yaw);
+	}
+
+	private void map_tick(final Blackhole bh) {
+		advance();
+		for (int i = 0; i < entities; ++i) {
+			map_current.put(ids[i], new AbstractMap.SimpleImmutableEntry<>(payloads[i], new Position(WORLD, x[i], y[i], z[i], 0.0f, 0.0f)));
+		}
+
+		// Equivalent to iterating Sets.difference(Sets.intersection(old, current), queue)
+		for (final var eid : map_old.keySet()) {
+			if (!map_current.containsKey(eid) || queue.containsKey(eid)) {
+				continue;
+			}
+
+			final var old_entity_and_loc = map_old.get(eid);
+			final var new_entity_and_loc = map_current.get(eid);
+			if (!is_movement(old_entity_and_loc.getValue(), new_entity_and_loc.getValue())) {
+				continue;
+			}
+			// The old location already exists, as one was allocated for every entity
+			if (bh != null) {
+				bh.consume(old_entity_and_loc.getKey());
+				bh.consume(old_entity_and_loc.getValue());
+			}
+		}
+
+		final var tmp = map_current;
+		map_current = map_old;
+		map_old = tmp;
+		map_current.clear();
+	}
+
+	@Benchmark
+	public void primitive_snapshot(final Blackhole bh) {
+		snapshot_tick(bh);
+	}
+
+	@Benchmark
+	public void hash_map_pairs(final Blackhole bh) {
+		map_tick(bh);
+	}
+}
@@ -1,35 +1,98 @@
 package org.oddlama.vane.portals;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.UUID;
 
-import com.google.common.collect.Sets;
-
-import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.scheduler.BukkitTask;
+import org.oddlama.vane.annotation.config.ConfigBoolean;
+import org.oddlama.vane.annotation.config.ConfigInt;
 import org.oddlama.vane.portals.event.EntityMoveEvent;
 import org.oddlama.vane.core.module.Context;
 import org.oddlama.vane.core.module.ModuleComponent;
 
 public class EntityMoveProcessor extends ModuleComponent<Portals> {
-	// This is the queue of entity move events that need processing.
-	// It is a linked hash map, so we can update moved entity positions
-	// without changing iteration order. Processed entries will be removed from
-	// the front and new entities are added to the back. If an entity moves twice
-	// but wasn't processed, we don't need to update it. This ensures that no entities
-	// will be accidentally skipped when we are struggling to keep up.
-	// This stores entity_id -> (entity, old location).
-	private LinkedHashMap<UUID, Pair<Entity, Location>> move_event_processing_queue = new LinkedHashMap<>();
-
-	// Two hash maps to store old and current positions for each entity.
-	private HashMap<UUID, Pair<Entity, Location>> move_event_current_positions = new HashMap<>();
-	private HashMap<UUID, Pair<Entity, Location>> move_event_old_positions = new HashMap<>();
+	@ConfigBoolean(
+		def = true,
+		desc = "Only detect movement of entities in chunks near activated portals, instead of scanning all entities in every world with an activated portal. This makes the detection cost scale with the amount of active portals instead of the amount of entities on the server."
+	)
+	public boolean config_chunk_sectioned_detection;
+
+	@ConfigInt(
+		def = 1,
+		min = 0,
+		max = 4,
+		desc = "Radius in chunks around the chunks of activated portals in which entity movement is detected. Only used with chunk_sectioned_detection."
+	)
+	public int config_chunk_sectioned_detection_radius;
+
+	@ConfigBoolean(
+		def = true,
+		desc = "Test the straight path between the old and new position of each moved entity against the areas of all activated portals. Entities crossing a portal are teleported in the same tick, even if they moved through the portal area so fast that they were never observed inside of it, and all other movements are only queued if they are still relevant for portal teleportation."
+	)
+	public boolean config_predictive_crossing;
+
+	@ConfigInt(
+		def = 6000,
+		min = 0,
+		max = 15000,
+		desc = "Time budget in microseconds per tick for dispatching movements of players. Classes are processed in the order players, living entities, projectiles, items. Time left over from the total budget of 15ms is given to the oldest queued movements of any class."
+	)
+	public int config_budget_players;
+
+	@ConfigInt(def = 4000, min = 0, max = 15000, desc = "Time budget in microseconds per tick for dispatching movements of living entities.")
+	public int config_budget_living_entities;
+
+	@ConfigInt(def = 3000, min = 0, max = 15000, desc = "Time budget in microseconds per tick for dispatching movements of projectiles.")
+	public int config_budget_projectiles;
+
+	@ConfigInt(def = 2000, min = 0, max = 15000, desc = "Time budget in microseconds per tick for dispatching movements of items and all other entities.")
+	public int config_budget_items;
+
+	@ConfigInt(
+		def = 500,
+		min = 0,
+		desc = "Maximum time in milliseconds a movement may wait in its queue. If a class did not get to dispatch anything in a tick, its oldest movement is dispatched anyway once it exceeds this age, so that no class can starve."
+	)
+	public int config_max_queue_age;
+
+	@ConfigInt(
+		def = 0,
+		min = 0,
+		max = 3600,
+		desc = "Interval in seconds in which the queue depth and dispatch latencies of each entity class are logged, which helps to tune the budgets. 0 to disable."
+	)
+	public int config_statistics_interval;
+
+	// These are the queues of entity move events that need processing, one for each class of entities.
+	// Processed entries will be removed from the front and new entities are added to the back.
+	// If an entity moves twice but wasn't processed, we don't need to update it. This ensures that
+	// no entities will be accidentally skipped when we are struggling to keep up.
+	private final EntityMoveScheduler move_event_scheduler =
+		new EntityMoveScheduler(move_event_max_nanoseconds_per_tick, 500000000l);
+
+	// Entities that crossed an activated portal during the last movement detection.
+	// These are dispatched before the processing queue and regardless of the time budget,
+	// so the teleportation is never delayed. Stores (entity, old location, crossed portal id).
+	private final ArrayList<Triple<Entity, Location, UUID>> crossing_entities = new ArrayList<>();
+
+	// Two snapshots to store old and current positions for each entity. They are swapped
+	// each tick, which retains their capacity and avoids any per-entity allocations.
+	private UuidPositionSnapshot<Entity> move_event_current_positions = new UuidPositionSnapshot<>();
+	private UuidPositionSnapshot<Entity> move_event_old_positions = new UuidPositionSnapshot<>();
+
+	// Worlds are stored as indices into this list in the position snapshots.
+	private final ArrayList<UUID> world_slots = new ArrayList<>();
+
+	// Scratch location, so we can read entity positions without allocating.
+	private final Location scratch_location = new Location(null, 0.0, 0.0, 0.0);
 
 	private BukkitTask task;
+	private BukkitTask statistics_task;
 
 	// Never process entity-move events for more than ~30% of a tick.
 	// We use 15ms threshold time, and 50ms would be 1 tick.
@@ -39,38 +102,23 @@ public class EntityMoveProcessor extends ModuleComponent<Portals> {
 		super(context);
 	}
 
-	private static boolean is_movement(final Location l1, final Location l2) {
-		// Different worlds = not a movement event.
-		return l1.getWorld() == l2.getWorld() && (
-			   l1.getX()     != l2.getX()
-			|| l1.getY()     != l2.getY()
-			|| l1.getZ()     != l2.getZ()
-			|| l1.getPitch() != l2.getPitch()
-			|| l1.getYaw()   != l2.getYaw());
+	private int world_slot(final World world) {
+		final var world_id = world.getUID();
+		var slot = world_slots.indexOf(world_id);
+		if (slot == -1) {
+			slot = world_slots.size();
+			world_slots.add(world_id);
+		}
+		return slot;
 	}
 
-	private void process_entity_movements() {
-		// This custom event detector is necessary as PaperMC's entity move events trigger for LivingEntites,
-		// but we need move events for all entities. Wanna throw that potion through the portal?
-		// Yes. Shoot players through a portal? Ohh, definitely. Throw junk right into their bases? Abso-fucking-lutely.
-
-		// This implementation uses a priority queue and a small
-		// scheduling algorithm to prevent this function from ever causing lags.
-		// Lags caused by other plugins or external means will inherently cause
-		// the entity movement event tickrate to be slowed down.
-		//
-		// This function is called every tick and has two main phases.
-		//
-		// 1. Detect entity movement and queue entities for processing.
-		// 2. Iterate through entities that moved in FIFO order
-		//    and call event handlers, but make sure to immediately abort
-		//    processing after exceeding a threshold time. This ensures
-		//    that it will alawys at least process one entity, but never
-		//    hog any performance from other tasks.
-
-		// Phase 1 - Movement detection
-		// --------------------------------------------
+	private void snapshot_entity(final Entity entity, int world_slot) {
+		final var loc = entity.getLocation(scratch_location);
+		move_event_current_positions.put(entity.getUniqueId(), entity, world_slot,
+			loc.getX(), loc.getY(), loc.getZ(), loc.getYaw(), loc.getPitch());
+	}
 
+	private void snapshot_worlds() {
 		final var active_portal_worlds = new HashSet<UUID>();
 		for (final var portal : get_module().all_available_portals()) {
 			if (get_module().is_activated(portal)) {
@@ -82,56 +130,200 @@ public class EntityMoveProcessor extends ModuleComponent<Portals> {
 		for (final var world_id : active_portal_worlds) {
 			final var world = get_module().getServer().getWorld(world_id);
 			if (world != null) {
+				final var world_slot = world_slot(world);
 				for (final var entity : world.getEntities()) {
-					move_event_current_positions.put(entity.getUniqueId(), Pair.of(entity, entity.getLocation()));
+					snapshot_entity(entity, world_slot);
 				}
 			}
 		}
+	}
 
-		// For each entity that has an old position (computed efficiently via Sets.intersection),
-		// but isn't already contained in the entities to process, we check whether the position
-		// has changed. If so, we add the entity to the processing queue.
-		// If the processing queue already contained the enitity, we remove it before iterating
-		// as there is nothing to do - we simply lose information about the intermediate position.
-		for (final var eid : Sets.difference(
-					Sets.intersection(move_event_old_positions.keySet(), move_event_current_positions.keySet()),
-					move_event_processing_queue.keySet())) {
-			final var old_entity_and_loc = move_event_old_positions.get(eid);
-			final var new_entity_and_loc = move_event_current_positions.get(eid);
-			if (old_entity_and_loc == null || new_entity_and_loc == null || !is_movement(old_entity_and_loc.getRight(), new_entity_and_loc.getRight())) {
+	private void snapshot_portal_chunks() {
+		// Store current positions for each entity in any chunk near an activated portal
+		final var chunks_by_world = get_module().activated_portal_chunks(config_chunk_sectioned_detection_radius);
+		for (final var entry : chunks_by_world.entrySet()) {
+			final var world = get_module().getServer().getWorld(entry.getKey());
+			if (world == null) {
 				continue;
 			}
 
-			move_event_processing_queue.put(eid, Pair.of(old_entity_and_loc));
+			final var world_slot = world_slot(world);
+			for (final var chunk_key : entry.getValue()) {
+				// Chunk keys store x in the lower and z in the upper 32 bits
+				final int cx = (int)chunk_key;
+				final int cz = (int)(chunk_key >> 32);
+				// Never load chunks just to look for moving entities
+				if (!world.isChunkLoaded(cx, cz)) {
+					continue;
+				}
+
+				for (final var entity : world.getChunkAt(cx, cz).getEntities()) {
+					snapshot_entity(entity, world_slot);
+				}
+			}
+		}
+	}
+
+	private Location old_location(final UuidPositionSnapshot<Entity> old, int old_slot) {
+		return new Location(
+			get_module().getServer().getWorld(world_slots.get(old.world(old_slot))),
+			old.x(old_slot), old.y(old_slot), old.z(old_slot),
+			old.yaw(old_slot), old.pitch(old_slot));
+	}
+
+	private void detect_movements() {
+		if (config_chunk_sectioned_detection) {
+			snapshot_portal_chunks();
+		} else {
+			snapshot_worlds();
 		}
 
-		// Swap old and current position hash maps, and only retain the now-old positions.
+		// For each entity that has an old position, but isn't already contained in the
+		// entities to process, we check whether the position has changed. If so, we add
+		// the entity to the processing queue. If the processing queue already contained
+		// the enitity, there is nothing to do - we simply lose information about the
+		// intermediate position.
+		//
+		// With predictive crossing, the path of each moved entity is first tested against
+		// the areas of all activated portals. Crossing entities bypass the queue entirely.
+		// Other movements can only matter to portals if the entity is still portalling,
+		// as entering a portal area always counts as a crossing.
+		final var now = System.nanoTime();
+		final var planes = config_predictive_crossing ? get_module().activated_portal_planes() : null;
+		final var current = move_event_current_positions;
+		final var old = move_event_old_positions;
+		for (int i = 0; i < current.size(); ++i) {
+			final var slot = current.slot_at(i);
+			final var old_slot = old.slot_of(current.uuid_msb(slot), current.uuid_lsb(slot));
+			if (old_slot == -1 || !current.is_movement(slot, old, old_slot)) {
+				continue;
+			}
+
+			final var entity = current.payload(slot);
+			final var eid = entity.getUniqueId();
+			if (planes != null) {
+				UUID crossed = null;
+				// Paths across worlds can never cross a portal
+				if (current.world(slot) == old.world(old_slot)) {
+					crossed = planes.crossed_portal(world_slots.get(current.world(slot)),
+						old.x(old_slot), old.y(old_slot), old.z(old_slot),
+						current.x(slot), current.y(slot), current.z(slot));
+				}
+
+				if (crossed != null) {
+					// Prefer the older location if the entity was still waiting in the queue
+					final var queued = move_event_scheduler.remove(entity);
+					final var old_location = queued != null ? queued : old_location(old, old_slot);
+					crossing_entities.add(Triple.of(entity, old_location, crossed));
+					continue;
+				}
+
+				if (!get_module().teleporter.is_portalling(eid)) {
+					continue;
+				}
+			}
+
+			if (move_event_scheduler.contains(entity)) {
+				continue;
+			}
+
+			move_event_scheduler.offer(entity, old_location(old, old_slot), now);
+		}
+
+		// Swap old and current position snapshots, and only retain the now-old positions.
 		// This avoids unnecessary allocations.
-		final var tmp = move_event_current_positions;
-		move_event_current_positions = move_event_old_positions;
-		move_event_old_positions = tmp;
+		move_event_current_positions = old;
+		move_event_old_positions = current;
 		move_event_current_positions.clear();
+	}
+
+	private void process_entity_movements() {
+		// This custom event detector is necessary as PaperMC's entity move events trigger for LivingEntites,
+		// but we need move events for all entities. Wanna throw that potion through the portal?
+		// Yes. Shoot players through a portal? Ohh, definitely. Throw junk right into their bases? Abso-fucking-lutely.
+
+		// This implementation uses a priority queue and a small
+		// scheduling algorithm to prevent this function from ever causing lags.
+		// Lags caused by other plugins or external means will inherently cause
+		// the entity movement event tickrate to be slowed down.
+		//
+		// This function is called every tick and has two main phases.
+		//
+		// 1. Detect entity movement and queue entities for processing.
+		// 2. Iterate through entities that moved in FIFO order per entity class
+		//    and call event handlers, but make sure to immediately abort
+		//    processing after exceeding a threshold time. This ensures
+		//    that it will alawys at least process one entity, but never
+		//    hog any performance from other tasks. See EntityMoveScheduler
+		//    for details on how the time is split between classes.
+
+		// Phase 1 - Movement detection
+		// --------------------------------------------
+
+		detect_movements();
 
 		// Phase 2 - Event dispatching
 		// --------------------------------------------
 
-		final var time_begin = System.nanoTime();
 		final var pm = get_module().getServer().getPluginManager();
-		final var iter = move_event_processing_queue.entrySet().iterator();
-		while (iter.hasNext()) {
-			final var e_and_old_loc = iter.next().getValue();
-			iter.remove();
-
-			// Dispatch event.
-			final var entity = e_and_old_loc.getLeft();
-			final var event = new EntityMoveEvent(entity, e_and_old_loc.getRight(), entity.getLocation());
-			pm.callEvent(event);
-
-			// Abort if we exceed the threshold time
-			final var time_now = System.nanoTime();
-			if (time_now - time_begin > move_event_max_nanoseconds_per_tick) {
-				break;
-			}
+
+		// Entities crossing a portal are always dispatched immediately.
+		for (final var crossing : crossing_entities) {
+			final var entity = crossing.getLeft();
+			final var portal = get_module().portal_for(crossing.getRight());
+			pm.callEvent(new EntityMoveEvent(entity, crossing.getMiddle(), entity.getLocation(), portal));
+		}
+		crossing_entities.clear();
+
+		move_event_scheduler.dispatch((entity, old_location) ->
+			pm.callEvent(new EntityMoveEvent(entity, old_location, entity.getLocation())));
+	}
+
+	// Exposes queue depths and dispatch latencies per entity class.
+	public EntityMoveScheduler scheduler() {
+		return move_event_scheduler;
+	}
+
+	private void log_statistics() {
+		final var sb = new StringBuilder("Entity movement queues:");
+		for (final var move_class : EntityMoveScheduler.MoveClass.values()) {
+			sb.append(String.format(" %s[depth=%d, avg=%.2fms, max=%.2fms, dispatched=%d]",
+				move_class.name().toLowerCase(),
+				move_event_scheduler.queue_depth(move_class),
+				move_event_scheduler.average_latency_milliseconds(move_class),
+				move_event_scheduler.take_max_latency_milliseconds(move_class),
+				move_event_scheduler.dispatched(move_class)));
+		}
+		get_module().log.info(sb.toString());
+	}
+
+	private void schedule_statistics() {
+		if (statistics_task != null) {
+			statistics_task.cancel();
+			statistics_task = null;
+		}
+		if (config_statistics_interval > 0) {
+			final var period = config_statistics_interval * 20l;
+			statistics_task = schedule_task_timer(this::log_statistics, period, period);
+		}
+	}
+
+	@Override
+	protected void on_config_change() {
+		// Forget all positions, as the detection mode might have changed.
+		move_event_current_positions.clear();
+		move_event_old_positions.clear();
+		crossing_entities.clear();
+
+		move_event_scheduler.budget(EntityMoveScheduler.MoveClass.PLAYERS, config_budget_players * 1000l);
+		move_event_scheduler.budget(EntityMoveScheduler.MoveClass.LIVING_ENTITIES, config_budget_living_entities * 1000l);
+		move_event_scheduler.budget(EntityMoveScheduler.MoveClass.PROJECTILES, config_budget_projectiles * 1000l);
+		move_event_scheduler.budget(EntityMoveScheduler.MoveClass.ITEMS, config_budget_items * 1000l);
+		move_event_scheduler.max_age(config_max_queue_age * 1000000l);
+
+		// The interval may have changed
+		if (task != null) {
+			schedule_statistics();
 		}
 	}
 
@@ -141,10 +333,16 @@ public class EntityMoveProcessor extends ModuleComponent<Portals> {
 		// This is uses a scheduling algorithm (see function implementation) to
 		// keep it lightweight and to prevent lags.
 		task = schedule_task_timer(this::process_entity_movements, 1l, 1l);
+		schedule_statistics();
 	}
 
 	@Override
 	protected void on_disable() {
 		task.cancel();
+		task = null;
+		if (statistics_task != null) {
+			statistics_task.cancel();
+			statistics_task = null;
+		}
 	}
 }
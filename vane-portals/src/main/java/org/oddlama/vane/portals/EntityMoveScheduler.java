@@ -0,0 +1,216 @@
+package org.oddlama.vane.portals;
+
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Projectile;
+
+// Schedules the dispatching of queued entity movements. Movements are partitioned into
+// one FIFO queue per entity class, so a player walking into a portal never has to wait
+// behind thousands of moving items. Each tick is processed in three phases:
+//
+// 1. Class budgets: Each class in priority order is dispatched until its own budget is used.
+//    A class always dispatches at least one entry, even with a budget of zero, unless
+//    the total budget is already exhausted.
+// 2. Leftover: Any remaining time of the total budget is given to the oldest remaining
+//    entries across all classes, so no time is wasted if some classes are idle.
+// 3. Aging: Each class that didn't dispatch anything in this tick but has an entry that
+//    waited longer than the maximum age dispatches that entry, even if the total budget
+//    is already exhausted. This way, no class can starve.
+//
+// For each class, the queue depth and the latency between queueing and
+// dispatching are tracked, so operators can tell whether budgets need tuning.
+public class EntityMoveScheduler {
+	// Ordered by priority
+	public static enum MoveClass {
+		PLAYERS,
+		LIVING_ENTITIES,
+		PROJECTILES,
+		// Items and all other entities
+		ITEMS;
+
+		public static MoveClass of(final Entity entity) {
+			if (entity instanceof Player) {
+				return PLAYERS;
+			} else if (entity instanceof LivingEntity) {
+				return LIVING_ENTITIES;
+			} else if (entity instanceof Projectile) {
+				return PROJECTILES;
+			}
+			return ITEMS;
+		}
+	}
+
+	private static final MoveClass[] CLASSES = MoveClass.values();
+
+	// Weight of new samples in the exponential moving average of the dispatch latency
+	private static final double LATENCY_SMOOTHING = 1.0 / 16.0;
+
+	private final ClassQueue[] queues = new ClassQueue[CLASSES.length];
+	private final long total_budget_nanoseconds;
+	private long max_age_nanoseconds;
+
+	public EntityMoveScheduler(long total_budget_nanoseconds, long max_age_nanoseconds) {
+		for (int i = 0; i < queues.length; ++i) {
+			queues[i] = new ClassQueue();
+		}
+		this.total_budget_nanoseconds = total_budget_nanoseconds;
+		this.max_age_nanoseconds = max_age_nanoseconds;
+	}
+
+	public void budget(final MoveClass move_class, long nanoseconds) {
+		queues[move_class.ordinal()].budget_nanoseconds = nanoseconds;
+	}
+
+	public void max_age(long nanoseconds) {
+		max_age_nanoseconds = nanoseconds;
+	}
+
+	public boolean contains(final Entity entity) {
+		return queues[MoveClass.of(entity).ordinal()].entries.containsKey(entity.getUniqueId());
+	}
+
+	// Queues the movement of the given entity, unless the entity is already queued.
+	// In that case we keep the older location and simply lose the intermediate position.
+	public void offer(final Entity entity, final Location from, long now) {
+		queues[MoveClass.of(entity).ordinal()].entries.putIfAbsent(entity.getUniqueId(), new QueuedMove(entity, from, now));
+	}
+
+	// Removes the entity from its queue, and returns the location it was queued with, if any.
+	public Location remove(final Entity entity) {
+		final var queued = queues[MoveClass.of(entity).ordinal()].entries.remove(entity.getUniqueId());
+		return queued == null ? null : queued.from;
+	}
+
+	public void clear() {
+		for (final var queue : queues) {
+			queue.entries.clear();
+		}
+	}
+
+	// Amount of movements currently waiting in the queue of the given class
+	public int queue_depth(final MoveClass move_class) {
+		return queues[move_class.ordinal()].entries.size();
+	}
+
+	// Smoothed time between queueing and dispatching a movement of the given class
+	public double average_latency_milliseconds(final MoveClass move_class) {
+		return queues[move_class.ordinal()].average_latency_nanoseconds / 1000000.0;
+	}
+
+	// Highest time between queueing and dispatching a movement of the given class
+	// since the last call to this function.
+	public double take_max_latency_milliseconds(final MoveClass move_class) {
+		final var queue = queues[move_class.ordinal()];
+		final var max = queue.max_latency_nanoseconds;
+		queue.max_latency_nanoseconds = 0;
+		return max / 1000000.0;
+	}
+
+	// Total amount of dispatched movements of the given class
+	public long dispatched(final MoveClass move_class) {
+		return queues[move_class.ordinal()].dispatched;
+	}
+
+	// Dispatches queued movements to the given handler (entity, old location) according to the budgets.
+	public void dispatch(final BiConsumer<Entity, Location> handler) {
+		final var time_begin = System.nanoTime();
+		final var dispatched_before = new long[queues.length];
+		for (int i = 0; i < queues.length; ++i) {
+			dispatched_before[i] = queues[i].dispatched;
+		}
+
+		// Phase 1 - Class budgets
+		for (int i = 0; i < queues.length; ++i) {
+			final var queue = queues[i];
+			final var class_begin = System.nanoTime();
+			while (!queue.entries.isEmpty()) {
+				final var now = System.nanoTime();
+				if (now - time_begin >= total_budget_nanoseconds) {
+					break;
+				}
+				if (now - class_begin >= queue.budget_nanoseconds && queue.dispatched != dispatched_before[i]) {
+					break;
+				}
+				queue.dispatch_head(handler, now);
+			}
+		}
+
+		// Phase 2 - Leftover budget, oldest entries first
+		while (true) {
+			final var now = System.nanoTime();
+			if (now - time_begin >= total_budget_nanoseconds) {
+				break;
+			}
+
+			ClassQueue oldest = null;
+			for (final var queue : queues) {
+				if (!queue.entries.isEmpty() && (oldest == null || queue.head().queued_at < oldest.head().queued_at)) {
+					oldest = queue;
+				}
+			}
+			if (oldest == null) {
+				break;
+			}
+			oldest.dispatch_head(handler, now);
+		}
+
+		// Phase 3 - Aging
+		for (int i = 0; i < queues.length; ++i) {
+			final var queue = queues[i];
+			if (queue.dispatched != dispatched_before[i] || queue.entries.isEmpty()) {
+				continue;
+			}
+
+			final var now = System.nanoTime();
+			if (now - queue.head().queued_at > max_age_nanoseconds) {
+				queue.dispatch_head(handler, now);
+			}
+		}
+	}
+
+	private static class QueuedMove {
+		private final Entity entity;
+		private final Location from;
+		private final long queued_at;
+
+		private QueuedMove(final Entity entity, final Location from, long queued_at) {
+			this.entity = entity;
+			this.from = from;
+			this.queued_at = queued_at;
+		}
+	}
+
+	private static class ClassQueue {
+		// entity_id -> queued movement. A linked hash map retains insertion order,
+		// so the head is always the oldest entry.
+		private final LinkedHashMap<UUID, QueuedMove> entries = new LinkedHashMap<>();
+		private long budget_nanoseconds = 0;
+
+		private double average_latency_nanoseconds = 0.0;
+		private long max_latency_nanoseconds = 0;
+		private long dispatched = 0;
+
+		private QueuedMove head() {
+			return entries.values().iterator().next();
+		}
+
+		private void dispatch_head(final BiConsumer<Entity, Location> handler, long now) {
+			final var iter = entries.values().iterator();
+			final var move = iter.next();
+			iter.remove();
+
+			final var latency = now - move.queued_at;
+			average_latency_nanoseconds += (latency - average_latency_nanoseconds) * LATENCY_SMOOTHING;
+			max_latency_nanoseconds = Math.max(max_latency_nanoseconds, latency);
+			++dispatched;
+
+			handler.accept(move.entity, move.from);
+		}
+	}
+}
@@ -0,0 +1,388 @@
+package org.oddlama.vane.portals;
+
+import static org.oddlama.vane.util.Conversions.ms_to_ticks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.oddlama.vane.portals.portal.Portal;
+import org.oddlama.vane.portals.portal.PortalBlockIndex;
+
+// Keeps the chunks of activated portals loaded by holding plugin chunk tickets.
+// The chunk set of each portal (all chunks with portal blocks, and the chunks in the
+// preload radius around its spawn) is computed from the stored block positions when the
+// portal is indexed, so (dis-)connecting portals never has to resolve blocks.
+// Tickets are reference counted per world and chunk, as the chunks of multiple
+// activated portals may overlap. Chunks are loaded asynchronously before the
+// ticket is added, so activating a portal never blocks the main thread. A portal
+// is ready once all of its chunks are loaded and held.
+//
+// When a portal is released, its tickets may be kept for a while in a small warm
+// cache, so frequently used destinations don't need to be loaded again each time.
+// If the cache is full, the least frequently activated portal is evicted.
+public class PortalChunkTickets {
+	private final Plugin plugin;
+
+	private int preload_radius = 1;
+	private long warm_duration_ms = 0;
+	private int warm_capacity = 0;
+
+	// portal_id → world_id → chunk keys
+	private final Map<UUID, Map<UUID, long[]>> portal_chunks = new HashMap<>();
+	// portal_id → amount of holds on the chunks of this portal
+	private final Map<UUID, Integer> portal_holds = new HashMap<>();
+	// portal_id → amount of times this portal was acquired
+	private final Map<UUID, Integer> activations = new HashMap<>();
+	// world_id → chunk key → ticket reference count
+	private final Map<UUID, Map<Long, Integer>> ticket_counts = new HashMap<>();
+	// world_id → chunk keys which are loaded and hold a ticket, or which failed to load
+	private final Map<UUID, Set<Long>> loaded_chunks = new HashMap<>();
+	// portal_id → callbacks to run once the portal is ready
+	private final Map<UUID, List<Runnable>> ready_callbacks = new HashMap<>();
+	// portal_id → time at which the warm hold of this portal expires, in insertion order
+	private final LinkedHashMap<UUID, Long> warm = new LinkedHashMap<>();
+
+	public PortalChunkTickets(final Plugin plugin) {
+		this.plugin = plugin;
+	}
+
+	// Sets the radius in chunks around the spawn of a portal which is loaded on activation.
+	// Changes only apply to portals updated afterwards. Returns whether the radius changed.
+	public boolean preload_radius(int radius) {
+		if (preload_radius == radius) {
+			return false;
+		}
+		preload_radius = radius;
+		return true;
+	}
+
+	// Sets how long and for how many portals tickets are kept after a portal was released.
+	public void warm_cache(long duration_ms, int capacity) {
+		warm_duration_ms = duration_ms;
+		warm_capacity = capacity;
+		while (warm.size() > Math.max(0, capacity) || (!warm.isEmpty() && duration_ms <= 0)) {
+			evict_warm(warm.keySet().iterator().next());
+		}
+	}
+
+	// (Re-)computes the chunk set of the given portal. Must be called whenever
+	// a portal is indexed or its blocks change. If the portal is currently
+	// held, tickets are moved to the new chunk set.
+	public void update(final Portal portal) {
+		final var chunks_by_world = new HashMap<UUID, HashSet<Long>>();
+		for (final var portal_block : portal.blocks()) {
+			final var block = portal_block.lazy_block();
+			chunks_by_world
+				.computeIfAbsent(block.world_id(), k -> new HashSet<>())
+				.add(PortalBlockIndex.chunk_key(block.x() >> 4, block.z() >> 4));
+		}
+
+		// Also load the surroundings of the spawn, which entities will move through after teleporting
+		final var spawn = portal.spawn();
+		final var spawn_chunks = chunks_by_world.computeIfAbsent(portal.spawn_world(), k -> new HashSet<>());
+		final var spawn_cx = spawn.getBlockX() >> 4;
+		final var spawn_cz = spawn.getBlockZ() >> 4;
+		for (int dx = -preload_radius; dx <= preload_radius; ++dx) {
+			for (int dz = -preload_radius; dz <= preload_radius; ++dz) {
+				spawn_chunks.add(PortalBlockIndex.chunk_key(spawn_cx + dx, spawn_cz + dz));
+			}
+		}
+
+		final var chunks = new HashMap<UUID, long[]>();
+		for (final var entry : chunks_by_world.entrySet()) {
+			chunks.put(entry.getKey(), entry.getValue().stream().mapToLong(Long::longValue).toArray());
+		}
+		final var old_chunks = portal_chunks.put(portal.id(), chunks);
+
+		// Only move the tickets of chunks that actually changed, so the
+		// portal stays ready if its chunk set didn't change.
+		final var holds = portal_holds.getOrDefault(portal.id(), 0);
+		if (holds > 0) {
+			final var added = old_chunks == null ? chunks : difference(chunks, old_chunks);
+			final var removed = old_chunks == null ? Map.<UUID, long[]>of() : difference(old_chunks, chunks);
+			for (int i = 0; i < holds; ++i) {
+				acquire_chunks(added);
+				release_chunks(removed);
+			}
+			run_ready_callbacks();
+		}
+	}
+
+	// Returns the chunks of a that are not in b, per world.
+	private static Map<UUID, long[]> difference(final Map<UUID, long[]> a, final Map<UUID, long[]> b) {
+		final var result = new HashMap<UUID, long[]>();
+		for (final var entry : a.entrySet()) {
+			final var excluded = new HashSet<Long>();
+			final var other = b.get(entry.getKey());
+			if (other != null) {
+				for (final var chunk_key : other) {
+					excluded.add(chunk_key);
+				}
+			}
+
+			final var remaining = Arrays.stream(entry.getValue()).filter(k -> !excluded.contains(k)).toArray();
+			if (remaining.length > 0) {
+				result.put(entry.getKey(), remaining);
+			}
+		}
+		return result;
+	}
+
+	// Forgets the given portal, and releases all tickets it still holds.
+	public void remove(final Portal portal) {
+		final var holds = portal_holds.getOrDefault(portal.id(), 0);
+		for (int i = 0; i < holds; ++i) {
+			release_chunks(portal_chunks.get(portal.id()));
+		}
+		portal_holds.remove(portal.id());
+		portal_chunks.remove(portal.id());
+		activations.remove(portal.id());
+		ready_callbacks.remove(portal.id());
+		warm.remove(portal.id());
+	}
+
+	// Keeps the chunks of all given portals loaded until they are released again.
+	public void acquire(final Portal... portals) {
+		for (final var portal : portals) {
+			activations.merge(portal.id(), 1, Integer::sum);
+
+			// A warm hold is simply taken over
+			if (warm.remove(portal.id()) != null) {
+				continue;
+			}
+
+			var chunks = portal_chunks.get(portal.id());
+			if (chunks == null) {
+				update(portal);
+				chunks = portal_chunks.get(portal.id());
+			}
+			portal_holds.merge(portal.id(), 1, Integer::sum);
+			acquire_chunks(chunks);
+		}
+	}
+
+	// Releases one hold on the chunks of all given portals.
+	public void release(final Portal... portals) {
+		for (final var portal : portals) {
+			final var holds = portal_holds.get(portal.id());
+			if (holds == null) {
+				continue;
+			}
+
+			// Keep the last hold of a portal warm if possible
+			if (holds == 1 && warm_duration_ms > 0 && warm_capacity > 0) {
+				keep_warm(portal.id());
+				continue;
+			}
+
+			release_hold(portal.id());
+		}
+	}
+
+	private void release_hold(final UUID portal_id) {
+		final var holds = portal_holds.get(portal_id);
+		if (holds > 1) {
+			portal_holds.put(portal_id, holds - 1);
+		} else {
+			portal_holds.remove(portal_id);
+			ready_callbacks.remove(portal_id);
+		}
+		release_chunks(portal_chunks.get(portal_id));
+	}
+
+	private void keep_warm(final UUID portal_id) {
+		ready_callbacks.remove(portal_id);
+		final var expires_at = System.currentTimeMillis() + warm_duration_ms;
+		warm.put(portal_id, expires_at);
+		Bukkit.getScheduler().runTaskLater(plugin, () -> {
+			// Only expire if the portal wasn't reactivated in the meantime
+			final var current = warm.get(portal_id);
+			if (current != null && current == expires_at) {
+				evict_warm(portal_id);
+			}
+		}, ms_to_ticks(warm_duration_ms));
+
+		if (warm.size() > warm_capacity) {
+			// Evict the least frequently activated portal, the oldest one on ties
+			UUID evict = null;
+			for (final var id : warm.keySet()) {
+				if (evict == null || activations.getOrDefault(id, 0) < activations.getOrDefault(evict, 0)) {
+					evict = id;
+				}
+			}
+			evict_warm(evict);
+		}
+	}
+
+	private void evict_warm(final UUID portal_id) {
+		warm.remove(portal_id);
+		release_hold(portal_id);
+	}
+
+	// Removes all tickets of this plugin and resets all reference counts.
+	public void release_all() {
+		for (final var world_id : ticket_counts.keySet()) {
+			final var world = Bukkit.getWorld(world_id);
+			if (world != null) {
+				world.removePluginChunkTickets(plugin);
+			}
+		}
+		ticket_counts.clear();
+		loaded_chunks.clear();
+		portal_holds.clear();
+		ready_callbacks.clear();
+		warm.clear();
+	}
+
+	// Whether all chunks of the given portal are loaded and held.
+	public boolean is_ready(final Portal portal) {
+		final var chunks = portal_chunks.get(portal.id());
+		return chunks != null && portal_holds.containsKey(portal.id()) && all_loaded(chunks);
+	}
+
+	// Runs the given callback once the given portal is ready, which may be immediately.
+	// The callback is dropped if the portal is released before it becomes ready.
+	public void when_ready(final Portal portal, final Runnable callback) {
+		if (is_ready(portal)) {
+			callback.run();
+		} else if (portal_holds.containsKey(portal.id())) {
+			ready_callbacks.computeIfAbsent(portal.id(), k -> new ArrayList<>()).add(callback);
+		}
+	}
+
+	private void run_ready_callbacks() {
+		if (ready_callbacks.isEmpty()) {
+			return;
+		}
+
+		final var ready = new ArrayList<List<Runnable>>();
+		final var iter = ready_callbacks.entrySet().iterator();
+		while (iter.hasNext()) {
+			final var entry = iter.next();
+			final var chunks = portal_chunks.get(entry.getKey());
+			if (chunks != null && all_loaded(chunks)) {
+				ready.add(entry.getValue());
+				iter.remove();
+			}
+		}
+
+		// Run callbacks only after iterating, as they may acquire or release portals
+		ready.forEach(callbacks -> callbacks.forEach(Runnable::run));
+	}
+
+	private boolean all_loaded(final Map<UUID, long[]> chunks) {
+		for (final var entry : chunks.entrySet()) {
+			final var loaded = loaded_chunks.get(entry.getKey());
+			for (final var chunk_key : entry.getValue()) {
+				if (loaded == null || !loaded.contains(chunk_key)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	// Amount of chunks currently held by a ticket in all worlds
+	public int held_tickets() {
+		var total = 0;
+		for (final var counts : ticket_counts.values()) {
+			total += counts.size();
+		}
+		return total;
+	}
+
+	// Amount of portals whose chunks are currently held, including warm portals
+	public int held_portals() {
+		return portal_holds.size();
+	}
+
+	// Amount of portals whose chunks are only held by the warm cache
+	public int warm_portals() {
+		return warm.size();
+	}
+
+	private void acquire_chunks(final Map<UUID, long[]> chunks) {
+		for (final var entry : chunks.entrySet()) {
+			final var world_id = entry.getKey();
+			final var counts = ticket_counts.computeIfAbsent(world_id, k -> new HashMap<>());
+			final var world = Bukkit.getWorld(world_id);
+			for (final var chunk_key : entry.getValue()) {
+				if (counts.merge(chunk_key, 1, Integer::sum) == 1 && world != null) {
+					add_ticket(world, counts, chunk_key);
+				}
+			}
+		}
+	}
+
+	private void release_chunks(final Map<UUID, long[]> chunks) {
+		for (final var entry : chunks.entrySet()) {
+			final var world_id = entry.getKey();
+			final var counts = ticket_counts.get(world_id);
+			if (counts == null) {
+				continue;
+			}
+
+			final var world = Bukkit.getWorld(world_id);
+			final var loaded = loaded_chunks.get(world_id);
+			for (final var chunk_key : entry.getValue()) {
+				final var count = counts.get(chunk_key);
+				if (count == null) {
+					continue;
+				}
+				if (count > 1) {
+					counts.put(chunk_key, count - 1);
+					continue;
+				}
+
+				counts.remove(chunk_key);
+				if (loaded != null) {
+					loaded.remove(chunk_key);
+				}
+				if (world != null) {
+					// Removing a ticket never loads the chunk
+					world.removePluginChunkTicket((int)chunk_key, (int)(chunk_key >> 32), plugin);
+				}
+			}
+
+			if (counts.isEmpty()) {
+				ticket_counts.remove(world_id);
+				loaded_chunks.remove(world_id);
+			}
+		}
+	}
+
+	private void add_ticket(final World world, final Map<Long, Integer> counts, long chunk_key) {
+		final int cx = (int)chunk_key;
+		final int cz = (int)(chunk_key >> 32);
+		world.getChunkAtAsync(cx, cz).whenComplete((chunk, error) -> {
+			// The chunk may have been released while it was loading. Adding the ticket
+			// twice is harmless, as tickets of a plugin are unique per chunk.
+			final var world_id = world.getUID();
+			if (ticket_counts.get(world_id) != counts || !counts.containsKey(chunk_key)) {
+				return;
+			}
+
+			if (error != null || chunk == null) {
+				// Don't keep the portal from becoming ready forever. The chunk
+				// will simply be loaded synchronously when it is accessed.
+				plugin.getLogger().log(Level.WARNING, "Could not load chunk (" + cx + ", " + cz + ") in world "
+					+ world.getName() + " for a portal, it will not be kept loaded", error);
+			} else {
+				chunk.addPluginChunkTicket(plugin);
+			}
+			loaded_chunks.computeIfAbsent(world_id, k -> new HashSet<>()).add(chunk_key);
+			run_ready_callbacks();
+		});
+	}
+}
@@ -30,6 +30,11 @@ public class PortalTeleporter extends Listener<Portals> {
 		super(context);
 	}
 
+	// Whether the entity was teleported recently and hasn't moved away from the target portal yet.
+	public boolean is_portalling(final UUID entity_id) {
+		return entities_portalling.containsKey(entity_id);
+	}
+
 	private boolean cancel_portal_event(final Entity entity) {
 		if (entities_portalling.containsKey(entity.getUniqueId())) {
 			return true;
@@ -157,18 +162,24 @@ public class PortalTeleporter extends Listener<Portals> {
 		final var block = event.getTo().getBlock();
 
 		if (!entities_portalling.containsKey(entity_id)) {
-			// Check if we walked into a portal
-			if (!get_module().portal_area_materials.contains(block.getType())) {
-				return;
-			}
-
-			final var portal = get_module().portal_for(block);
+			// Check if we walked into a portal. Fast entities might have already
+			// passed the portal area, in which case the crossed portal is given.
+			var portal = event.getCrossedPortal();
 			if (portal == null) {
-				return;
+				if (!get_module().portal_area_materials.contains(block.getType())) {
+					return;
+				}
+
+				portal = get_module().portal_for(block);
+				if (portal == null) {
+					return;
+				}
 			}
 
+			// Don't teleport until the chunks of the target are loaded,
+			// which would otherwise happen synchronously.
 			final var target = get_module().connected_portal(portal);
-			if (target == null) {
+			if (target == null || !get_module().is_ready(target)) {
 				return;
 			}
 
@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -19,8 +20,6 @@ import java.util.UUID;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
-import com.google.common.collect.Sets;
-
 import org.apache.commons.lang.StringUtils;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
@@ -49,6 +48,7 @@ import org.json.JSONObject;
 import org.oddlama.vane.annotation.VaneModule;
 import org.oddlama.vane.annotation.config.ConfigDouble;
 import org.oddlama.vane.annotation.config.ConfigExtendedMaterial;
+import org.oddlama.vane.annotation.config.ConfigInt;
 import org.oddlama.vane.annotation.config.ConfigLong;
 import org.oddlama.vane.annotation.config.ConfigMaterialMapEntry;
 import org.oddlama.vane.annotation.config.ConfigMaterialMapMapEntry;
@@ -61,6 +61,8 @@ import org.oddlama.vane.core.functional.Function2;
 import org.oddlama.vane.core.lang.TranslatedMessage;
 import org.oddlama.vane.core.material.ExtendedMaterial;
 import org.oddlama.vane.core.module.Module;
+import org.oddlama.vane.core.persistent.BinaryCodec;
+import org.oddlama.vane.core.persistent.PersistentJournal;
 import org.oddlama.vane.core.persistent.PersistentSerializer;
 import org.oddlama.vane.portals.entity.FloatingItem;
 import org.oddlama.vane.portals.menu.PortalMenuGroup;
@@ -68,7 +70,10 @@ import org.oddlama.vane.portals.menu.PortalMenuTag;
 import org.oddlama.vane.portals.portal.Orientation;
 import org.oddlama.vane.portals.portal.Portal;
 import org.oddlama.vane.portals.portal.PortalBlock;
+import org.oddlama.vane.portals.portal.PortalBlockIndex;
 import org.oddlama.vane.portals.portal.PortalBlockLookup;
+import org.oddlama.vane.portals.portal.PortalPlaneIndex;
+import org.oddlama.vane.portals.portal.PortalTargetIndex;
 import org.oddlama.vane.portals.portal.Style;
 
 import net.kyori.adventure.text.Component;
@@ -174,6 +179,38 @@ public class Portals extends Module<Portals> {
 	)
 	public long config_deactivation_delay;
 
+	@ConfigInt(
+		def = 1,
+		min = 0,
+		max = 4,
+		desc = "Radius in chunks around the spawn of a portal which is loaded asynchronously when the portal is activated. A portal only becomes usable after these chunks are loaded."
+	)
+	public int config_preload_radius;
+
+	@ConfigLong(
+		def = 60000,
+		min = 0,
+		max = 3600000,
+		desc = "Time in milliseconds for which the chunks of a portal are kept loaded after it was deactivated, so frequently used portals can be activated again without waiting for chunks to load. 0 to disable."
+	)
+	public long config_warm_chunk_duration;
+
+	@ConfigInt(
+		def = 8,
+		min = 0,
+		max = 256,
+		desc = "Maximum amount of deactivated portals whose chunks are kept loaded. The least frequently activated portals are evicted first. 0 to disable."
+	)
+	public int config_warm_chunk_portals;
+
+	@ConfigInt(
+		def = 0,
+		min = 0,
+		max = 3600,
+		desc = "Interval in seconds in which the amount of chunks kept loaded for portals and the amount of portals holding them is logged, which helps to plan the preload radius and warm cache size. 0 to disable."
+	)
+	public int config_chunk_statistics_interval;
+
 	@ConfigExtendedMaterial(
 		def = "vane:decoration_end_portal_orb",
 		desc = "The default portal icon. Also accepts heads from the head library."
@@ -225,9 +262,19 @@ public class Portals extends Module<Portals> {
 	@Persistent
 	private Map<UUID, Portal> storage_portals = new HashMap<>();
 	private Map<UUID, Portal> portals = new HashMap<>();
-
-	// Index for all portal blocks (world_id → chunk key → block key → portal block)
-	private Map<UUID, Map<Long, Map<Long, PortalBlockLookup>>> portal_blocks_in_chunk_in_world = new HashMap<>();
+	// Tracks which portals need to be written to or removed from the world storage
+	private final PersistentJournal persistent_journal = new PersistentJournal();
+
+	// Index for all portal blocks (world_id → packed block position → portal block)
+	private final PortalBlockIndex portal_block_index = new PortalBlockIndex();
+	// Chunks around activated portals (world_id → chunk keys). Derived from the portal block index,
+	// and lazily recomputed after portals are (dis-)connected or portal blocks change.
+	private Map<UUID, long[]> activated_portal_chunks = null;
+	private int activated_portal_chunks_radius = -1;
+	// Portals bucketed by world and visibility for target selection
+	private final PortalTargetIndex portal_target_index = new PortalTargetIndex();
+	// Area planes of activated portals, lazily rebuilt under the same conditions as activated_portal_chunks.
+	private PortalPlaneIndex activated_portal_planes = null;
 
 	// All loaded styles
 	public Map<NamespacedKey, Style> styles = new HashMap<>();
@@ -238,13 +285,17 @@ public class Portals extends Module<Portals> {
 	private final Map<Block, FloatingItem> console_floating_items = new HashMap<>();
 	// Connected portals (always stores both directions!)
 	private final Map<UUID, UUID> connected_portals = new HashMap<>();
-	// Unloading ticket counter per chunk
-	private final Map<Long, Integer> chunk_ticket_count = new HashMap<>();
+	// Chunk tickets that keep the chunks of activated portals loaded
+	private final PortalChunkTickets chunk_tickets = new PortalChunkTickets(this);
 	// Disable tasks for portals
 	private final Map<UUID, BukkitTask> disable_tasks = new HashMap<>();
+	private BukkitTask chunk_statistics_task = null;
 
 	public PortalMenuGroup menus;
 	public PortalConstructor constructor;
+	public PortalTeleporter teleporter;
+	public EntityMoveProcessor entity_move_processor;
+	public VirtualConsoleItems virtual_console_items;
 	public PortalDynmapLayer dynmap_layer;
 	public PortalBlueMapLayer blue_map_layer;
 
@@ -255,8 +306,9 @@ public class Portals extends Module<Portals> {
 		new PortalActivator(this);
 		new PortalBlockProtector(this);
 		constructor = new PortalConstructor(this);
-		new PortalTeleporter(this);
-		new EntityMoveProcessor(this);
+		teleporter = new PortalTeleporter(this);
+		virtual_console_items = new VirtualConsoleItems(this);
+		entity_move_processor = new EntityMoveProcessor(this);
 		dynmap_layer = new PortalDynmapLayer(this);
 		blue_map_layer = new PortalBlueMapLayer(this);
 
@@ -288,19 +340,6 @@ public class Portals extends Module<Portals> {
 		);
 	}
 
-	private static long block_key(final Block block) {
-		return (block.getY() << 8)
-			| ((block.getX() & 0xF) << 4)
-			| ((block.getZ() & 0xF));
-	}
-
-	private static Block unpack_block_key(final Chunk chunk, long block_key) {
-		int y = (int)(block_key >> 8);
-		int x = (int)((block_key >> 4) & 0xF);
-		int z = (int)(block_key & 0xF);
-		return chunk.getBlock(x, y, z);
-	}
-
 	@Override
 	public void on_config_change() {
 		styles.clear();
@@ -347,6 +386,33 @@ public class Portals extends Module<Portals> {
 		for (final var style : styles.values()) {
 			portal_area_materials.add(style.material(true, PortalBlock.Type.PORTAL));
 		}
+
+		chunk_tickets.warm_cache(config_warm_chunk_duration, config_warm_chunk_portals);
+		if (chunk_tickets.preload_radius(config_preload_radius)) {
+			for (final var portal : portals.values()) {
+				chunk_tickets.update(portal);
+			}
+		}
+
+		// The interval may have changed
+		if (chunk_statistics_task != null) {
+			schedule_chunk_statistics();
+		}
+	}
+
+	private void schedule_chunk_statistics() {
+		if (chunk_statistics_task != null) {
+			chunk_statistics_task.cancel();
+			chunk_statistics_task = null;
+		}
+		if (config_chunk_statistics_interval > 0) {
+			final var period = config_chunk_statistics_interval * 20l;
+			chunk_statistics_task = schedule_task_timer(() ->
+				log.info("Portal chunk tickets: " + chunk_tickets.held_tickets() + " chunks held by "
+					+ chunk_tickets.held_portals() + " portals (" + chunk_tickets.warm_portals() + " warm), "
+					+ connected_portals.size() + " portals activated"),
+				period, period);
+		}
 	}
 
 	// Lightweight callbacks to the regions module, if it is installed.
@@ -406,6 +472,10 @@ public class Portals extends Module<Portals> {
 			// Was already removed
 			return;
 		}
+		portal.journal(null);
+		persistent_journal.mark_removed(portal.spawn_world(), portal.id());
+		portal_target_index.remove(portal);
+		chunk_tickets.remove(portal);
 
 		// Remove portal blocks
 		portal.blocks().forEach(this::remove_portal_block);
@@ -419,7 +489,7 @@ public class Portals extends Module<Portals> {
 					.blocks()
 					.stream()
 					.filter(pb -> pb.type() == PortalBlock.Type.CONSOLE)
-					.filter(pb -> console_floating_items.containsKey(pb.block()))
+					.filter(pb -> has_console_item(pb.block()))
 					.forEach(pb -> update_console_item(other, pb.block()));
 			}
 		}
@@ -463,12 +533,35 @@ public class Portals extends Module<Portals> {
 
 	public void index_portal(final Portal portal) {
 		portals.put(portal.id(), portal);
+		portal.journal(persistent_journal);
+		if (portal.invalidated) {
+			portal.invalidate();
+		}
 		portal.blocks().forEach(b -> index_portal_block(portal, b));
+		portal_target_index.add(portal);
+		chunk_tickets.update(portal);
 
 		// Create map marker
 		update_marker(portal);
 	}
 
+	// Returns all portals the given player may select as target for the given portal,
+	// ordered by Portal.TargetSelectionComparator. The list is materialized lazily.
+	public List<Portal> target_candidates(final Player player, final Portal portal) {
+		final var location = player.getLocation();
+		return portal_target_index.targets(
+			location.getWorld().getUID(),
+			location.getX(),
+			location.getZ(),
+			player.getUniqueId(),
+			portal.id(),
+			p -> p.visibility() == Portal.Visibility.GROUP
+				? player_can_use_portals_in_region_group_of(player, p)
+				: is_in_same_region_group(portal, p),
+			world_id -> getServer().getWorld(world_id) != null
+		);
+	}
+
 	public Collection<Portal> all_available_portals() {
 		return portals.values().stream()
 			.filter(p -> p.spawn().isWorldLoaded())
@@ -495,18 +588,8 @@ public class Portals extends Module<Portals> {
 
 		// Remove from acceleration structure
 		final var block = portal_block.block();
-		final var portal_blocks_in_chunk = portal_blocks_in_chunk_in_world.get(block.getWorld().getUID());
-		if (portal_blocks_in_chunk == null) {
-			return;
-		}
-
-		final var chunk_key = block.getChunk().getChunkKey();
-		final var block_to_portal_block = portal_blocks_in_chunk.get(chunk_key);
-		if (block_to_portal_block == null) {
-			return;
-		}
-
-		block_to_portal_block.remove(block_key(block));
+		portal_block_index.remove(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+		invalidate_activated_portal_chunks();
 
 		// Spawn effect if not portal area
 		if (portal_block.type() != PortalBlock.Type.PORTAL) {
@@ -518,17 +601,20 @@ public class Portals extends Module<Portals> {
 	public void remove_portal_block(final Portal portal, final PortalBlock portal_block) {
 		// Remove from portal
 		portal.blocks().remove(portal_block);
+		portal.invalidate();
 
 		// Remove from acceleration structure
 		remove_portal_block(portal_block);
+		chunk_tickets.update(portal);
 	}
 
 	public void add_new_portal_block(final Portal portal, final PortalBlock portal_block) {
 		// Add to portal
 		portal.blocks().add(portal_block);
-		portal.invalidated = true;
+		portal.invalidate();
 
 		index_portal_block(portal, portal_block);
+		chunk_tickets.update(portal);
 
 		// Spawn effect if not portal area
 		if (portal_block.type() != PortalBlock.Type.PORTAL) {
@@ -540,28 +626,12 @@ public class Portals extends Module<Portals> {
 	public void index_portal_block(final Portal portal, final PortalBlock portal_block) {
 		// Add to acceleration structure
 		final var block = portal_block.block();
-		final var world_id = block.getWorld().getUID();
-		var portal_blocks_in_chunk = portal_blocks_in_chunk_in_world.computeIfAbsent(world_id, k -> new HashMap<>());
-
-		final var chunk_key = block.getChunk().getChunkKey();
-		var block_to_portal_block = portal_blocks_in_chunk.computeIfAbsent(chunk_key, k -> new HashMap<>());
-
-		block_to_portal_block.put(block_key(block), portal_block.lookup(portal.id()));
+		portal_block_index.put(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ(), portal.id(), portal_block.type());
+		invalidate_activated_portal_chunks();
 	}
 
 	public PortalBlockLookup portal_block_for(final Block block) {
-		final var portal_blocks_in_chunk = portal_blocks_in_chunk_in_world.get(block.getWorld().getUID());
-		if (portal_blocks_in_chunk == null) {
-			return null;
-		}
-
-		final var chunk_key = block.getChunk().getChunkKey();
-		final var block_to_portal_block = portal_blocks_in_chunk.get(chunk_key);
-		if (block_to_portal_block == null) {
-			return null;
-		}
-
-		return block_to_portal_block.get(block_key(block));
+		return portal_block_index.get(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
 	}
 
 	public Portal portal_for(@Nullable final UUID uuid) {
@@ -586,18 +656,7 @@ public class Portals extends Module<Portals> {
 	}
 
 	public boolean is_portal_block(final Block block) {
-		final var portal_blocks_in_chunk = portal_blocks_in_chunk_in_world.get(block.getWorld().getUID());
-		if (portal_blocks_in_chunk == null) {
-			return false;
-		}
-
-		final var chunk_key = block.getChunk().getChunkKey();
-		final var block_to_portal_block = portal_blocks_in_chunk.get(chunk_key);
-		if (block_to_portal_block == null) {
-			return false;
-		}
-
-		return block_to_portal_block.containsKey(block_key(block));
+		return portal_block_index.contains(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
 	}
 
 	public Portal controlled_portal(final Block block) {
@@ -617,59 +676,84 @@ public class Portals extends Module<Portals> {
 		return null;
 	}
 
-	public Set<Chunk> chunks_for(final Portal portal) {
-		if (portal == null) {
-			return new HashSet<Chunk>();
-		}
+	private void invalidate_activated_portal_chunks() {
+		activated_portal_chunks = null;
+		activated_portal_planes = null;
+	}
 
-		final var set = new HashSet<Chunk>();
-		for (final var pb : portal.blocks()) {
-			set.add(pb.block().getChunk());
+	// Returns an index of the portal area planes of all activated portals,
+	// which is used to detect entities crossing a portal between two positions.
+	public PortalPlaneIndex activated_portal_planes() {
+		if (activated_portal_planes != null) {
+			return activated_portal_planes;
 		}
-		return set;
-	}
 
-	public void load_portal_chunks(final Portal portal) {
-		// Load chunks and adds a ticket so they get loaded and are kept loaded
-		for (final var chunk : chunks_for(portal)) {
-			final var chunk_key = chunk.getChunkKey();
-			final var ticket_counter = chunk_ticket_count.get(chunk_key);
-			if (ticket_counter == null) {
-				chunk.addPluginChunkTicket(this);
-				chunk_ticket_count.put(chunk_key, 1);
-			} else {
-				chunk_ticket_count.put(chunk_key, ticket_counter + 1);
+		final var index = new PortalPlaneIndex();
+		for (final var portal_id : connected_portals.keySet()) {
+			final var portal = portal_for(portal_id);
+			if (portal != null) {
+				index.add(portal);
 			}
 		}
+
+		activated_portal_planes = index;
+		return index;
 	}
 
-	public void allow_unload_portal_chunks(final Portal portal) {
-		// Removes the ticket so chunks can be unloaded again
-		for (final var chunk : chunks_for(portal)) {
-			final var chunk_key = chunk.getChunkKey();
-			final var ticket_counter = chunk_ticket_count.get(chunk_key);
-
-			if (ticket_counter > 1) {
-				chunk_ticket_count.put(chunk_key, ticket_counter - 1);
-			} else if (ticket_counter == 1) {
-				chunk.removePluginChunkTicket(this);
-				chunk_ticket_count.remove(chunk_key);
+	// Returns the keys of all chunks that contain blocks of activated portals,
+	// extended by the given chunk radius, grouped by world. The result is cached
+	// until the set of activated portals or the portal block index changes,
+	// so it scales with the amount of portal blocks, not with world size.
+	public Map<UUID, long[]> activated_portal_chunks(int radius) {
+		if (activated_portal_chunks != null && activated_portal_chunks_radius == radius) {
+			return activated_portal_chunks;
+		}
+
+		final var result = new HashMap<UUID, long[]>();
+		if (!connected_portals.isEmpty()) {
+			for (final var world_id : portal_block_index.world_ids()) {
+				final var chunk_keys = new HashSet<Long>();
+				portal_block_index.for_each_chunk(world_id, chunk_key -> {
+					final var any_active = portal_block_index.any_in_chunk(world_id, chunk_key,
+						lookup -> connected_portals.containsKey(lookup.portal_id()));
+					if (!any_active) {
+						return;
+					}
+
+					// Chunk keys store x in the lower and z in the upper 32 bits
+					final int cx = (int)chunk_key;
+					final int cz = (int)(chunk_key >> 32);
+					for (int dx = -radius; dx <= radius; ++dx) {
+						for (int dz = -radius; dz <= radius; ++dz) {
+							chunk_keys.add(Chunk.getChunkKey(cx + dx, cz + dz));
+						}
+					}
+				});
+
+				if (!chunk_keys.isEmpty()) {
+					result.put(world_id, chunk_keys.stream().mapToLong(Long::longValue).toArray());
+				}
 			}
 		}
+
+		activated_portal_chunks = result;
+		activated_portal_chunks_radius = radius;
+		return result;
 	}
 
 	public void connect_portals(final Portal src, final Portal dst) {
-		// Load chunks
-		load_portal_chunks(src);
-		load_portal_chunks(dst);
+		// Load chunks asynchronously and keep them loaded
+		chunk_tickets.acquire(src, dst);
 
 		// Add to map
 		connected_portals.put(src.id(), dst.id());
 		connected_portals.put(dst.id(), src.id());
+		invalidate_activated_portal_chunks();
 
-		// Activate both
-		src.on_connect(this, dst);
-		dst.on_connect(this, src);
+		// Activate each portal as soon as its chunks are loaded. The source portal
+		// is usually loaded already, so it activates immediately.
+		chunk_tickets.when_ready(src, () -> src.on_connect(this, dst));
+		chunk_tickets.when_ready(dst, () -> dst.on_connect(this, src));
 
 		// Schedule automatic disable
 		start_disable_task(src, dst);
@@ -684,17 +768,25 @@ public class Portals extends Module<Portals> {
 			return;
 		}
 
+		// Portals that never became ready were never activated
+		final var src_ready = chunk_tickets.is_ready(src);
+		final var dst_ready = chunk_tickets.is_ready(dst);
+
 		// Allow unloading chunks again
-		allow_unload_portal_chunks(src);
-		allow_unload_portal_chunks(dst);
+		chunk_tickets.release(src, dst);
 
 		// Remove from map
 		connected_portals.remove(src.id());
 		connected_portals.remove(dst.id());
+		invalidate_activated_portal_chunks();
 
 		// Deactivate both
-		src.on_disconnect(this, dst);
-		dst.on_disconnect(this, src);
+		if (src_ready) {
+			src.on_disconnect(this, dst);
+		}
+		if (dst_ready) {
+			dst.on_disconnect(this, src);
+		}
 
 		// Reset target id's if the target portal was transient and
 		// the target isn't locked.
@@ -728,23 +820,30 @@ public class Portals extends Module<Portals> {
 		}
 	}
 
+	@Override
+	public void on_enable() {
+		schedule_chunk_statistics();
+	}
+
 	@Override
 	public void on_disable() {
+		if (chunk_statistics_task != null) {
+			chunk_statistics_task.cancel();
+			chunk_statistics_task = null;
+		}
+
 		// Disable all portals now
 		for (final var id : new ArrayList<>(connected_portals.keySet())) {
 			disconnect_portals(portal_for(id));
 		}
 
 		// Remove all console items, and all chunk tickets
-		chunk_ticket_count.clear();
 		for (final var world : getServer().getWorlds()) {
 			for (final var chunk : world.getLoadedChunks()) {
-				// Remove console item
 				for_each_console_block_in_chunk(chunk, (block, console) -> remove_console_item(block));
-				// Allow chunk unloading
-				chunk.removePluginChunkTicket(this);
 			}
 		}
+		chunk_tickets.release_all();
 
 		// Save data
 		update_persistent_data();
@@ -755,6 +854,11 @@ public class Portals extends Module<Portals> {
 		return connected_portals.containsKey(portal.id());
 	}
 
+	// Whether the portal is activated and all of its chunks are loaded
+	public boolean is_ready(final Portal portal) {
+		return is_activated(portal) && chunk_tickets.is_ready(portal);
+	}
+
 	public Portal connected_portal(final Portal portal) {
 		final var connected_id = connected_portals.get(portal.id());
 		if (connected_id == null) {
@@ -806,7 +910,9 @@ public class Portals extends Module<Portals> {
 		// Update map marker, as name could have changed
 		update_marker(portal);
 
-		for (final var active_console : console_floating_items.keySet()) {
+		final var active_consoles = new ArrayList<Block>(console_floating_items.keySet());
+		active_consoles.addAll(virtual_console_items.blocks());
+		for (final var active_console : active_consoles) {
 			final var portal_block = portal_block_for(active_console);
 			final var other = portal_for(portal_block);
 			if (Objects.equals(other.target_id(), portal.id())) {
@@ -839,12 +945,19 @@ public class Portals extends Module<Portals> {
 			default: // Nothing to do
 				break;
 		}
+		portal_target_index.update(portal);
 
 		// Update map marker
 		update_marker(portal);
 	}
 
 	public void update_console_item(final Portal portal, final Block block) {
+		final var active = is_activated(portal);
+		if (virtual_console_items.enabled()) {
+			virtual_console_items.update(block, make_console_item(portal, active));
+			return;
+		}
+
 		var console_item = console_floating_items.get(block);
 		final boolean is_new;
 		if (console_item == null) {
@@ -855,7 +968,6 @@ public class Portals extends Module<Portals> {
 			is_new = false;
 		}
 
-		final var active = is_activated(portal);
 		console_item.setItem(item_handle(make_console_item(portal, active)));
 
 		if (is_new) {
@@ -864,7 +976,12 @@ public class Portals extends Module<Portals> {
 		}
 	}
 
+	public boolean has_console_item(final Block block) {
+		return console_floating_items.containsKey(block) || virtual_console_items.contains(block);
+	}
+
 	public void remove_console_item(final Block block) {
+		virtual_console_items.remove(block);
 		final var console_item = console_floating_items.remove(block);
 		if (console_item != null) {
 			console_item.discard();
@@ -875,20 +992,9 @@ public class Portals extends Module<Portals> {
 		final Chunk chunk,
 		final Consumer2<Block, PortalBlockLookup> consumer
 	) {
-		final var portal_blocks_in_chunk = portal_blocks_in_chunk_in_world.get(chunk.getWorld().getUID());
-		if (portal_blocks_in_chunk == null) {
-			return;
-		}
-
-		final var chunk_key = chunk.getChunkKey();
-		final var block_to_portal_block = portal_blocks_in_chunk.get(chunk_key);
-		if (block_to_portal_block == null) {
-			return;
-		}
-
-		block_to_portal_block.forEach((k, v) -> {
-			if (v.type() == PortalBlock.Type.CONSOLE) {
-				consumer.apply(unpack_block_key(chunk, k), v);
+		portal_block_index.for_each_in_chunk(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ(), (x, y, z, lookup) -> {
+			if (lookup.type() == PortalBlock.Type.CONSOLE) {
+				consumer.apply(chunk.getBlock(x & 0xF, y, z & 0xF), lookup);
 			}
 		});
 	}
@@ -961,10 +1067,19 @@ public class Portals extends Module<Portals> {
 			.collect(Collectors.toSet());
 
 		for (final var portal_id : pdc_portals) {
-			final var json_bytes = data.get(NamespacedKey.fromString(storage_portal_prefix + portal_id.toString()),
+			final var bytes = data.get(NamespacedKey.fromString(storage_portal_prefix + portal_id.toString()),
 				PersistentDataType.BYTE_ARRAY);
 			try {
-				final var portal = PersistentSerializer.from_json(Portal.class, new JSONObject(new String(json_bytes)));
+				// Portals are stored in binary format, but older ones may still be stored as json.
+				final Portal portal;
+				if (BinaryCodec.is_binary(bytes)) {
+					portal = Portal.deserialize_binary(bytes);
+					portal.invalidated = false;
+				} else {
+					// Rewrite in binary format on next save
+					portal = PersistentSerializer.from_json(Portal.class, new JSONObject(new String(bytes)));
+					portal.invalidated = true;
+				}
 				index_portal(portal);
 			} catch (IOException e) {
 				log.log(Level.SEVERE, "error while serializing persistent data!", e);
@@ -986,7 +1101,7 @@ public class Portals extends Module<Portals> {
 			}
 
 			index_portal(portal);
-			portal.invalidated = true;
+			portal.invalidate();
 			converted += 1;
 		}
 
@@ -1016,34 +1131,30 @@ public class Portals extends Module<Portals> {
 	}
 
 	public void update_persistent_data(final World world) {
+		final var world_id = world.getUID();
+		if (persistent_journal.is_empty(world_id)) {
+			return;
+		}
+
 		final var data = world.getPersistentDataContainer();
 		final var storage_portal_prefix = STORAGE_PORTALS + ".";
 
 		// Update invalidated portals
-		portals.values().stream()
-			.filter(x -> x.invalidated && x.spawn_world().equals(world.getUID()))
-			.forEach(portal -> {
-				try {
-					final var json = PersistentSerializer.to_json(Portal.class, portal);
-					data.set(NamespacedKey.fromString(storage_portal_prefix + portal.id().toString()),
-						PersistentDataType.BYTE_ARRAY, json.toString().getBytes());
-				} catch (IOException e) {
-					log.log(Level.SEVERE, "error while serializing persistent data!", e);
-					return;
-				}
-
-				portal.invalidated = false;
-			});
+		for (final var portal_id : persistent_journal.take_changed(world_id)) {
+			final var portal = portals.get(portal_id);
+			if (portal == null || !portal.invalidated) {
+				continue;
+			}
 
-		// Get all currently stored portals.
-		final var stored_portals = data.getKeys().stream()
-			.filter(key -> key.toString().startsWith(storage_portal_prefix))
-			.map(key -> StringUtils.removeStart(key.toString(), storage_portal_prefix))
-			.map(uuid -> UUID.fromString(uuid))
-			.collect(Collectors.toSet());
+			data.set(NamespacedKey.fromString(storage_portal_prefix + portal_id.toString()),
+				PersistentDataType.BYTE_ARRAY, Portal.serialize_binary(portal));
+			portal.invalidated = false;
+		}
 
 		// Remove all portals that no longer exist
-		Sets.difference(stored_portals, portals.keySet()).forEach(id -> data.remove(NamespacedKey.fromString(storage_portal_prefix + id.toString())));
+		for (final var portal_id : persistent_journal.take_removed(world_id)) {
+			data.remove(NamespacedKey.fromString(storage_portal_prefix + portal_id.toString()));
+		}
 	}
 
 	private class PortalDisableRunnable implements Runnable {
@@ -0,0 +1,199 @@
+package org.oddlama.vane.portals;
+
+import java.util.UUID;
+
+// A position snapshot of a set of entities, stored as a struct of primitive arrays.
+// Entities are keyed by their UUID (as two longs) in an open addressing hash table
+// with linear probing. Once the table has grown to size, taking, clearing and
+// comparing snapshots does not allocate at all. Worlds are stored as small integer
+// slots that are assigned by the caller. The payload is usually the entity itself.
+public class UuidPositionSnapshot<T> {
+	private static final int INITIAL_CAPACITY = 256;
+
+	private boolean[] occupied;
+	private long[] uuid_msb;
+	private long[] uuid_lsb;
+	private Object[] payloads;
+	private int[] world;
+	private double[] x;
+	private double[] y;
+	private double[] z;
+	private float[] yaw;
+	private float[] pitch;
+
+	// Dense list of occupied slots in insertion order, used for iteration and clearing.
+	private int[] used_slots;
+	private int size = 0;
+
+	public UuidPositionSnapshot() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		occupied = new boolean[capacity];
+		uuid_msb = new long[capacity];
+		uuid_lsb = new long[capacity];
+		payloads = new Object[capacity];
+		world = new int[capacity];
+		x = new double[capacity];
+		y = new double[capacity];
+		z = new double[capacity];
+		yaw = new float[capacity];
+		pitch = new float[capacity];
+		used_slots = new int[capacity];
+		size = 0;
+	}
+
+	private static int hash(long msb, long lsb) {
+		var h = msb ^ lsb;
+		h ^= h >>> 32;
+		return (int)((h * 0x9E3779B97F4A7C15l) >>> 32);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; ++i) {
+			final var slot = used_slots[i];
+			occupied[slot] = false;
+			payloads[slot] = null;
+		}
+		size = 0;
+	}
+
+	public void put(final UUID id, final T payload, int world_slot, double px, double py, double pz, float pyaw, float ppitch) {
+		put(id.getMostSignificantBits(), id.getLeastSignificantBits(), payload, world_slot, px, py, pz, pyaw, ppitch);
+	}
+
+	public void put(long msb, long lsb, final T payload, int world_slot, double px, double py, double pz, float pyaw, float ppitch) {
+		// Keep the load factor below 0.5
+		if ((size + 1) * 2 > occupied.length) {
+			grow();
+		}
+
+		final var mask = occupied.length - 1;
+		var slot = hash(msb, lsb) & mask;
+		while (occupied[slot] && (uuid_msb[slot] != msb || uuid_lsb[slot] != lsb)) {
+			slot = (slot + 1) & mask;
+		}
+
+		if (!occupied[slot]) {
+			occupied[slot] = true;
+			uuid_msb[slot] = msb;
+			uuid_lsb[slot] = lsb;
+			used_slots[size++] = slot;
+		}
+
+		payloads[slot] = payload;
+		world[slot] = world_slot;
+		x[slot] = px;
+		y[slot] = py;
+		z[slot] = pz;
+		yaw[slot] = pyaw;
+		pitch[slot] = ppitch;
+	}
+
+	private void grow() {
+		final var old_msb = uuid_msb;
+		final var old_lsb = uuid_lsb;
+		final var old_payloads = payloads;
+		final var old_world = world;
+		final var old_x = x;
+		final var old_y = y;
+		final var old_z = z;
+		final var old_yaw = yaw;
+		final var old_pitch = pitch;
+		final var old_used_slots = used_slots;
+		final var old_size = size;
+
+		allocate(occupied.length * 2);
+		final var mask = occupied.length - 1;
+		for (int i = 0; i < old_size; ++i) {
+			final var old_slot = old_used_slots[i];
+			var slot = hash(old_msb[old_slot], old_lsb[old_slot]) & mask;
+			while (occupied[slot]) {
+				slot = (slot + 1) & mask;
+			}
+
+			occupied[slot] = true;
+			uuid_msb[slot] = old_msb[old_slot];
+			uuid_lsb[slot] = old_lsb[old_slot];
+			payloads[slot] = old_payloads[old_slot];
+			world[slot] = old_world[old_slot];
+			x[slot] = old_x[old_slot];
+			y[slot] = old_y[old_slot];
+			z[slot] = old_z[old_slot];
+			yaw[slot] = old_yaw[old_slot];
+			pitch[slot] = old_pitch[old_slot];
+			used_slots[size++] = slot;
+		}
+	}
+
+	// Returns the slot of the given uuid, or -1 if it isn't contained.
+	public int slot_of(long msb, long lsb) {
+		final var mask = occupied.length - 1;
+		var slot = hash(msb, lsb) & mask;
+		while (occupied[slot]) {
+			if (uuid_msb[slot] == msb && uuid_lsb[slot] == lsb) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	// Returns the slot of the i-th inserted entity.
+	public int slot_at(int i) {
+		return used_slots[i];
+	}
+
+	public long uuid_msb(int slot) {
+		return uuid_msb[slot];
+	}
+
+	public long uuid_lsb(int slot) {
+		return uuid_lsb[slot];
+	}
+
+	@SuppressWarnings("unchecked")
+	public T payload(int slot) {
+		return (T) payloads[slot];
+	}
+
+	public int world(int slot) {
+		return world[slot];
+	}
+
+	public double x(int slot) {
+		return x[slot];
+	}
+
+	public double y(int slot) {
+		return y[slot];
+	}
+
+	public double z(int slot) {
+		return z[slot];
+	}
+
+	public float yaw(int slot) {
+		return yaw[slot];
+	}
+
+	public float pitch(int slot) {
+		return pitch[slot];
+	}
+
+	// Whether the entity in the given slot has moved compared to the
+	// given slot in the other snapshot. Different worlds are not a movement.
+	public boolean is_movement(int slot, final UuidPositionSnapshot<T> other, int other_slot) {
+		return world[slot] == other.world[other_slot] && (
+			   x[slot]     != other.x[other_slot]
+			|| y[slot]     != other.y[other_slot]
+			|| z[slot]     != other.z[other_slot]
+			|| pitch[slot] != other.pitch[other_slot]
+			|| yaw[slot]   != other.yaw[other_slot]);
+	}
+}
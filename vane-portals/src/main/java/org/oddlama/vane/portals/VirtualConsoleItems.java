@@ -0,0 +1,268 @@
+package org.oddlama.vane.portals;
+
+import static org.oddlama.vane.util.Nms.item_handle;
+
+import com.comphenix.protocol.events.PacketContainer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundAddEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+import org.oddlama.vane.annotation.config.ConfigInt;
+import org.oddlama.vane.core.Listener;
+import org.oddlama.vane.core.module.Context;
+import org.oddlama.vane.portals.entity.FloatingItem;
+import org.oddlama.vane.portals.portal.PortalBlockIndex;
+
+// Displays console items only as client-side entities. The floating item entities are
+// created but never added to the world, and are instead sent to each player as packets
+// once they come in range. This way, consoles add nothing to server entity ticking or to
+// entity scans, no matter how many portals are in an area.
+public class VirtualConsoleItems extends Listener<Portals> {
+
+	@ConfigInt(def = 64, min = 8, max = 256, desc = "Distance in blocks up to which players are sent the console items of portals.")
+	public int config_view_distance;
+
+	@ConfigInt(def = 10, min = 1, max = 100, desc = "Interval in ticks in which the visible console items of each player are updated.")
+	public int config_update_interval;
+
+	private static class VirtualItem {
+		private final Block block;
+		private final FloatingItem entity;
+		private final Set<UUID> viewers = new HashSet<>();
+
+		private VirtualItem(final Block block, final FloatingItem entity) {
+			this.block = block;
+			this.entity = entity;
+		}
+	}
+
+	private final Map<Block, VirtualItem> items = new HashMap<>();
+	// world_id → chunk key → items in that chunk
+	private final Map<UUID, Map<Long, List<VirtualItem>>> items_by_chunk = new HashMap<>();
+	// player_id → items currently shown to that player
+	private final Map<UUID, Set<VirtualItem>> visible = new HashMap<>();
+	private BukkitTask task = null;
+
+	public VirtualConsoleItems(Context<Portals> context) {
+		super(
+			context.group_default_disabled(
+				"virtual_console_items",
+				"Display the floating items above portal consoles only as client-side packets instead of real entities. This removes all console items from server entity ticking."
+			)
+		);
+	}
+
+	@Override
+	protected void on_enable() {
+		task = schedule_task_timer(this::update_all_players, config_update_interval, config_update_interval);
+		super.on_enable();
+	}
+
+	@Override
+	protected void on_disable() {
+		if (task != null) {
+			task.cancel();
+			task = null;
+		}
+		super.on_disable();
+		for (final var block : new ArrayList<>(items.keySet())) {
+			remove(block);
+		}
+		visible.clear();
+	}
+
+	public boolean contains(final Block block) {
+		return items.containsKey(block);
+	}
+
+	public Set<Block> blocks() {
+		return items.keySet();
+	}
+
+	// Sets the item displayed above the given console, creating the virtual item if necessary.
+	public void update(final Block block, final ItemStack item) {
+		var virtual_item = items.get(block);
+		if (virtual_item != null) {
+			virtual_item.entity.setItem(item_handle(item));
+			final var data_packet = data_packet(virtual_item.entity);
+			for (final var player_id : virtual_item.viewers) {
+				final var player = get_module().getServer().getPlayer(player_id);
+				if (player != null) {
+					send(player, data_packet);
+				}
+			}
+			return;
+		}
+
+		final var entity = new FloatingItem(block.getWorld(), block.getX() + 0.5, block.getY() + 1.2, block.getZ() + 0.5);
+		entity.setItem(item_handle(item));
+		virtual_item = new VirtualItem(block, entity);
+		items.put(block, virtual_item);
+		items_by_chunk
+			.computeIfAbsent(block.getWorld().getUID(), k -> new HashMap<>())
+			.computeIfAbsent(PortalBlockIndex.chunk_key(block.getX() >> 4, block.getZ() >> 4), k -> new ArrayList<>())
+			.add(virtual_item);
+
+		// Show it right away to everyone in range, instead of waiting for the next update
+		for (final var player : block.getWorld().getPlayers()) {
+			if (in_range(player, virtual_item)) {
+				show(player, virtual_item);
+			}
+		}
+	}
+
+	public void remove(final Block block) {
+		final var virtual_item = items.remove(block);
+		if (virtual_item == null) {
+			return;
+		}
+
+		final var world_items = items_by_chunk.get(block.getWorld().getUID());
+		final var chunk_key = PortalBlockIndex.chunk_key(block.getX() >> 4, block.getZ() >> 4);
+		final var chunk_items = world_items.get(chunk_key);
+		chunk_items.remove(virtual_item);
+		if (chunk_items.isEmpty()) {
+			world_items.remove(chunk_key);
+		}
+
+		final var remove_packet = new ClientboundRemoveEntitiesPacket(virtual_item.entity.getId());
+		for (final var player_id : virtual_item.viewers) {
+			final var player = get_module().getServer().getPlayer(player_id);
+			if (player != null) {
+				send(player, remove_packet);
+			}
+			final var player_visible = visible.get(player_id);
+			if (player_visible != null) {
+				player_visible.remove(virtual_item);
+			}
+		}
+	}
+
+	private boolean in_range(final Player player, final VirtualItem virtual_item) {
+		final var location = player.getLocation();
+		if (location.getWorld() != virtual_item.block.getWorld()) {
+			return false;
+		}
+		final var dx = location.getX() - virtual_item.entity.getX();
+		final var dz = location.getZ() - virtual_item.entity.getZ();
+		return dx * dx + dz * dz <= (double)config_view_distance * config_view_distance;
+	}
+
+	private void show(final Player player, final VirtualItem virtual_item) {
+		if (!virtual_item.viewers.add(player.getUniqueId())) {
+			return;
+		}
+		visible.computeIfAbsent(player.getUniqueId(), k -> new HashSet<>()).add(virtual_item);
+		send(player, new ClientboundAddEntityPacket(virtual_item.entity));
+		send(player, data_packet(virtual_item.entity));
+	}
+
+	private void update_all_players() {
+		for (final var player : get_module().getServer().getOnlinePlayers()) {
+			update_player(player);
+		}
+	}
+
+	// Shows all items in range of the player, and hides all others that were shown before.
+	private void update_player(final Player player) {
+		final var location = player.getLocation();
+		final var world_items = items_by_chunk.get(location.getWorld().getUID());
+		final var in_range = new HashSet<VirtualItem>();
+		if (world_items != null) {
+			final var radius = (config_view_distance >> 4) + 1;
+			final var cx = location.getBlockX() >> 4;
+			final var cz = location.getBlockZ() >> 4;
+			for (int dx = -radius; dx <= radius; ++dx) {
+				for (int dz = -radius; dz <= radius; ++dz) {
+					final var chunk_items = world_items.get(PortalBlockIndex.chunk_key(cx + dx, cz + dz));
+					if (chunk_items == null) {
+						continue;
+					}
+					for (final var virtual_item : chunk_items) {
+						if (in_range(player, virtual_item)) {
+							in_range.add(virtual_item);
+						}
+					}
+				}
+			}
+		}
+
+		final var player_id = player.getUniqueId();
+		final var player_visible = visible.get(player_id);
+		if (player_visible != null) {
+			final var hidden = new ArrayList<VirtualItem>();
+			for (final var virtual_item : player_visible) {
+				if (!in_range.contains(virtual_item)) {
+					hidden.add(virtual_item);
+				}
+			}
+
+			if (!hidden.isEmpty()) {
+				final var ids = new int[hidden.size()];
+				for (int i = 0; i < ids.length; ++i) {
+					final var virtual_item = hidden.get(i);
+					ids[i] = virtual_item.entity.getId();
+					virtual_item.viewers.remove(player_id);
+					player_visible.remove(virtual_item);
+				}
+				send(player, new ClientboundRemoveEntitiesPacket(ids));
+			}
+		}
+
+		for (final var virtual_item : in_range) {
+			show(player, virtual_item);
+		}
+	}
+
+	// The client discards all entities when a player changes worlds or respawns,
+	// so we only need to forget what was shown to them.
+	private void forget_player(final UUID player_id) {
+		final var player_visible = visible.remove(player_id);
+		if (player_visible != null) {
+			for (final var virtual_item : player_visible) {
+				virtual_item.viewers.remove(player_id);
+			}
+		}
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void on_player_quit(final PlayerQuitEvent event) {
+		forget_player(event.getPlayer().getUniqueId());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void on_player_changed_world(final PlayerChangedWorldEvent event) {
+		forget_player(event.getPlayer().getUniqueId());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void on_player_respawn(final PlayerRespawnEvent event) {
+		forget_player(event.getPlayer().getUniqueId());
+	}
+
+	private static ClientboundSetEntityDataPacket data_packet(final FloatingItem entity) {
+		return new ClientboundSetEntityDataPacket(entity.getId(), entity.getEntityData().getNonDefaultValues());
+	}
+
+	private void send(final Player player, final Packet<?> packet) {
+		get_module().protocol_manager.sendServerPacket(player, PacketContainer.fromPacket(packet));
+	}
+}
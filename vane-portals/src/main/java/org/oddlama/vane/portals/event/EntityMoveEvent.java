@@ -4,17 +4,24 @@ import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.event.Event;
 import org.bukkit.event.HandlerList;
+import org.oddlama.vane.portals.portal.Portal;
 
 public class EntityMoveEvent extends Event {
 	private static final HandlerList handlers = new HandlerList();
 	private Entity entity;
 	private Location from;
 	private Location to;
+	private Portal crossed_portal;
 
 	public EntityMoveEvent(final Entity entity, final Location from, final Location to) {
+		this(entity, from, to, null);
+	}
+
+	public EntityMoveEvent(final Entity entity, final Location from, final Location to, final Portal crossed_portal) {
 		this.entity = entity;
 		this.from = from;
 		this.to = to;
+		this.crossed_portal = crossed_portal;
 	}
 
 	public Entity getEntity() {
@@ -29,6 +36,12 @@ public class EntityMoveEvent extends Event {
 		return to;
 	}
 
+	// The activated portal whose area lies on the straight path between from and to,
+	// if such a portal was detected. The destination itself might already be past the portal.
+	public Portal getCrossedPortal() {
+		return crossed_portal;
+	}
+
 	public HandlerList getHandlers() {
 		return handlers;
 	}
@@ -3,23 +3,32 @@ package org.oddlama.vane.portals.portal;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.util.Vector;
-
-public enum Orientation {
-	POSITIVE_X(Plane.YZ, new Vector(1, 0, 0)),
-	NEGATIVE_X(Plane.YZ, new Vector(-1, 0, 0)),
-	POSITIVE_Y(Plane.XZ, new Vector(0, 1, 0)),
-	NEGATIVE_Y(Plane.XZ, new Vector(0, -1, 0)),
-	POSITIVE_Z(Plane.XY, new Vector(0, 0, 1)),
-	NEGATIVE_Z(Plane.XY, new Vector(0, 0, -1));
-
+import org.oddlama.vane.core.persistent.BinaryCodec;
+
+public enum Orientation implements BinaryCodec.Coded {
+	// The first argument is the stored binary code and must never change.
+	POSITIVE_X(0, Plane.YZ, new Vector(1, 0, 0)),
+	NEGATIVE_X(1, Plane.YZ, new Vector(-1, 0, 0)),
+	POSITIVE_Y(2, Plane.XZ, new Vector(0, 1, 0)),
+	NEGATIVE_Y(3, Plane.XZ, new Vector(0, -1, 0)),
+	POSITIVE_Z(4, Plane.XY, new Vector(0, 0, 1)),
+	NEGATIVE_Z(5, Plane.XY, new Vector(0, 0, -1));
+
+	private int binary_code;
 	private Plane plane;
 	private Vector vector;
 
-	private Orientation(Plane plane, Vector vector) {
+	private Orientation(int binary_code, Plane plane, Vector vector) {
+		this.binary_code = binary_code;
 		this.plane = plane;
 		this.vector = vector;
 	}
 
+	@Override
+	public int binary_code() {
+		return binary_code;
+	}
+
 	public Plane plane() {
 		return plane;
 	}
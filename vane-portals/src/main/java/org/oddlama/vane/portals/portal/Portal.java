@@ -29,6 +29,8 @@ import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONObject;
+import org.oddlama.vane.core.persistent.BinaryCodec;
+import org.oddlama.vane.core.persistent.PersistentJournal;
 import org.oddlama.vane.portals.Portals;
 import org.oddlama.vane.portals.event.PortalActivateEvent;
 import org.oddlama.vane.portals.event.PortalDeactivateEvent;
@@ -96,6 +98,79 @@ public class Portal {
 		return portal;
 	}
 
+	// Version of the binary format written by serialize_binary.
+	// Increment when changing the format and keep reading older versions.
+	private static final int BINARY_VERSION = 1;
+
+	public static byte[] serialize_binary(final Portal portal) {
+		final var out = new BinaryCodec.Writer(BINARY_VERSION);
+		out.write_uuid(portal.id);
+		out.write_nullable_uuid(portal.owner);
+		out.write_enum(portal.orientation);
+
+		final var spawn = portal.spawn.location();
+		out.write_nullable_uuid(portal.spawn.world_id());
+		out.write_double(spawn.getX());
+		out.write_double(spawn.getY());
+		out.write_double(spawn.getZ());
+		out.write_float(spawn.getPitch());
+		out.write_float(spawn.getYaw());
+		PortalBlock.serialize_binary(portal.blocks, out);
+
+		out.write_nullable_string(portal.name);
+		out.write_namespaced_key(portal.style);
+		out.write_boolean(portal.style_override != null);
+		if (portal.style_override != null) {
+			Style.serialize_binary(portal.style_override, out);
+		}
+		out.write_item_stack(portal.icon);
+		out.write_enum(portal.visibility);
+
+		out.write_boolean(portal.exit_orientation_locked);
+		out.write_nullable_uuid(portal.target_id);
+		out.write_boolean(portal.target_locked);
+		return out.to_byte_array();
+	}
+
+	public static Portal deserialize_binary(final byte[] data) throws IOException {
+		final var in = new BinaryCodec.Reader(data);
+		if (in.version() != BINARY_VERSION) {
+			throw new IOException("Unsupported binary portal format version " + in.version());
+		}
+
+		final var portal = new Portal();
+		portal.id = in.read_uuid();
+		portal.owner = in.read_nullable_uuid();
+		portal.orientation = in.read_enum(Orientation.values());
+
+		final var world_id = in.read_nullable_uuid();
+		final var x = in.read_double();
+		final var y = in.read_double();
+		final var z = in.read_double();
+		final var pitch = in.read_float();
+		final var yaw = in.read_float();
+		portal.spawn = new LazyLocation(world_id, x, y, z, yaw, pitch);
+		portal.blocks = PortalBlock.deserialize_binary(in);
+
+		portal.name = in.read_nullable_string();
+		portal.style = in.read_namespaced_key();
+		if (in.read_boolean()) {
+			portal.style_override = Style.deserialize_binary(in);
+			try {
+				portal.style_override.check_valid();
+			} catch (RuntimeException e) {
+				portal.style_override = null;
+			}
+		}
+		portal.icon = in.read_item_stack();
+		portal.visibility = in.read_enum(Visibility.values());
+
+		portal.exit_orientation_locked = in.read_boolean();
+		portal.target_id = in.read_nullable_uuid();
+		portal.target_locked = in.read_boolean();
+		return portal;
+	}
+
 	private UUID id;
 	private UUID owner;
 	private Orientation orientation;
@@ -115,6 +190,9 @@ public class Portal {
 	// Whether the portal should be saved on next occasion.
 	// Not a saved field.
 	public boolean invalidated = true;
+	// The journal that is notified when this portal is invalidated.
+	// Not a saved field.
+	private PersistentJournal journal = null;
 
 	private Portal() {}
 
@@ -125,6 +203,18 @@ public class Portal {
 		this.spawn = new LazyLocation(spawn.clone());
 	}
 
+	public void journal(final PersistentJournal journal) {
+		this.journal = journal;
+	}
+
+	// Marks the portal to be saved on next occasion.
+	public void invalidate() {
+		invalidated = true;
+		if (journal != null) {
+			journal.mark_changed(spawn_world(), id);
+		}
+	}
+
 	public UUID id() {
 		return id;
 	}
@@ -155,7 +245,7 @@ public class Portal {
 
 	public void name(final String name) {
 		this.name = name;
-		this.invalidated = true;
+		invalidate();
 	}
 
 	public NamespacedKey style() {
@@ -168,7 +258,7 @@ public class Portal {
 		} else {
 			this.style = style.key();
 		}
-		this.invalidated = true;
+		invalidate();
 	}
 
 	public ItemStack icon() {
@@ -177,7 +267,7 @@ public class Portal {
 
 	public void icon(final ItemStack icon) {
 		this.icon = icon;
-		this.invalidated = true;
+		invalidate();
 	}
 
 	public Visibility visibility() {
@@ -186,7 +276,7 @@ public class Portal {
 
 	public void visibility(final Visibility visibility) {
 		this.visibility = visibility;
-		this.invalidated = true;
+		invalidate();
 	}
 
 	public boolean exit_orientation_locked() {
@@ -195,7 +285,7 @@ public class Portal {
 
 	public void exit_orientation_locked(boolean exit_orientation_locked) {
 		this.exit_orientation_locked = exit_orientation_locked;
-		this.invalidated = true;
+		invalidate();
 	}
 
 	public UUID target_id() {
@@ -204,7 +294,7 @@ public class Portal {
 
 	public void target_id(final UUID target_id) {
 		this.target_id = target_id;
-		this.invalidated = true;
+		invalidate();
 	}
 
 	public boolean target_locked() {
@@ -213,7 +303,7 @@ public class Portal {
 
 	public void target_locked(boolean target_locked) {
 		this.target_locked = target_locked;
-		this.invalidated = true;
+		invalidate();
 	}
 
 	public PortalBlock portal_block_for(final Block block) {
@@ -411,11 +501,23 @@ public class Portal {
 		return "Portal{id = " + id + ", name = " + name + "}";
 	}
 
-	public static enum Visibility {
-		PUBLIC,
-		GROUP,
-		GROUP_INTERNAL,
-		PRIVATE;
+	public static enum Visibility implements BinaryCodec.Coded {
+		// The argument is the stored binary code and must never change.
+		PUBLIC(0),
+		GROUP(1),
+		GROUP_INTERNAL(2),
+		PRIVATE(3);
+
+		private int binary_code;
+
+		private Visibility(int binary_code) {
+			this.binary_code = binary_code;
+		}
+
+		@Override
+		public int binary_code() {
+			return binary_code;
+		}
 
 		public Visibility prev() {
 			final int prev;
@@ -4,10 +4,13 @@ import static org.oddlama.vane.core.persistent.PersistentSerializer.from_json;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.to_json;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
+import org.oddlama.vane.core.persistent.BinaryCodec;
 import org.oddlama.vane.util.LazyBlock;
 
 public class PortalBlock {
@@ -27,6 +30,63 @@ public class PortalBlock {
 		return new PortalBlock(block, type);
 	}
 
+	// Writes a list of portal blocks. Worlds are stored once in a small table,
+	// and positions as deltas to the previous block, as portal blocks are adjacent.
+	public static void serialize_binary(final List<PortalBlock> blocks, final BinaryCodec.Writer out) {
+		final var worlds = new ArrayList<UUID>();
+		for (final var portal_block : blocks) {
+			if (!worlds.contains(portal_block.block.world_id())) {
+				worlds.add(portal_block.block.world_id());
+			}
+		}
+
+		out.write_varint(worlds.size());
+		for (final var world_id : worlds) {
+			out.write_nullable_uuid(world_id);
+		}
+
+		out.write_varint(blocks.size());
+		int x = 0, y = 0, z = 0;
+		for (final var portal_block : blocks) {
+			final var block = portal_block.block;
+			if (worlds.size() > 1) {
+				out.write_varint(worlds.indexOf(block.world_id()));
+			}
+			out.write_block_delta(block.x(), block.y(), block.z(), x, y, z);
+			out.write_enum(portal_block.type);
+			x = block.x();
+			y = block.y();
+			z = block.z();
+		}
+	}
+
+	public static List<PortalBlock> deserialize_binary(final BinaryCodec.Reader in) throws IOException {
+		final var world_count = in.read_varint();
+		final var worlds = new UUID[world_count];
+		for (int i = 0; i < world_count; ++i) {
+			worlds[i] = in.read_nullable_uuid();
+		}
+
+		final var count = in.read_varint();
+		final var blocks = new ArrayList<PortalBlock>(count);
+		int x = 0, y = 0, z = 0;
+		for (int i = 0; i < count; ++i) {
+			var world_id = world_count == 1 ? worlds[0] : null;
+			if (world_count > 1) {
+				final var world = in.read_varint();
+				if (world < 0 || world >= world_count) {
+					throw new IOException("Invalid world index " + world + " in binary data");
+				}
+				world_id = worlds[world];
+			}
+			x += in.read_zigzag();
+			y += in.read_zigzag();
+			z += in.read_zigzag();
+			blocks.add(new PortalBlock(new LazyBlock(world_id, x, y, z), in.read_enum(Type.values())));
+		}
+		return blocks;
+	}
+
 	private LazyBlock block;
 	private Type type;
 
@@ -43,6 +103,11 @@ public class PortalBlock {
 		return block.block();
 	}
 
+	// The stored position, which can be accessed without resolving the block
+	public LazyBlock lazy_block() {
+		return block;
+	}
+
 	public Type type() {
 		return type;
 	}
@@ -67,14 +132,26 @@ public class PortalBlock {
 		return block().equals(po.block());
 	}
 
-	public static enum Type {
-		ORIGIN,
-		CONSOLE,
-		BOUNDARY_1,
-		BOUNDARY_2,
-		BOUNDARY_3,
-		BOUNDARY_4,
-		BOUNDARY_5,
-		PORTAL,
+	public static enum Type implements BinaryCodec.Coded {
+		// The argument is the stored binary code and must never change.
+		ORIGIN(0),
+		CONSOLE(1),
+		BOUNDARY_1(2),
+		BOUNDARY_2(3),
+		BOUNDARY_3(4),
+		BOUNDARY_4(5),
+		BOUNDARY_5(6),
+		PORTAL(7);
+
+		private int binary_code;
+
+		private Type(int binary_code) {
+			this.binary_code = binary_code;
+		}
+
+		@Override
+		public int binary_code() {
+			return binary_code;
+		}
 	}
 }
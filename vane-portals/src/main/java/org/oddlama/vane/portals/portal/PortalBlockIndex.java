@@ -0,0 +1,385 @@
+package org.oddlama.vane.portals.portal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+// Index for all portal blocks, partitioned by world. Block positions are packed
+// into a single long and stored in an open addressing hash table (linear probing),
+// which maps them to a compact portal slot and the portal block type.
+// Lookups first check a small per-world chunk occupancy filter, so the vast majority
+// of blocks (which are not part of any portal) are rejected without hashing.
+public class PortalBlockIndex {
+	private static final long EMPTY = Long.MIN_VALUE;
+	private static final int INITIAL_CAPACITY = 64;
+
+	// The chunk filter aliases chunk coordinates onto a 128x128 grid
+	private static final int FILTER_BITS = 7;
+	private static final int FILTER_MASK = (1 << FILTER_BITS) - 1;
+
+	private static final PortalBlock.Type[] TYPES = PortalBlock.Type.values();
+	private static final int TYPE_BITS = 3;
+
+	private final Map<UUID, WorldIndex> worlds = new HashMap<>();
+	// Cache the last accessed world, as lookups are usually clustered.
+	private UUID last_world_id = null;
+	private WorldIndex last_world = null;
+
+	// Portal slots (slot → portal id), shared by all worlds
+	private final ArrayList<UUID> portal_ids = new ArrayList<>();
+	private final ArrayList<PortalBlockLookup[]> portal_lookups = new ArrayList<>();
+	private final Map<UUID, Integer> portal_slots = new HashMap<>();
+	private int[] portal_block_count = new int[16];
+	private final ArrayList<Integer> free_portal_slots = new ArrayList<>();
+
+	// Packs a block position like net.minecraft.core.BlockPos does: 26 bits x, 26 bits z, 12 bits y.
+	public static long pack(int x, int y, int z) {
+		return (((long)x & 0x3FFFFFF) << 38) | (((long)z & 0x3FFFFFF) << 12) | ((long)y & 0xFFF);
+	}
+
+	public static int unpack_x(long pos) {
+		return (int)(pos >> 38);
+	}
+
+	public static int unpack_y(long pos) {
+		return (int)(pos << 52 >> 52);
+	}
+
+	public static int unpack_z(long pos) {
+		return (int)(pos << 26 >> 38);
+	}
+
+	// Same layout as org.bukkit.Chunk.getChunkKey
+	public static long chunk_key(int cx, int cz) {
+		return ((long)cx & 0xFFFFFFFFl) | (((long)cz & 0xFFFFFFFFl) << 32);
+	}
+
+	private static int hash(long key) {
+		return (int)((key * 0x9E3779B97F4A7C15l) >>> 32);
+	}
+
+	private static int filter_index(int cx, int cz) {
+		return ((cx & FILTER_MASK) << FILTER_BITS) | (cz & FILTER_MASK);
+	}
+
+	private WorldIndex world(final UUID world_id) {
+		if (world_id == last_world_id) {
+			return last_world;
+		}
+
+		final var index = worlds.get(world_id);
+		last_world_id = world_id;
+		last_world = index;
+		return index;
+	}
+
+	private int acquire_portal_slot(final UUID portal_id) {
+		final var existing = portal_slots.get(portal_id);
+		if (existing != null) {
+			return existing;
+		}
+
+		final int slot;
+		if (free_portal_slots.isEmpty()) {
+			slot = portal_ids.size();
+			portal_ids.add(portal_id);
+			portal_lookups.add(new PortalBlockLookup[TYPES.length]);
+			if (slot >= portal_block_count.length) {
+				portal_block_count = Arrays.copyOf(portal_block_count, portal_block_count.length * 2);
+			}
+		} else {
+			slot = free_portal_slots.remove(free_portal_slots.size() - 1);
+			portal_ids.set(slot, portal_id);
+			portal_lookups.set(slot, new PortalBlockLookup[TYPES.length]);
+		}
+
+		portal_slots.put(portal_id, slot);
+		return slot;
+	}
+
+	private void release_portal_block(int portal_slot) {
+		if (--portal_block_count[portal_slot] > 0) {
+			return;
+		}
+
+		portal_slots.remove(portal_ids.get(portal_slot));
+		portal_ids.set(portal_slot, null);
+		portal_lookups.set(portal_slot, null);
+		free_portal_slots.add(portal_slot);
+	}
+
+	private PortalBlockLookup lookup(int value) {
+		final var portal_slot = value >>> TYPE_BITS;
+		final var type = value & ((1 << TYPE_BITS) - 1);
+		final var lookups = portal_lookups.get(portal_slot);
+		var lookup = lookups[type];
+		if (lookup == null) {
+			lookup = new PortalBlockLookup(portal_ids.get(portal_slot), TYPES[type]);
+			lookups[type] = lookup;
+		}
+		return lookup;
+	}
+
+	public void put(final UUID world_id, int x, int y, int z, final UUID portal_id, final PortalBlock.Type type) {
+		var index = world(world_id);
+		if (index == null) {
+			index = new WorldIndex();
+			worlds.put(world_id, index);
+			last_world_id = world_id;
+			last_world = index;
+		}
+
+		final var portal_slot = acquire_portal_slot(portal_id);
+		final var previous = index.put(pack(x, y, z), (portal_slot << TYPE_BITS) | type.ordinal());
+		++portal_block_count[portal_slot];
+		if (previous != -1) {
+			release_portal_block(previous >>> TYPE_BITS);
+		}
+	}
+
+	public void remove(final UUID world_id, int x, int y, int z) {
+		final var index = world(world_id);
+		if (index == null) {
+			return;
+		}
+
+		final var previous = index.remove(pack(x, y, z));
+		if (previous != -1) {
+			release_portal_block(previous >>> TYPE_BITS);
+		}
+	}
+
+	public PortalBlockLookup get(final UUID world_id, int x, int y, int z) {
+		final var index = world(world_id);
+		if (index == null || !index.may_contain(x >> 4, z >> 4)) {
+			return null;
+		}
+
+		final var value = index.get(pack(x, y, z));
+		if (value == -1) {
+			return null;
+		}
+		return lookup(value);
+	}
+
+	public boolean contains(final UUID world_id, int x, int y, int z) {
+		final var index = world(world_id);
+		if (index == null || !index.may_contain(x >> 4, z >> 4)) {
+			return false;
+		}
+
+		return index.get(pack(x, y, z)) != -1;
+	}
+
+	public Set<UUID> world_ids() {
+		return worlds.keySet();
+	}
+
+	// Calls the consumer with the key of each chunk that contains at least one portal block.
+	public void for_each_chunk(final UUID world_id, final LongConsumer consumer) {
+		final var index = world(world_id);
+		if (index == null) {
+			return;
+		}
+
+		for (final var chunk_key : index.chunks.keySet()) {
+			consumer.accept(chunk_key);
+		}
+	}
+
+	public void for_each_in_chunk(final UUID world_id, int cx, int cz, final BlockConsumer consumer) {
+		final var index = world(world_id);
+		if (index == null || !index.may_contain(cx, cz)) {
+			return;
+		}
+
+		final var chunk = index.chunks.get(chunk_key(cx, cz));
+		if (chunk == null) {
+			return;
+		}
+
+		for (int i = 0; i < chunk.size; ++i) {
+			final var pos = chunk.positions[i];
+			consumer.apply(unpack_x(pos), unpack_y(pos), unpack_z(pos), lookup(index.get(pos)));
+		}
+	}
+
+	public boolean any_in_chunk(final UUID world_id, long chunk_key, final Predicate<PortalBlockLookup> predicate) {
+		final var index = world(world_id);
+		if (index == null) {
+			return false;
+		}
+
+		final var chunk = index.chunks.get(chunk_key);
+		if (chunk == null) {
+			return false;
+		}
+
+		for (int i = 0; i < chunk.size; ++i) {
+			if (predicate.test(lookup(index.get(chunk.positions[i])))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@FunctionalInterface
+	public static interface BlockConsumer {
+		void apply(int x, int y, int z, PortalBlockLookup lookup);
+	}
+
+	// Positions of all portal blocks in a single chunk
+	private static class ChunkBlocks {
+		private long[] positions = new long[8];
+		private int size = 0;
+
+		private void add(long pos) {
+			if (size == positions.length) {
+				positions = Arrays.copyOf(positions, size * 2);
+			}
+			positions[size++] = pos;
+		}
+
+		private void remove(long pos) {
+			for (int i = 0; i < size; ++i) {
+				if (positions[i] == pos) {
+					positions[i] = positions[--size];
+					return;
+				}
+			}
+		}
+	}
+
+	private static class WorldIndex {
+		private long[] keys = new long[INITIAL_CAPACITY];
+		private int[] values = new int[INITIAL_CAPACITY];
+		private int size = 0;
+
+		// Amount of portal blocks per aliased chunk. Zero means there
+		// definitely is no portal block in any chunk mapping to that cell.
+		private final int[] chunk_filter = new int[1 << (2 * FILTER_BITS)];
+		private final Map<Long, ChunkBlocks> chunks = new HashMap<>();
+
+		private WorldIndex() {
+			Arrays.fill(keys, EMPTY);
+		}
+
+		private boolean may_contain(int cx, int cz) {
+			return chunk_filter[filter_index(cx, cz)] != 0;
+		}
+
+		private int get(long key) {
+			final var mask = keys.length - 1;
+			var slot = hash(key) & mask;
+			while (keys[slot] != EMPTY) {
+				if (keys[slot] == key) {
+					return values[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+
+		// Returns the previous value, or -1 if the key was newly inserted.
+		private int put(long key, int value) {
+			if ((size + 1) * 2 > keys.length) {
+				rehash(keys.length * 2);
+			}
+
+			final var mask = keys.length - 1;
+			var slot = hash(key) & mask;
+			while (keys[slot] != EMPTY) {
+				if (keys[slot] == key) {
+					final var previous = values[slot];
+					values[slot] = value;
+					return previous;
+				}
+				slot = (slot + 1) & mask;
+			}
+
+			keys[slot] = key;
+			values[slot] = value;
+			++size;
+
+			final int cx = unpack_x(key) >> 4;
+			final int cz = unpack_z(key) >> 4;
+			++chunk_filter[filter_index(cx, cz)];
+			chunks.computeIfAbsent(chunk_key(cx, cz), k -> new ChunkBlocks()).add(key);
+			return -1;
+		}
+
+		// Returns the removed value, or -1 if the key wasn't contained.
+		private int remove(long key) {
+			final var mask = keys.length - 1;
+			var slot = hash(key) & mask;
+			while (keys[slot] != key) {
+				if (keys[slot] == EMPTY) {
+					return -1;
+				}
+				slot = (slot + 1) & mask;
+			}
+
+			final var previous = values[slot];
+
+			// Backward shift deletion, so we never need tombstones.
+			var hole = slot;
+			var j = slot;
+			while (true) {
+				j = (j + 1) & mask;
+				if (keys[j] == EMPTY) {
+					break;
+				}
+
+				final var home = hash(keys[j]) & mask;
+				final var movable = j > hole ? (home <= hole || home > j) : (home <= hole && home > j);
+				if (movable) {
+					keys[hole] = keys[j];
+					values[hole] = values[j];
+					hole = j;
+				}
+			}
+			keys[hole] = EMPTY;
+			--size;
+
+			final int cx = unpack_x(key) >> 4;
+			final int cz = unpack_z(key) >> 4;
+			--chunk_filter[filter_index(cx, cz)];
+			final var chunk_key = chunk_key(cx, cz);
+			final var chunk = chunks.get(chunk_key);
+			if (chunk != null) {
+				chunk.remove(key);
+				if (chunk.size == 0) {
+					chunks.remove(chunk_key);
+				}
+			}
+			return previous;
+		}
+
+		private void rehash(int capacity) {
+			final var old_keys = keys;
+			final var old_values = values;
+			keys = new long[capacity];
+			values = new int[capacity];
+			Arrays.fill(keys, EMPTY);
+
+			final var mask = capacity - 1;
+			for (int i = 0; i < old_keys.length; ++i) {
+				if (old_keys[i] == EMPTY) {
+					continue;
+				}
+
+				var slot = hash(old_keys[i]) & mask;
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = old_keys[i];
+				values[slot] = old_values[i];
+			}
+		}
+	}
+}
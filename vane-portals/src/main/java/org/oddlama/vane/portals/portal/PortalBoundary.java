@@ -1,13 +1,13 @@
 package org.oddlama.vane.portals.portal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
-import org.apache.commons.lang3.tuple.Pair;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.oddlama.vane.portals.PortalConstructor;
 
@@ -104,93 +104,201 @@ public class PortalBoundary {
 		return false;
 	}
 
-	private static void push_block_if_not_contained(
-		final Block block,
-		final Stack<Block> stack,
-		final Set<Block> out_boundary,
-		final Set<Block> out_portal_area
-	) {
-		if (out_boundary.contains(block) || out_portal_area.contains(block)) {
-			return;
+	// Reads the material of blocks by position, without creating Block objects.
+	// A search only reads the blocks around a single portal, so reading them
+	// directly is much cheaper than copying whole chunks into snapshots.
+	private static class BlockTypes {
+		private final World world;
+		private final int min_height;
+		private final int max_height;
+
+		private BlockTypes(final World world) {
+			this.world = world;
+			this.min_height = world.getMinHeight();
+			this.max_height = world.getMaxHeight();
+		}
+
+		private Material type(int x, int y, int z) {
+			if (y < min_height || y >= max_height) {
+				return Material.VOID_AIR;
+			}
+			return world.getType(x, y, z);
 		}
 
-		stack.push(block);
+		private Material type(final Block block) {
+			return type(block.getX(), block.getY(), block.getZ());
+		}
 	}
 
-	private static void push_adjacent_blocks_to_stack(
-		final Block block,
-		final Stack<Block> stack,
-		final Set<Block> out_boundary,
-		final Set<Block> out_portal_area,
-		Plane plane
-	) {
-		switch (plane) {
-			case XY:
-				push_block_if_not_contained(block.getRelative(1, 0, 0), stack, out_boundary, out_portal_area);
-				push_block_if_not_contained(block.getRelative(-1, 0, 0), stack, out_boundary, out_portal_area);
-				push_block_if_not_contained(block.getRelative(0, 1, 0), stack, out_boundary, out_portal_area);
-				push_block_if_not_contained(block.getRelative(0, -1, 0), stack, out_boundary, out_portal_area);
-				break;
-			case YZ:
-				push_block_if_not_contained(block.getRelative(0, 0, 1), stack, out_boundary, out_portal_area);
-				push_block_if_not_contained(block.getRelative(0, 0, -1), stack, out_boundary, out_portal_area);
-				push_block_if_not_contained(block.getRelative(0, 1, 0), stack, out_boundary, out_portal_area);
-				push_block_if_not_contained(block.getRelative(0, -1, 0), stack, out_boundary, out_portal_area);
-				break;
-			case XZ:
-				push_block_if_not_contained(block.getRelative(1, 0, 0), stack, out_boundary, out_portal_area);
-				push_block_if_not_contained(block.getRelative(-1, 0, 0), stack, out_boundary, out_portal_area);
-				push_block_if_not_contained(block.getRelative(0, 0, 1), stack, out_boundary, out_portal_area);
-				push_block_if_not_contained(block.getRelative(0, 0, -1), stack, out_boundary, out_portal_area);
-				break;
+	// Growable stack or list of packed block positions
+	private static class PositionList {
+		private long[] positions = new long[256];
+		private int size = 0;
+
+		private void add(long pos) {
+			if (size == positions.length) {
+				positions = Arrays.copyOf(positions, size * 2);
+			}
+			positions[size++] = pos;
+		}
+
+		private long pop() {
+			return positions[--size];
+		}
+
+		private boolean is_empty() {
+			return size == 0;
+		}
+
+		private void clear() {
+			size = 0;
 		}
 	}
 
-	private static void do_flood_fill4_step(
-		final PortalConstructor portal_constructor,
-		final Stack<Block> stack,
-		final Set<Block> out_boundary,
-		final Set<Block> out_portal_area,
-		final Plane plane
-	) {
-		final var block = stack.pop();
-		if (portal_constructor.is_type_part_of_boundary_or_origin(block.getType())) {
-			out_boundary.add(block);
-		} else {
-			out_portal_area.add(block);
-			push_adjacent_blocks_to_stack(block, stack, out_boundary, out_portal_area, plane);
+	// Set of packed block positions using open addressing (linear probing).
+	// The table is kept when cleared, so it can be reused for the next search.
+	private static class PositionSet {
+		private static final long EMPTY = Long.MIN_VALUE;
+
+		private long[] keys = new long[512];
+		private int size = 0;
+
+		private PositionSet() {
+			Arrays.fill(keys, EMPTY);
+		}
+
+		private static int hash(long key) {
+			return (int)((key * 0x9E3779B97F4A7C15l) >>> 32);
+		}
+
+		// Returns false if the position was already contained
+		private boolean add(long key) {
+			if ((size + 1) * 2 > keys.length) {
+				grow();
+			}
+
+			final var mask = keys.length - 1;
+			var i = hash(key) & mask;
+			while (keys[i] != EMPTY) {
+				if (keys[i] == key) {
+					return false;
+				}
+				i = (i + 1) & mask;
+			}
+			keys[i] = key;
+			++size;
+			return true;
+		}
+
+		private void grow() {
+			final var old_keys = keys;
+			keys = new long[old_keys.length * 2];
+			Arrays.fill(keys, EMPTY);
+			size = 0;
+			for (final var key : old_keys) {
+				if (key != EMPTY) {
+					add(key);
+				}
+			}
+		}
+
+		private void clear() {
+			if (size > 0) {
+				Arrays.fill(keys, EMPTY);
+				size = 0;
+			}
+		}
+	}
+
+	// State of a single flood fill. All buffers are reused across searches.
+	private static class FloodFill {
+		private final PositionSet visited = new PositionSet();
+		private final PositionList stack = new PositionList();
+		private final PositionList boundary = new PositionList();
+		private final PositionList portal_area = new PositionList();
+		private boolean enabled;
+
+		private void reset(final Block start) {
+			visited.clear();
+			stack.clear();
+			boundary.clear();
+			portal_area.clear();
+			enabled = start != null;
+			if (enabled) {
+				push(start.getX(), start.getY(), start.getZ());
+			}
+		}
+
+		private void push(int x, int y, int z) {
+			final var pos = PortalBlockIndex.pack(x, y, z);
+			if (visited.add(pos)) {
+				stack.add(pos);
+			}
+		}
+
+		private void step(final PortalConstructor portal_constructor, final BlockTypes types, final Plane plane) {
+			final var pos = stack.pop();
+			final var x = PortalBlockIndex.unpack_x(pos);
+			final var y = PortalBlockIndex.unpack_y(pos);
+			final var z = PortalBlockIndex.unpack_z(pos);
+			if (portal_constructor.is_type_part_of_boundary_or_origin(types.type(x, y, z))) {
+				boundary.add(pos);
+				return;
+			}
+
+			portal_area.add(pos);
+			switch (plane) {
+				case XY:
+					push(x + 1, y, z);
+					push(x - 1, y, z);
+					push(x, y + 1, z);
+					push(x, y - 1, z);
+					break;
+				case YZ:
+					push(x, y, z + 1);
+					push(x, y, z - 1);
+					push(x, y + 1, z);
+					push(x, y - 1, z);
+					break;
+				case XZ:
+					push(x + 1, y, z);
+					push(x - 1, y, z);
+					push(x, y, z + 1);
+					push(x, y, z - 1);
+					break;
+			}
+		}
+
+		private static Set<Block> to_blocks(final World world, final PositionList positions) {
+			final var blocks = new HashSet<Block>(positions.size * 2);
+			for (int i = 0; i < positions.size; ++i) {
+				final var pos = positions.positions[i];
+				blocks.add(world.getBlockAt(PortalBlockIndex.unpack_x(pos), PortalBlockIndex.unpack_y(pos), PortalBlockIndex.unpack_z(pos)));
+			}
+			return blocks;
 		}
 	}
 
 	/**
 	 * Simultaneously fill two areas.
 	 * Return as soon as a valid area is found or the maximum depth is exceeded.
-	 * Returns a pair of { boundary, portal_area }
+	 * Returns the flood fill that finished, or null.
 	 */
-	private static Pair<Set<Block>, Set<Block>> simultaneous_flood_fill4(
+	private static FloodFill simultaneous_flood_fill4(
 		final PortalConstructor portal_constructor,
+		final BlockTypes types,
+		final FloodFill[] fills,
 		final Block[] areas,
 		final Plane plane
 	) {
-		final var boundary0 = new HashSet<Block>();
-		final var boundary1 = new HashSet<Block>();
-		final var portal_area0 = new HashSet<Block>();
-		final var portal_area1 = new HashSet<Block>();
-		final var flood_fill_stack0 = new Stack<Block>();
-		final var flood_fill_stack1 = new Stack<Block>();
-
-		if (areas[0] != null) {
-			flood_fill_stack0.push(areas[0]);
-		}
-		if (areas[1] != null) {
-			flood_fill_stack1.push(areas[1]);
-		}
+		final var fill0 = fills[0];
+		final var fill1 = fills[1];
+		fill0.reset(areas[0]);
+		fill1.reset(areas[1]);
 
 		// Keep going as long as all stacks of enabled areas are not empty and max depth is not reached
 		int depth = 0;
-		while (
-			(areas[0] == null || !flood_fill_stack0.isEmpty()) && (areas[1] == null || !flood_fill_stack1.isEmpty())
-		) {
+		while ((!fill0.enabled || !fill0.stack.is_empty()) && (!fill1.enabled || !fill1.stack.is_empty())) {
 			++depth;
 
 			// Maximum depth reached -> both areas are invalid
@@ -198,18 +306,18 @@ public class PortalBoundary {
 				return null;
 			}
 
-			if (areas[0] != null) {
-				do_flood_fill4_step(portal_constructor, flood_fill_stack0, boundary0, portal_area0, plane);
+			if (fill0.enabled) {
+				fill0.step(portal_constructor, types, plane);
 			}
-			if (areas[1] != null) {
-				do_flood_fill4_step(portal_constructor, flood_fill_stack1, boundary1, portal_area1, plane);
+			if (fill1.enabled) {
+				fill1.step(portal_constructor, types, plane);
 			}
 		}
 
-		if (areas[0] != null && flood_fill_stack0.isEmpty()) {
-			return Pair.of(boundary0, portal_area0);
-		} else if (areas[1] != null && flood_fill_stack1.isEmpty()) {
-			return Pair.of(boundary1, portal_area1);
+		if (fill0.enabled && fill0.stack.is_empty()) {
+			return fill0;
+		} else if (fill1.enabled && fill1.stack.is_empty()) {
+			return fill1;
 		}
 
 		// Can not occur.
@@ -257,6 +365,7 @@ public class PortalBoundary {
 
 	private static Block[] get_potential_area_blocks(
 		final PortalConstructor portal_constructor,
+		final BlockTypes types,
 		final Block block,
 		final Plane plane
 	) {
@@ -275,7 +384,7 @@ public class PortalBoundary {
 		// Assert that there are exactly two boundary blocks
 		int boundary_blocks = 0;
 		for (final var surrounding_block : surrounding_blocks) {
-			if (portal_constructor.is_type_part_of_boundary_or_origin(surrounding_block.getType())) {
+			if (portal_constructor.is_type_part_of_boundary_or_origin(types.type(surrounding_block))) {
 				++boundary_blocks;
 			}
 		}
@@ -290,7 +399,7 @@ public class PortalBoundary {
 		boolean had_boundary_block_before = false;
 		for (final var surrounding_block : surrounding_blocks) {
 			// Examine block type
-			if (portal_constructor.is_type_part_of_boundary_or_origin(surrounding_block.getType())) {
+			if (portal_constructor.is_type_part_of_boundary_or_origin(types.type(surrounding_block))) {
 				if (!had_boundary_block_before) area_index = (area_index + 1) % 2;
 
 				had_boundary_block_before = true;
@@ -310,6 +419,7 @@ public class PortalBoundary {
 
 	private static void add3_air_stacks(
 		final PortalConstructor portal_constructor,
+		final BlockTypes types,
 		final Block start_air,
 		final List<Block> lowest_air_blocks,
 		boolean insert_front,
@@ -319,22 +429,22 @@ public class PortalBoundary {
 		var air = start_air;
 		while (true) {
 			air = air.getRelative(-mod_x, 0, -mod_z);
-			if (air.getType() != portal_constructor.config_material_portal_area) {
+			if (types.type(air) != portal_constructor.config_material_portal_area) {
 				break;
 			}
 
 			final var boundary = air.getRelative(0, -1, 0);
-			if (portal_constructor.is_type_part_of_boundary(boundary.getType())) {
+			if (portal_constructor.is_type_part_of_boundary(types.type(boundary))) {
 				break;
 			}
 
 			final var above1 = air.getRelative(0, 1, 0);
-			if (above1.getType() != portal_constructor.config_material_portal_area) {
+			if (types.type(above1) != portal_constructor.config_material_portal_area) {
 				break;
 			}
 
 			final var above2 = air.getRelative(0, 2, 0);
-			if (above2.getType() != portal_constructor.config_material_portal_area) {
+			if (types.type(above2) != portal_constructor.config_material_portal_area) {
 				break;
 			}
 
@@ -348,6 +458,8 @@ public class PortalBoundary {
 
 	private static PortalBoundary search_at(
 		final PortalConstructor portal_constructor,
+		final BlockTypes types,
+		final FloodFill[] fills,
 		final Block search_block,
 		Plane plane
 	) {
@@ -371,27 +483,29 @@ public class PortalBoundary {
 		 * Result: The flood fill algorithm returns the boundary and portal area for the valid area or null if both are invalid.
 		 */
 
-		final var potential_area_blocks = get_potential_area_blocks(portal_constructor, search_block, plane);
+		final var potential_area_blocks = get_potential_area_blocks(portal_constructor, types, search_block, plane);
 
 		// If potential_area_blocks is null, the shape is invalid
 		if (potential_area_blocks == null || (potential_area_blocks[0] == null && potential_area_blocks[1] == null)) {
 			return null;
 		}
 
-		final var result = simultaneous_flood_fill4(portal_constructor, potential_area_blocks, plane);
+		final var result = simultaneous_flood_fill4(portal_constructor, types, fills, potential_area_blocks, plane);
 		if (result == null) {
 			return null;
 		}
 
+		// Only the blocks of the final result are resolved
+		final var world = search_block.getWorld();
 		final var boundary = new PortalBoundary(plane);
-		boundary.boundary_blocks = result.getLeft();
-		boundary.portal_area_blocks = result.getRight();
+		boundary.boundary_blocks = FloodFill.to_blocks(world, result.boundary);
+		boundary.portal_area_blocks = FloodFill.to_blocks(world, result.portal_area);
 
 		// Remove origin block from boundary list
 		final var iterator = boundary.boundary_blocks.iterator();
 		while (iterator.hasNext()) {
 			final var block = iterator.next();
-			if (block.getType() == portal_constructor.config_material_origin) {
+			if (types.type(block) == portal_constructor.config_material_origin) {
 				if (boundary.origin_block != null) {
 					// Duplicate origin block
 					boundary.error_state = ErrorState.MULTIPLE_ORIGINS;
@@ -447,9 +561,10 @@ public class PortalBoundary {
 
 		// Check area obstruction
 		for (final var block : boundary.portal_area_blocks) {
-			if (block.getType() != portal_constructor.config_material_portal_area) {
+			final var type = types.type(block);
+			if (type != portal_constructor.config_material_portal_area) {
 				if (portal_constructor.config_material_portal_area == Material.AIR) {
-					if (air_overrides.contains(block.getType())) {
+					if (air_overrides.contains(type)) {
 						continue;
 					}
 				}
@@ -634,10 +749,10 @@ public class PortalBoundary {
 			int mod_z = boundary.plane().z() ? 1 : 0;
 
 			// Find matching air stacks to negative axis side
-			add3_air_stacks(portal_constructor, air_above_origin, air_above_with_boundary_below, false, -mod_x, -mod_z);
+			add3_air_stacks(portal_constructor, types, air_above_origin, air_above_with_boundary_below, false, -mod_x, -mod_z);
 
 			// Find matching pairs to positive axis side
-			add3_air_stacks(portal_constructor, air_above_origin, air_above_with_boundary_below, true, mod_x, mod_z);
+			add3_air_stacks(portal_constructor, types, air_above_origin, air_above_with_boundary_below, true, mod_x, mod_z);
 
 			// Must be at least 1x3 area of portal blocks to be valid
 			if (air_above_with_boundary_below.size() < 1) {
@@ -659,17 +774,21 @@ public class PortalBoundary {
 	}
 
 	public static PortalBoundary search_at(final PortalConstructor portal_constructor, final Block block) {
-		var boundary = search_at(portal_constructor, block, Plane.XY);
+		// All planes share the same flood fill buffers.
+		final var types = new BlockTypes(block.getWorld());
+		final var fills = new FloodFill[] { new FloodFill(), new FloodFill() };
+
+		var boundary = search_at(portal_constructor, types, fills, block, Plane.XY);
 		if (boundary != null) {
 			return boundary;
 		}
 
-		boundary = search_at(portal_constructor, block, Plane.YZ);
+		boundary = search_at(portal_constructor, types, fills, block, Plane.YZ);
 		if (boundary != null) {
 			return boundary;
 		}
 
-		return search_at(portal_constructor, block, Plane.XZ);
+		return search_at(portal_constructor, types, fills, block, Plane.XZ);
 	}
 
 	@Override
@@ -0,0 +1,215 @@
+package org.oddlama.vane.portals.portal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Index of the portal area planes of all activated portals, grouped by world.
+// Every portal area is a flat layer of blocks that is exactly one block thick along
+// the normal axis of the portal's plane. For each portal we store the slab
+// [plane, plane + 1) along that axis, the bounding rectangle of the area in the two
+// remaining axes and a bit grid of all area cells inside that rectangle.
+// This allows us to test whether the straight line between two consecutive positions
+// of an entity passes through a portal area, even if neither position is inside it.
+// The index is immutable and must be rebuilt when the set of activated portals changes.
+public class PortalPlaneIndex {
+	private static final double SLAB_EPSILON = 1e-7;
+
+	private final Map<UUID, PortalPlane[]> worlds = new HashMap<>();
+
+	public void add(final Portal portal) {
+		final var plane = PortalPlane.of(portal);
+		if (plane == null) {
+			return;
+		}
+
+		final var planes = worlds.get(plane.world_id);
+		if (planes == null) {
+			worlds.put(plane.world_id, new PortalPlane[] { plane });
+		} else {
+			final var extended = Arrays.copyOf(planes, planes.length + 1);
+			extended[planes.length] = plane;
+			worlds.put(plane.world_id, extended);
+		}
+	}
+
+	public boolean is_empty(final UUID world_id) {
+		return !worlds.containsKey(world_id);
+	}
+
+	// Returns the id of the first activated portal whose area is intersected by the
+	// line segment from (x0, y0, z0) to (x1, y1, z1), or null if there is none.
+	public UUID crossed_portal(final UUID world_id, double x0, double y0, double z0, double x1, double y1, double z1) {
+		final var planes = worlds.get(world_id);
+		if (planes == null) {
+			return null;
+		}
+
+		for (final var plane : planes) {
+			if (plane.is_crossed(x0, y0, z0, x1, y1, z1)) {
+				return plane.portal_id;
+			}
+		}
+		return null;
+	}
+
+	private static class PortalPlane {
+		private final UUID portal_id;
+		private final UUID world_id;
+		// 0 = x, 1 = y, 2 = z. The remaining axes (u, v) are in ascending order.
+		private final int normal_axis;
+		private final int plane;
+		private final int min_u, min_v;
+		private final int size_u, size_v;
+		private final boolean[] cells;
+
+		private PortalPlane(final UUID portal_id, final UUID world_id, int normal_axis, int plane, int min_u, int min_v, int size_u, int size_v) {
+			this.portal_id = portal_id;
+			this.world_id = world_id;
+			this.normal_axis = normal_axis;
+			this.plane = plane;
+			this.min_u = min_u;
+			this.min_v = min_v;
+			this.size_u = size_u;
+			this.size_v = size_v;
+			this.cells = new boolean[size_u * size_v];
+		}
+
+		private static int normal_axis(final Plane plane) {
+			switch (plane) {
+				default:
+				case XY: return 2;
+				case YZ: return 0;
+				case XZ: return 1;
+			}
+		}
+
+		private static PortalPlane of(final Portal portal) {
+			final var normal_axis = normal_axis(portal.orientation().plane());
+			final var area = new ArrayList<int[]>();
+			for (final var portal_block : portal.blocks()) {
+				if (portal_block.type() != PortalBlock.Type.PORTAL) {
+					continue;
+				}
+				final var block = portal_block.block();
+				area.add(new int[] { block.getX(), block.getY(), block.getZ() });
+			}
+
+			if (area.isEmpty()) {
+				return null;
+			}
+
+			final var u_axis = normal_axis == 0 ? 1 : 0;
+			final var v_axis = normal_axis == 2 ? 1 : 2;
+			int min_u = Integer.MAX_VALUE, min_v = Integer.MAX_VALUE;
+			int max_u = Integer.MIN_VALUE, max_v = Integer.MIN_VALUE;
+			for (final var pos : area) {
+				min_u = Math.min(min_u, pos[u_axis]);
+				min_v = Math.min(min_v, pos[v_axis]);
+				max_u = Math.max(max_u, pos[u_axis]);
+				max_v = Math.max(max_v, pos[v_axis]);
+			}
+
+			final var first = area.get(0);
+			final var result = new PortalPlane(portal.id(), portal.spawn_world(), normal_axis, first[normal_axis],
+				min_u, min_v, max_u - min_u + 1, max_v - min_v + 1);
+			for (final var pos : area) {
+				result.cells[(pos[u_axis] - min_u) * result.size_v + (pos[v_axis] - min_v)] = true;
+			}
+			return result;
+		}
+
+		private boolean contains_cell(int u, int v) {
+			u -= min_u;
+			v -= min_v;
+			if (u < 0 || v < 0 || u >= size_u || v >= size_v) {
+				return false;
+			}
+			return cells[u * size_v + v];
+		}
+
+		private boolean is_crossed(double x0, double y0, double z0, double x1, double y1, double z1) {
+			final double n0, n1, u0, u1, v0, v1;
+			switch (normal_axis) {
+				case 0:  n0 = x0; n1 = x1; u0 = y0; u1 = y1; v0 = z0; v1 = z1; break;
+				case 1:  n0 = y0; n1 = y1; u0 = x0; u1 = x1; v0 = z0; v1 = z1; break;
+				default: n0 = z0; n1 = z1; u0 = x0; u1 = x1; v0 = y0; v1 = y1; break;
+			}
+
+			// Clip the segment to the slab [plane, plane + 1) along the normal axis.
+			// The upper bound is exclusive, so entities standing on top of a horizontal
+			// portal's frame level are not considered to be inside of it.
+			final var slab_max = plane + 1 - SLAB_EPSILON;
+			double t_min = 0.0;
+			double t_max = 1.0;
+			final var dn = n1 - n0;
+			if (dn == 0.0) {
+				if (n0 < plane || n0 > slab_max) {
+					return false;
+				}
+			} else {
+				final var t_a = (plane - n0) / dn;
+				final var t_b = (slab_max - n0) / dn;
+				t_min = Math.max(t_min, Math.min(t_a, t_b));
+				t_max = Math.min(t_max, Math.max(t_a, t_b));
+				if (t_min > t_max) {
+					return false;
+				}
+			}
+
+			// Endpoints of the clipped segment projected onto the plane
+			final var du = u1 - u0;
+			final var dv = v1 - v0;
+			final var a_u = u0 + du * t_min;
+			final var a_v = v0 + dv * t_min;
+			final var b_u = u0 + du * t_max;
+			final var b_v = v0 + dv * t_max;
+
+			// Reject by bounding rectangle before walking cells
+			if (Math.max(a_u, b_u) < min_u || Math.min(a_u, b_u) >= min_u + size_u
+				|| Math.max(a_v, b_v) < min_v || Math.min(a_v, b_v) >= min_v + size_v) {
+				return false;
+			}
+
+			return walk_cells(a_u, a_v, b_u, b_v);
+		}
+
+		// Visits all cells touched by the 2D segment from a to b in order
+		// (Amanatides & Woo grid traversal) and checks them against the area.
+		private boolean walk_cells(double a_u, double a_v, double b_u, double b_v) {
+			int u = (int)Math.floor(a_u);
+			int v = (int)Math.floor(a_v);
+			final int end_u = (int)Math.floor(b_u);
+			final int end_v = (int)Math.floor(b_v);
+
+			final var du = b_u - a_u;
+			final var dv = b_v - a_v;
+			final int step_u = du > 0 ? 1 : -1;
+			final int step_v = dv > 0 ? 1 : -1;
+			final var t_delta_u = du == 0.0 ? Double.POSITIVE_INFINITY : Math.abs(1.0 / du);
+			final var t_delta_v = dv == 0.0 ? Double.POSITIVE_INFINITY : Math.abs(1.0 / dv);
+			var t_max_u = du == 0.0 ? Double.POSITIVE_INFINITY : ((step_u > 0 ? u + 1 - a_u : a_u - u) * t_delta_u);
+			var t_max_v = dv == 0.0 ? Double.POSITIVE_INFINITY : ((step_v > 0 ? v + 1 - a_v : a_v - v) * t_delta_v);
+
+			// Each step moves one cell closer to the end, so this always terminates.
+			var steps = Math.abs(end_u - u) + Math.abs(end_v - v);
+			while (true) {
+				if (contains_cell(u, v)) {
+					return true;
+				}
+				if (steps-- <= 0) {
+					return false;
+				}
+				if (v == end_v || (u != end_u && t_max_u < t_max_v)) {
+					t_max_u += t_delta_u;
+					u += step_u;
+				} else {
+					t_max_v += t_delta_v;
+					v += step_v;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,368 @@
+package org.oddlama.vane.portals.portal;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+// Index of all portals for target selection. Portals are bucketed by world and by
+// visibility: public portals are visible to everyone, private portals are further
+// bucketed by their owner, and only portals with group visibility need to be checked
+// individually. Each bucket stores the horizontal spawn positions in primitive arrays,
+// ordered as an implicit kd-tree, so the portals nearest to a player can be enumerated
+// in order of distance without sorting all of them.
+// Buckets of a world are rebuilt lazily on the next query after any portal in that world
+// was added, removed, or changed its visibility.
+public class PortalTargetIndex {
+	private final Map<UUID, WorldTargets> worlds = new HashMap<>();
+
+	private WorldTargets world(final UUID world_id) {
+		return worlds.computeIfAbsent(world_id, k -> new WorldTargets());
+	}
+
+	public void add(final Portal portal) {
+		final var world = world(portal.spawn_world());
+		world.members.put(portal.id(), portal);
+		world.dirty = true;
+	}
+
+	public void remove(final Portal portal) {
+		final var world = worlds.get(portal.spawn_world());
+		if (world != null && world.members.remove(portal.id()) != null) {
+			world.dirty = true;
+		}
+	}
+
+	// Must be called after the visibility of a portal has changed.
+	public void update(final Portal portal) {
+		final var world = worlds.get(portal.spawn_world());
+		if (world != null) {
+			world.dirty = true;
+		}
+	}
+
+	// Returns all portals that the given player may select as a target, in the same order as
+	// Portal.TargetSelectionComparator: portals in the player's world by horizontal distance
+	// to (x, z), followed by portals in all other loaded worlds sorted by name.
+	// The returned list is materialized lazily, so accessing the first elements only costs
+	// a partial traversal of the buckets in the player's world.
+	// The group predicate is only evaluated for portals with group (internal) visibility.
+	public List<Portal> targets(
+		final UUID world_id,
+		double x,
+		double z,
+		final UUID player_id,
+		final UUID exclude_id,
+		final Predicate<Portal> is_group_visible,
+		final Predicate<UUID> is_world_loaded
+	) {
+		final var local = new ArrayList<Candidates>();
+		final var remote = new ArrayList<Candidates>();
+		for (final var entry : worlds.entrySet()) {
+			final var world = entry.getValue();
+			if (!entry.getKey().equals(world_id) && !is_world_loaded.test(entry.getKey())) {
+				continue;
+			}
+
+			world.rebuild_if_dirty();
+			final var candidates = entry.getKey().equals(world_id) ? local : remote;
+			if (world.public_bucket.size() > 0) {
+				candidates.add(new Candidates(world.public_bucket, null));
+			}
+
+			final var private_bucket = world.private_buckets.get(player_id);
+			if (private_bucket != null) {
+				candidates.add(new Candidates(private_bucket, null));
+			}
+
+			final var group_bucket = world.group_bucket;
+			if (group_bucket.size() > 0) {
+				final var visible = new BitSet(group_bucket.size());
+				for (int i = 0; i < group_bucket.size(); ++i) {
+					if (is_group_visible.test(group_bucket.portals[i])) {
+						visible.set(i);
+					}
+				}
+				candidates.add(new Candidates(group_bucket, visible));
+			}
+		}
+
+		return new TargetList(local, remote, x, z, exclude_id);
+	}
+
+	private static class WorldTargets {
+		private final Map<UUID, Portal> members = new LinkedHashMap<>();
+		private boolean dirty = true;
+
+		private Bucket public_bucket;
+		private Map<UUID, Bucket> private_buckets;
+		private Bucket group_bucket;
+
+		private void rebuild_if_dirty() {
+			if (!dirty) {
+				return;
+			}
+
+			final var public_portals = new ArrayList<Portal>();
+			final var private_portals = new HashMap<UUID, List<Portal>>();
+			final var group_portals = new ArrayList<Portal>();
+			for (final var portal : members.values()) {
+				switch (portal.visibility()) {
+					case PUBLIC:
+						public_portals.add(portal);
+						break;
+					case PRIVATE:
+						private_portals.computeIfAbsent(portal.owner(), k -> new ArrayList<>()).add(portal);
+						break;
+					case GROUP:
+					case GROUP_INTERNAL:
+						group_portals.add(portal);
+						break;
+				}
+			}
+
+			public_bucket = new Bucket(public_portals);
+			private_buckets = new HashMap<>();
+			for (final var entry : private_portals.entrySet()) {
+				private_buckets.put(entry.getKey(), new Bucket(entry.getValue()));
+			}
+			group_bucket = new Bucket(group_portals);
+			dirty = false;
+		}
+	}
+
+	// Portals with their spawn positions, ordered as an implicit kd-tree: The median of the
+	// range [lo, hi) is at (lo + hi) / 2 and splits the range by x on even and by z on odd depths.
+	private static class Bucket {
+		private final Portal[] portals;
+		private final double[] xs;
+		private final double[] zs;
+
+		private Bucket(final List<Portal> list) {
+			portals = list.toArray(new Portal[0]);
+			xs = new double[portals.length];
+			zs = new double[portals.length];
+			for (int i = 0; i < portals.length; ++i) {
+				final var spawn = portals[i].spawn();
+				xs[i] = spawn.getX();
+				zs[i] = spawn.getZ();
+			}
+
+			final var order = new Integer[portals.length];
+			for (int i = 0; i < order.length; ++i) {
+				order[i] = i;
+			}
+			build(order, 0, order.length, 0);
+
+			final var sorted_portals = new Portal[portals.length];
+			final var sorted_xs = new double[portals.length];
+			final var sorted_zs = new double[portals.length];
+			for (int i = 0; i < order.length; ++i) {
+				sorted_portals[i] = portals[order[i]];
+				sorted_xs[i] = xs[order[i]];
+				sorted_zs[i] = zs[order[i]];
+			}
+			System.arraycopy(sorted_portals, 0, portals, 0, portals.length);
+			System.arraycopy(sorted_xs, 0, xs, 0, xs.length);
+			System.arraycopy(sorted_zs, 0, zs, 0, zs.length);
+		}
+
+		private void build(final Integer[] order, int lo, int hi, int depth) {
+			if (hi - lo <= 1) {
+				return;
+			}
+
+			final var axis = depth % 2 == 0 ? xs : zs;
+			Arrays.sort(order, lo, hi, Comparator.comparingDouble(i -> axis[i]));
+			final var mid = (lo + hi) >>> 1;
+			build(order, lo, mid, depth + 1);
+			build(order, mid + 1, hi, depth + 1);
+		}
+
+		private int size() {
+			return portals.length;
+		}
+	}
+
+	private static class Candidates {
+		private final Bucket bucket;
+		// Visible portals by bucket index, or null if all are visible.
+		private final BitSet visible;
+
+		private Candidates(final Bucket bucket, final BitSet visible) {
+			this.bucket = bucket;
+			this.visible = visible;
+		}
+
+		private boolean is_visible(int i) {
+			return visible == null || visible.get(i);
+		}
+
+		private int count() {
+			return visible == null ? bucket.size() : visible.cardinality();
+		}
+
+		private boolean contains_visible(final UUID portal_id) {
+			for (int i = 0; i < bucket.size(); ++i) {
+				if (bucket.portals[i].id().equals(portal_id)) {
+					return is_visible(i);
+				}
+			}
+			return false;
+		}
+	}
+
+	// A pending element of the best-first search, which is either a single portal (point != -1)
+	// or a subtree [lo, hi) of a bucket together with the bounding rectangle of its region.
+	private static class SearchEntry {
+		private final Candidates candidates;
+		private final double distance;
+		private final int point;
+		private final int lo, hi, depth;
+		private final double min_x, max_x, min_z, max_z;
+
+		private SearchEntry(final Candidates candidates, double distance, int point, int lo, int hi, int depth,
+				double min_x, double max_x, double min_z, double max_z) {
+			this.candidates = candidates;
+			this.distance = distance;
+			this.point = point;
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+			this.min_x = min_x;
+			this.max_x = max_x;
+			this.min_z = min_z;
+			this.max_z = max_z;
+		}
+	}
+
+	private static class TargetList extends AbstractList<Portal> {
+		private final List<Candidates> remote;
+		private final double x, z;
+		private final UUID exclude_id;
+		private final int size;
+
+		private final ArrayList<Portal> materialized = new ArrayList<>();
+		private final PriorityQueue<SearchEntry> queue = new PriorityQueue<>(Comparator.comparingDouble(e -> e.distance));
+		private boolean remote_materialized = false;
+
+		private TargetList(final List<Candidates> local, final List<Candidates> remote, double x, double z, final UUID exclude_id) {
+			this.remote = remote;
+			this.x = x;
+			this.z = z;
+			this.exclude_id = exclude_id;
+
+			var size = 0;
+			for (final var candidates : local) {
+				size += candidates.count();
+				if (exclude_id != null && candidates.contains_visible(exclude_id)) {
+					--size;
+				}
+				push_subtree(candidates, 0, candidates.bucket.size(), 0,
+					Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+			}
+			for (final var candidates : remote) {
+				size += candidates.count();
+				if (exclude_id != null && candidates.contains_visible(exclude_id)) {
+					--size;
+				}
+			}
+			this.size = size;
+		}
+
+		private double distance_to_rect(double min_x, double max_x, double min_z, double max_z) {
+			final var dx = x < min_x ? min_x - x : (x > max_x ? x - max_x : 0.0);
+			final var dz = z < min_z ? min_z - z : (z > max_z ? z - max_z : 0.0);
+			return dx * dx + dz * dz;
+		}
+
+		private void push_subtree(final Candidates candidates, int lo, int hi, int depth,
+				double min_x, double max_x, double min_z, double max_z) {
+			if (lo >= hi) {
+				return;
+			}
+			queue.add(new SearchEntry(candidates, distance_to_rect(min_x, max_x, min_z, max_z), -1,
+				lo, hi, depth, min_x, max_x, min_z, max_z));
+		}
+
+		// Returns the next nearest visible portal in the player's world, or null if there is none left.
+		private Portal next_local() {
+			while (!queue.isEmpty()) {
+				final var entry = queue.poll();
+				final var candidates = entry.candidates;
+				final var bucket = candidates.bucket;
+				if (entry.point != -1) {
+					final var portal = bucket.portals[entry.point];
+					if (candidates.is_visible(entry.point) && !portal.id().equals(exclude_id)) {
+						return portal;
+					}
+					continue;
+				}
+
+				// Expand the subtree into its median point and both child subtrees
+				final var mid = (entry.lo + entry.hi) >>> 1;
+				final var px = bucket.xs[mid];
+				final var pz = bucket.zs[mid];
+				final var dx = px - x;
+				final var dz = pz - z;
+				queue.add(new SearchEntry(candidates, dx * dx + dz * dz, mid, 0, 0, 0, 0, 0, 0, 0));
+				if (entry.depth % 2 == 0) {
+					push_subtree(candidates, entry.lo, mid, entry.depth + 1, entry.min_x, px, entry.min_z, entry.max_z);
+					push_subtree(candidates, mid + 1, entry.hi, entry.depth + 1, px, entry.max_x, entry.min_z, entry.max_z);
+				} else {
+					push_subtree(candidates, entry.lo, mid, entry.depth + 1, entry.min_x, entry.max_x, entry.min_z, pz);
+					push_subtree(candidates, mid + 1, entry.hi, entry.depth + 1, entry.min_x, entry.max_x, pz, entry.max_z);
+				}
+			}
+			return null;
+		}
+
+		private void materialize_remote() {
+			remote_materialized = true;
+			final var portals = new ArrayList<Portal>();
+			for (final var candidates : remote) {
+				for (int i = 0; i < candidates.bucket.size(); ++i) {
+					final var portal = candidates.bucket.portals[i];
+					if (candidates.is_visible(i) && !portal.id().equals(exclude_id)) {
+						portals.add(portal);
+					}
+				}
+			}
+			portals.sort((a, b) -> a.name().compareToIgnoreCase(b.name()));
+			materialized.addAll(portals);
+		}
+
+		@Override
+		public Portal get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException(index);
+			}
+
+			while (materialized.size() <= index) {
+				final var next = remote_materialized ? null : next_local();
+				if (next != null) {
+					materialized.add(next);
+				} else if (!remote_materialized) {
+					materialize_remote();
+				} else {
+					// Cannot happen unless portals changed while the list was in use.
+					throw new IndexOutOfBoundsException(index);
+				}
+			}
+			return materialized.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
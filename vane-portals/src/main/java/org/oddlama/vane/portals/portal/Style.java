@@ -2,6 +2,7 @@ package org.oddlama.vane.portals.portal;
 
 import static org.oddlama.vane.core.persistent.PersistentSerializer.from_json;
 import static org.oddlama.vane.core.persistent.PersistentSerializer.to_json;
+import static org.oddlama.vane.util.MaterialUtil.material_from;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -10,6 +11,7 @@ import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
+import org.oddlama.vane.core.persistent.BinaryCodec;
 import org.oddlama.vane.util.StorageUtil;
 
 public class Style {
@@ -55,6 +57,35 @@ public class Style {
 		return style;
 	}
 
+	public static void serialize_binary(final Style style, final BinaryCodec.Writer out) {
+		out.write_namespaced_key(style.key);
+		write_materials(style.active_materials, out);
+		write_materials(style.inactive_materials, out);
+	}
+
+	public static Style deserialize_binary(final BinaryCodec.Reader in) throws IOException {
+		final var style = new Style(in.read_namespaced_key());
+		read_materials(style.active_materials, in);
+		read_materials(style.inactive_materials, in);
+		return style;
+	}
+
+	private static void write_materials(final Map<PortalBlock.Type, Material> materials, final BinaryCodec.Writer out) {
+		out.write_varint(materials.size());
+		for (final var entry : materials.entrySet()) {
+			out.write_enum(entry.getKey());
+			out.write_namespaced_key(entry.getValue().getKey());
+		}
+	}
+
+	private static void read_materials(final Map<PortalBlock.Type, Material> materials, final BinaryCodec.Reader in) throws IOException {
+		final var count = in.read_varint();
+		for (int i = 0; i < count; ++i) {
+			final var type = in.read_enum(PortalBlock.Type.values());
+			materials.put(type, material_from(in.read_namespaced_key()));
+		}
+	}
+
 	private NamespacedKey key;
 	private Map<PortalBlock.Type, Material> active_materials = new HashMap<>();
 	private Map<PortalBlock.Type, Material> inactive_materials = new HashMap<>();
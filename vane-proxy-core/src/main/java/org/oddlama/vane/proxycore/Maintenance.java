@@ -94,6 +94,7 @@ public class Maintenance {
 			player.disconnect(kick_message);
 		}
 
+		plugin.get_ping_responses().invalidate();
 		plugin.get_logger().log(Level.INFO, "Maintenance enabled!");
 	}
 
@@ -107,6 +108,8 @@ public class Maintenance {
 
 		// Delete file
 		file.delete();
+
+		plugin.get_ping_responses().invalidate();
 	}
 
 	public void abort() {
@@ -138,6 +141,7 @@ public class Maintenance {
 
 		// Save to file
 		save();
+		plugin.get_ping_responses().invalidate();
 
 		// Start tasks
 		task_enable.schedule();
@@ -197,7 +201,12 @@ public class Maintenance {
 	}
 
 	public String format_message(final String message) {
-		var timespan = start - System.currentTimeMillis();
+		return format_message(message, System.currentTimeMillis());
+	}
+
+	// Formats the message as it would be formatted at the given time
+	public String format_message(final String message, long now) {
+		var timespan = start - now;
 		final String time;
 
 		if (timespan <= 0) {
@@ -212,7 +221,7 @@ public class Maintenance {
 		String duration_string;
 		String remaining_string;
 		if (duration != null) {
-			var remaining = duration + (start - System.currentTimeMillis());
+			var remaining = duration + (start - now);
 			if (remaining > duration) {
 				remaining = duration;
 			} else if (remaining < 0) {
@@ -0,0 +1,231 @@
+package org.oddlama.vane.proxycore;
+
+import org.oddlama.vane.proxycore.listeners.PreLoginEvent;
+import org.oddlama.vane.proxycore.scheduler.ProxyScheduledTask;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Login state of the auth multiplexers, which is accessed concurrently from the event threads
+// of the proxy. Pending logins (pre-login done, game profile not yet requested) expire after
+// a timeout, so abandoned logins can't accumulate, and their total amount is bounded.
+// Multiplexed uuids that are registered before the login completed (see add_multiplexed_pending)
+// count as pending logins in the same way, until the login is confirmed.
+public class MultiplexerLogins {
+
+	public static final long PENDING_LOGIN_TIMEOUT_SECONDS = 30;
+	public static final int MAX_PENDING_LOGINS = 16384;
+
+	public static class PortCounters {
+
+		// Logins that passed pre-login authorization
+		public final LongAdder accepted = new LongAdder();
+		// Logins that were denied, or refused because too many logins were pending
+		public final LongAdder rejected = new LongAdder();
+		// Pending logins that completed
+		public final LongAdder completed = new LongAdder();
+		// Pending logins that were abandoned and expired
+		public final LongAdder expired = new LongAdder();
+		// Currently pending logins
+		public final AtomicInteger pending = new AtomicInteger();
+
+	}
+
+	private static class PendingLogin {
+
+		private final int port;
+		private final PreLoginEvent.MultiplexedPlayer player;
+		private final long expires_at;
+
+		private PendingLogin(int port, PreLoginEvent.MultiplexedPlayer player, long expires_at) {
+			this.port = port;
+			this.player = player;
+			this.expires_at = expires_at;
+		}
+
+	}
+
+	private static class Multiplexed {
+
+		private final int port;
+		private final UUID original_uuid;
+		// Long.MAX_VALUE once the login is confirmed
+		private final long expires_at;
+
+		private Multiplexed(int port, UUID original_uuid, long expires_at) {
+			this.port = port;
+			this.original_uuid = original_uuid;
+			this.expires_at = expires_at;
+		}
+
+		private boolean confirmed() {
+			return expires_at == Long.MAX_VALUE;
+		}
+
+	}
+
+	private final VaneProxyPlugin plugin;
+	// original uuid → pending login
+	private final ConcurrentHashMap<UUID, PendingLogin> pending = new ConcurrentHashMap<>();
+	// multiplexed uuid → original uuid
+	private final ConcurrentHashMap<UUID, Multiplexed> multiplexed_uuids = new ConcurrentHashMap<>();
+	// port → counters
+	private final ConcurrentHashMap<Integer, PortCounters> counters = new ConcurrentHashMap<>();
+	private final AtomicInteger pending_count = new AtomicInteger();
+	private ProxyScheduledTask purge_task = null;
+
+	public MultiplexerLogins(final VaneProxyPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+	public void start() {
+		purge_task = plugin.get_proxy().get_scheduler().schedule(plugin, this::purge_expired,
+				PENDING_LOGIN_TIMEOUT_SECONDS, PENDING_LOGIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	public void stop() {
+		if (purge_task != null) {
+			purge_task.cancel();
+			purge_task = null;
+		}
+		pending.clear();
+		pending_count.set(0);
+		multiplexed_uuids.clear();
+	}
+
+	public PortCounters counters(int port) {
+		return counters.computeIfAbsent(port, k -> new PortCounters());
+	}
+
+	// Reserves a slot for a pending login on the given port. Returns false if too many logins are pending.
+	private boolean reserve_pending(int port) {
+		if (pending_count.get() >= MAX_PENDING_LOGINS && purge_expired() == 0) {
+			counters(port).rejected.increment();
+			return false;
+		}
+
+		pending_count.incrementAndGet();
+		final var port_counters = counters(port);
+		port_counters.accepted.increment();
+		port_counters.pending.incrementAndGet();
+		return true;
+	}
+
+	private void release_pending(int port) {
+		pending_count.decrementAndGet();
+		counters(port).pending.decrementAndGet();
+	}
+
+	private static long pending_expiry() {
+		return System.nanoTime() + TimeUnit.SECONDS.toNanos(PENDING_LOGIN_TIMEOUT_SECONDS);
+	}
+
+	// Registers a pending login for the original uuid. Returns false if too many logins are pending.
+	public boolean add_pending(int port, UUID original_uuid, PreLoginEvent.MultiplexedPlayer player) {
+		if (!reserve_pending(port)) {
+			return false;
+		}
+
+		final var previous = pending.put(original_uuid, new PendingLogin(port, player, pending_expiry()));
+		if (previous != null) {
+			release_pending(previous.port);
+		}
+		return true;
+	}
+
+	public boolean has_pending() {
+		return pending_count.get() > 0;
+	}
+
+	// Removes and returns the pending login of the original uuid, or null if there is none or it expired.
+	public PreLoginEvent.MultiplexedPlayer complete_pending(UUID original_uuid) {
+		final var login = pending.remove(original_uuid);
+		if (login == null) {
+			return null;
+		}
+
+		release_pending(login.port);
+		if (login.expires_at - System.nanoTime() < 0) {
+			counters(login.port).expired.increment();
+			return null;
+		}
+
+		counters(login.port).completed.increment();
+		return login.player;
+	}
+
+	// Removes all expired pending logins and returns their amount.
+	public int purge_expired() {
+		final var now = System.nanoTime();
+		var purged = 0;
+		for (final var entry : pending.entrySet()) {
+			final var login = entry.getValue();
+			if (login.expires_at - now < 0 && pending.remove(entry.getKey(), login)) {
+				release_pending(login.port);
+				counters(login.port).expired.increment();
+				++purged;
+			}
+		}
+		for (final var entry : multiplexed_uuids.entrySet()) {
+			final var multiplexed = entry.getValue();
+			if (!multiplexed.confirmed() && multiplexed.expires_at - now < 0 && multiplexed_uuids.remove(entry.getKey(), multiplexed)) {
+				release_pending(multiplexed.port);
+				counters(multiplexed.port).expired.increment();
+				++purged;
+			}
+		}
+		return purged;
+	}
+
+	// Registers a multiplexed uuid of a player who completed the login.
+	public void add_multiplexed(UUID multiplexed_uuid, UUID original_uuid) {
+		final var previous = multiplexed_uuids.put(multiplexed_uuid, new Multiplexed(-1, original_uuid, Long.MAX_VALUE));
+		if (previous != null && !previous.confirmed()) {
+			release_pending(previous.port);
+		}
+	}
+
+	// Registers a multiplexed uuid before the login completed. It counts as a pending login
+	// and expires unless it is confirmed in time. Returns false if too many logins are pending.
+	public boolean add_multiplexed_pending(int port, UUID multiplexed_uuid, UUID original_uuid) {
+		if (!reserve_pending(port)) {
+			return false;
+		}
+
+		final var previous = multiplexed_uuids.put(multiplexed_uuid, new Multiplexed(port, original_uuid, pending_expiry()));
+		if (previous != null && !previous.confirmed()) {
+			release_pending(previous.port);
+		}
+		return true;
+	}
+
+	// Confirms a multiplexed uuid registered by add_multiplexed_pending once the login completed.
+	public void confirm_multiplexed(UUID multiplexed_uuid) {
+		final var multiplexed = multiplexed_uuids.get(multiplexed_uuid);
+		if (multiplexed == null || multiplexed.confirmed()) {
+			return;
+		}
+
+		if (multiplexed_uuids.replace(multiplexed_uuid, multiplexed, new Multiplexed(multiplexed.port, multiplexed.original_uuid, Long.MAX_VALUE))) {
+			release_pending(multiplexed.port);
+			counters(multiplexed.port).completed.increment();
+		}
+	}
+
+	public void remove_multiplexed(UUID multiplexed_uuid) {
+		final var multiplexed = multiplexed_uuids.remove(multiplexed_uuid);
+		if (multiplexed != null && !multiplexed.confirmed()) {
+			release_pending(multiplexed.port);
+		}
+	}
+
+	// Returns the original uuid of a multiplexed player, or the given uuid if it isn't multiplexed.
+	public UUID original_uuid(UUID uuid) {
+		final var multiplexed = multiplexed_uuids.get(uuid);
+		return multiplexed == null ? uuid : multiplexed.original_uuid;
+	}
+
+}
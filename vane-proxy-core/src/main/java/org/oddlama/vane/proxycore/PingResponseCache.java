@@ -0,0 +1,172 @@
+package org.oddlama.vane.proxycore;
+
+import org.jetbrains.annotations.Nullable;
+import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
+import org.oddlama.vane.proxycore.config.ManagedServer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+// Pre-rendered server list responses. The MOTD of each server is rendered once for every
+// quote and state, so answering a ping only picks one of the prepared variants. The
+// maintenance MOTD is rendered once per countdown bucket (see Maintenance.NOTIFY_TIMES)
+// and shows the remaining time as of the start of that bucket. Everything is invalidated
+// when the config is loaded or the maintenance state changes.
+public class PingResponseCache {
+
+	// A rendered string, together with its platform specific encoding, which
+	// the proxy implementation creates on first use.
+	public static class Rendered {
+
+		public final String value;
+		private volatile Object encoded;
+
+		private Rendered(String value) {
+			this.value = value;
+		}
+
+		@SuppressWarnings("unchecked")
+		public <T> T encoded(Function<String, T> encoder) {
+			var e = encoded;
+			if (e == null) {
+				e = encoded = encoder.apply(value);
+			}
+			return (T) e;
+		}
+
+	}
+
+	private static final Rendered EMPTY = new Rendered("");
+
+	private static class ServerResponses {
+
+		private final Rendered[] online_motds;
+		private final Rendered[] offline_motds;
+		private final @Nullable Rendered online_favicon;
+		private final @Nullable Rendered offline_favicon;
+
+		private ServerResponses(@Nullable ManagedServer cms) {
+			if (cms == null) {
+				online_motds = offline_motds = new Rendered[]{EMPTY};
+				online_favicon = offline_favicon = null;
+				return;
+			}
+
+			online_motds = render_all(cms.motd_variants(ManagedServer.ConfigItemSource.ONLINE));
+			offline_motds = render_all(cms.motd_variants(ManagedServer.ConfigItemSource.OFFLINE));
+			online_favicon = render(cms.favicon(ManagedServer.ConfigItemSource.ONLINE));
+			offline_favicon = render(cms.favicon(ManagedServer.ConfigItemSource.OFFLINE));
+		}
+
+		private static Rendered[] render_all(String[] values) {
+			final var rendered = new Rendered[values.length];
+			for (int i = 0; i < values.length; ++i) {
+				rendered[i] = new Rendered(values[i]);
+			}
+			return rendered;
+		}
+
+		private static @Nullable Rendered render(@Nullable String value) {
+			return value == null ? null : new Rendered(value);
+		}
+
+	}
+
+	private static class MaintenanceMotd {
+
+		private final Rendered motd;
+		// Absolute time in millis after which the motd must be rendered again
+		private final long expires_at;
+
+		private MaintenanceMotd(Rendered motd, long expires_at) {
+			this.motd = motd;
+			this.expires_at = expires_at;
+		}
+
+	}
+
+	private final VaneProxyPlugin plugin;
+	// server name → responses
+	private final ConcurrentHashMap<String, ServerResponses> servers = new ConcurrentHashMap<>();
+	private volatile MaintenanceMotd maintenance_motd = null;
+
+	public PingResponseCache(final VaneProxyPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+	public void invalidate() {
+		servers.clear();
+		maintenance_motd = null;
+	}
+
+	private ServerResponses responses(final IVaneProxyServerInfo server) {
+		return servers.computeIfAbsent(server.getName(),
+				name -> new ServerResponses(plugin.get_config().managed_servers.get(name)));
+	}
+
+	public Rendered motd(final IVaneProxyServerInfo server) {
+		final var maintenance = plugin.get_maintenance();
+		if (maintenance.enabled()) {
+			return maintenance_motd(maintenance);
+		}
+
+		final var responses = responses(server);
+		final var motds = plugin.is_online(server) ? responses.online_motds : responses.offline_motds;
+		return motds.length == 1 ? motds[0] : motds[ThreadLocalRandom.current().nextInt(motds.length)];
+	}
+
+	public @Nullable Rendered favicon(final IVaneProxyServerInfo server) {
+		final var responses = responses(server);
+		return plugin.is_online(server) ? responses.online_favicon : responses.offline_favicon;
+	}
+
+	private Rendered maintenance_motd(final Maintenance maintenance) {
+		final var now = System.currentTimeMillis();
+		final var cached = maintenance_motd;
+		if (cached != null && now < cached.expires_at) {
+			return cached.motd;
+		}
+
+		final var duration = maintenance.duration();
+		if (duration == null) {
+			// Indefinite maintenance shows no countdown
+			final var motd = new Rendered(maintenance.format_message(Maintenance.MOTD, now));
+			maintenance_motd = new MaintenanceMotd(motd, Long.MAX_VALUE);
+			return motd;
+		}
+
+		// Find the countdown bucket (lower, upper] of the remaining time
+		final var end = maintenance.start() + duration;
+		final var remaining = end - now;
+		if (remaining <= 0) {
+			// The countdown has ended and won't change anymore
+			final var motd = new Rendered(maintenance.format_message(Maintenance.MOTD, now));
+			maintenance_motd = new MaintenanceMotd(motd, Long.MAX_VALUE);
+			return motd;
+		}
+
+		final var largest = Maintenance.NOTIFY_TIMES[0];
+		long upper;
+		long lower;
+		if (remaining > largest) {
+			upper = (remaining + largest - 1) / largest * largest;
+			lower = upper - largest;
+		} else {
+			upper = largest;
+			lower = 0;
+			for (final var t : Maintenance.NOTIFY_TIMES) {
+				if (remaining > t) {
+					lower = t;
+					break;
+				}
+				upper = t;
+			}
+		}
+
+		final var motd = new Rendered(maintenance.format_message(Maintenance.MOTD, end - upper));
+		maintenance_motd = new MaintenanceMotd(motd, end - lower);
+		return motd;
+	}
+
+}
@@ -0,0 +1,200 @@
+package org.oddlama.vane.proxycore;
+
+import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
+import org.oddlama.vane.proxycore.config.ManagedServer;
+import org.oddlama.vane.proxycore.scheduler.ProxyScheduledTask;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+// Periodically probes each backend server with a non-blocking TCP connect and caches the
+// result, so that answering a server list ping or checking whether a server is up never
+// opens a connection. A server is probed once it is first queried. The cached state only
+// flips after a configurable amount of consecutive results to the contrary (hysteresis),
+// so a single lost probe doesn't make a server appear offline.
+public class ServerHealthProber {
+
+	public enum State {
+		UNKNOWN,
+		ONLINE,
+		OFFLINE,
+	}
+
+	private final VaneProxyPlugin plugin;
+	// server name → probe
+	private final ConcurrentHashMap<String, Probe> probes = new ConcurrentHashMap<>();
+	// Called with the server name and new state whenever the cached state of a server changes
+	private final CopyOnWriteArrayList<BiConsumer<String, State>> listeners = new CopyOnWriteArrayList<>();
+
+	public ServerHealthProber(final VaneProxyPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+	public void add_listener(final BiConsumer<String, State> listener) {
+		listeners.add(listener);
+	}
+
+	// Returns the cached state of the given server. This never blocks.
+	public State state(final IVaneProxyServerInfo server) {
+		return probe(server).state;
+	}
+
+	// Returns whether the given server is online. Only blocks if the server has never
+	// been probed before, and then at most for the probe timeout.
+	public boolean is_online(final IVaneProxyServerInfo server) {
+		final var probe = probe(server);
+		if (probe.state == State.UNKNOWN) {
+			try {
+				probe.first_result.get(probe.settings.timeout_ms + 100, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException | TimeoutException e) {
+				// Treat as offline
+			}
+		}
+		return probe.state == State.ONLINE;
+	}
+
+	// Probes the given server now, in addition to the periodic probes.
+	public void probe_now(final IVaneProxyServerInfo server) {
+		probe(server).run();
+	}
+
+	public void stop() {
+		for (final var probe : probes.values()) {
+			probe.task.cancel();
+		}
+		probes.clear();
+	}
+
+	private Probe probe(final IVaneProxyServerInfo server) {
+		return probes.computeIfAbsent(server.getName(), name -> {
+			final var cms = plugin.get_config().managed_servers.get(name);
+			final var settings = cms == null ? ManagedServer.HealthProbe.DEFAULT : cms.health_probe();
+			final var probe = new Probe(server, settings);
+			probe.task = plugin.get_proxy().get_scheduler()
+				.schedule(plugin, probe, 0, settings.interval_ms, TimeUnit.MILLISECONDS);
+			return probe;
+		});
+	}
+
+	private class Probe implements Runnable {
+
+		private final IVaneProxyServerInfo server;
+		private final ManagedServer.HealthProbe settings;
+		private final CompletableFuture<Void> first_result = new CompletableFuture<>();
+		private final AtomicBoolean in_flight = new AtomicBoolean(false);
+		private ProxyScheduledTask task;
+
+		private volatile State state = State.UNKNOWN;
+		// Consecutive results contradicting the current state
+		private int contrary = 0;
+
+		private Probe(final IVaneProxyServerInfo server, final ManagedServer.HealthProbe settings) {
+			this.server = server;
+			this.settings = settings;
+		}
+
+		@Override
+		public void run() {
+			// Skip this round if the previous probe hasn't finished yet
+			if (!in_flight.compareAndSet(false, true)) {
+				return;
+			}
+
+			if (!(server.getSocketAddress() instanceof final InetSocketAddress inet_addr)) {
+				finish(false);
+				return;
+			}
+
+			// Resolve unresolved addresses here in the background, never in a ping handler.
+			final var address = inet_addr.isUnresolved()
+				? new InetSocketAddress(inet_addr.getHostString(), inet_addr.getPort())
+				: inet_addr;
+			if (address.isUnresolved()) {
+				finish(false);
+				return;
+			}
+
+			final AsynchronousSocketChannel channel;
+			try {
+				channel = AsynchronousSocketChannel.open();
+			} catch (IOException e) {
+				finish(false);
+				return;
+			}
+
+			final var done = new AtomicBoolean(false);
+			final var timeout = plugin.get_proxy().get_scheduler().schedule(plugin, () -> {
+				if (done.compareAndSet(false, true)) {
+					close(channel);
+					finish(false);
+				}
+			}, settings.timeout_ms, TimeUnit.MILLISECONDS);
+
+			channel.connect(address, null, new CompletionHandler<Void, Void>() {
+				@Override
+				public void completed(Void result, Void attachment) {
+					if (done.compareAndSet(false, true)) {
+						timeout.cancel();
+						close(channel);
+						finish(true);
+					}
+				}
+
+				@Override
+				public void failed(Throwable exc, Void attachment) {
+					if (done.compareAndSet(false, true)) {
+						timeout.cancel();
+						close(channel);
+						finish(false);
+					}
+				}
+			});
+		}
+
+		private void finish(boolean online) {
+			final var observed = online ? State.ONLINE : State.OFFLINE;
+			var changed = false;
+			synchronized (this) {
+				if (state == State.UNKNOWN) {
+					state = observed;
+					changed = true;
+				} else if (state == observed) {
+					contrary = 0;
+				} else if (++contrary >= (online ? settings.rise : settings.fall)) {
+					state = observed;
+					contrary = 0;
+					changed = true;
+				}
+			}
+
+			in_flight.set(false);
+			first_result.complete(null);
+			if (changed) {
+				for (final var listener : listeners) {
+					listener.accept(server.getName(), observed);
+				}
+			}
+		}
+
+		private void close(final AsynchronousSocketChannel channel) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Nothing to do
+			}
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+package org.oddlama.vane.proxycore;
+
+import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
+import org.oddlama.vane.proxycore.config.ManagedServer;
+import org.oddlama.vane.proxycore.scheduler.ProxyScheduledTask;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+// Starts managed servers on demand. Each server goes through STOPPED → STARTING → ONLINE,
+// and all transitions of a server happen under its lock, so concurrent logins can never
+// run the start command twice. A start is complete once the health prober reports the
+// server as online, and fails if the start command fails or the server doesn't come up
+// within STARTING_TIMEOUT_SECONDS. Everyone who joins while the server is starting waits
+// for the same start.
+public class ServerStarter {
+
+	public static final long STARTING_TIMEOUT_SECONDS = 300;
+
+	public enum State {
+		STOPPED,
+		STARTING,
+		ONLINE,
+	}
+
+	private class Start {
+
+		private final ManagedServer server;
+		private volatile State state = State.STOPPED;
+		// Completes with true once the server is online, or false if the start failed
+		private CompletableFuture<Boolean> online = null;
+		private ProxyScheduledTask deadline = null;
+
+		private Start(final ManagedServer server) {
+			this.server = server;
+		}
+
+		private synchronized CompletableFuture<Boolean> begin(final IVaneProxyServerInfo server_info) {
+			if (state == State.ONLINE) {
+				if (plugin.get_health().state(server_info) == ServerHealthProber.State.ONLINE) {
+					return CompletableFuture.completedFuture(true);
+				}
+				// The server went down before the prober noticed
+				state = State.STOPPED;
+			}
+			if (state == State.STARTING) {
+				return online;
+			}
+
+			state = State.STARTING;
+			online = new CompletableFuture<>();
+			deadline = plugin.get_proxy().get_scheduler().schedule(plugin, () -> {
+				plugin.get_logger().log(Level.WARNING, "Server '" + server.id() + "' did not come online within " + STARTING_TIMEOUT_SECONDS + " seconds");
+				fail();
+			}, STARTING_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+			plugin.get_proxy().get_scheduler().runAsync(plugin, this::run_command);
+			return online;
+		}
+
+		private void run_command() {
+			plugin.get_logger().log(Level.INFO, "Running start command for server " + server.id());
+
+			final Process process;
+			try {
+				// Discard the output, so the command can never block on a full pipe.
+				process = new ProcessBuilder(server.start_cmd())
+						.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+						.redirectError(ProcessBuilder.Redirect.DISCARD)
+						.start();
+			} catch (IOException e) {
+				plugin.get_logger().log(Level.SEVERE, "Failed to run start command for server '" + server.id() + "'", e);
+				fail();
+				return;
+			}
+
+			final var timeout = plugin.get_proxy().get_scheduler().schedule(plugin, () -> {
+				if (process.isAlive()) {
+					plugin.get_logger().log(Level.SEVERE, "Server '" + server.id() + "'s start command timed out!");
+					process.destroy();
+				}
+			}, server.command_timeout(), TimeUnit.SECONDS);
+
+			process.onExit().thenAccept(p -> {
+				timeout.cancel();
+				if (p.exitValue() != 0) {
+					plugin.get_logger().log(Level.SEVERE, "Server '" + server.id() + "'s start command returned a nonzero exit code!");
+					fail();
+				}
+			});
+		}
+
+		private synchronized void fail() {
+			if (state != State.STARTING) {
+				return;
+			}
+			state = State.STOPPED;
+			deadline.cancel();
+			online.complete(false);
+		}
+
+		private synchronized void on_health_change(final ServerHealthProber.State health) {
+			if (health == ServerHealthProber.State.ONLINE) {
+				if (state == State.STARTING) {
+					deadline.cancel();
+					online.complete(true);
+				}
+				state = State.ONLINE;
+			} else if (state == State.ONLINE) {
+				state = State.STOPPED;
+			}
+		}
+
+	}
+
+	private final VaneProxyPlugin plugin;
+	// server name → start state
+	private final ConcurrentHashMap<String, Start> starts = new ConcurrentHashMap<>();
+
+	public ServerStarter(final VaneProxyPlugin plugin) {
+		this.plugin = plugin;
+		plugin.get_health().add_listener(this::on_health_change);
+	}
+
+	public State state(final String server_id) {
+		final var start = starts.get(server_id);
+		return start == null ? State.STOPPED : start.state;
+	}
+
+	// Starts the given server unless it is already starting or online. The returned future
+	// completes with true once the server is online, or with false if the start failed.
+	public CompletableFuture<Boolean> start(final ManagedServer server, final IVaneProxyServerInfo server_info) {
+		return starts.computeIfAbsent(server.id(), k -> new Start(server)).begin(server_info);
+	}
+
+	private void on_health_change(final String server_id, final ServerHealthProber.State health) {
+		final var start = starts.get(server_id);
+		if (start != null) {
+			start.on_health_change(health);
+		}
+	}
+
+	public void stop() {
+		for (final var start : starts.values()) {
+			start.fail();
+		}
+		starts.clear();
+	}
+
+}
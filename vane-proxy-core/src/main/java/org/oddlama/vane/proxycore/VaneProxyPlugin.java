@@ -1,18 +1,13 @@
 package org.oddlama.vane.proxycore;
 
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 import org.oddlama.vane.proxycore.config.ConfigManager;
 import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
-import org.oddlama.vane.proxycore.config.ManagedServer;
-import org.oddlama.vane.proxycore.listeners.PreLoginEvent;
 import org.oddlama.vane.proxycore.log.IVaneLogger;
+import org.oddlama.vane.util.ProfileResolver;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.LinkedHashMap;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -25,121 +20,81 @@ public abstract class VaneProxyPlugin {
 
 	public ConfigManager config = new ConfigManager(this);
 	public Maintenance maintenance = new Maintenance(this);
+	public ServerHealthProber health = new ServerHealthProber(this);
+	public ProfileResolver resolver;
+	public MultiplexerLogins multiplexer_logins = new MultiplexerLogins(this);
+	public PingResponseCache ping_responses = new PingResponseCache(this);
+	public ServerStarter server_starter = new ServerStarter(this);
 	public IVaneLogger logger;
 	public ProxyServer server;
 	public File data_dir;
 
-	private final LinkedHashMap<UUID, UUID> multiplexedUUIDs = new LinkedHashMap<>();
-	private final LinkedHashMap<UUID, PreLoginEvent.MultiplexedPlayer> pending_multiplexer_logins = new LinkedHashMap<>();
-	private boolean server_starting;
 
 	public boolean is_online(final IVaneProxyServerInfo server) {
-		final var addr = server.getSocketAddress();
-		if (!(addr instanceof final InetSocketAddress inet_addr)) {
-			return false;
-		}
-
-		var connected = false;
-		try (final var test = new Socket(inet_addr.getHostName(), inet_addr.getPort())) {
-			connected = test.isConnected();
-		} catch (IOException e) {
-			// Server not up or not reachable
-		}
-
-		return connected;
+		return health.is_online(server);
 	}
 
-	public String get_motd(final IVaneProxyServerInfo server) {
-		// Maintenance
-		if (maintenance.enabled()) {
-			return maintenance.format_message(Maintenance.MOTD);
-		}
+	public File get_data_folder() {
+		return data_dir;
+	}
 
-		final var cms = config.managed_servers.get(server.getName());
-		if (cms == null) return "";
+	public ProxyServer get_proxy() {
+		return server;
+	}
 
-		ManagedServer.ConfigItemSource source;
-		if (is_online(server)) {
-			source = ManagedServer.ConfigItemSource.ONLINE;
-		} else {
-			source = ManagedServer.ConfigItemSource.OFFLINE;
-		}
+	public @NotNull IVaneLogger get_logger() {
+		return logger;
+	}
 
-		return cms.motd(source);
+	public @NotNull Maintenance get_maintenance() {
+		return this.maintenance;
 	}
 
-	public @Nullable String get_favicon(final IVaneProxyServerInfo server) {
-		final var cms = config.managed_servers.get(server.getName());
-		if (cms == null) return null;
+	public ProfileResolver get_resolver() {
+		return resolver;
+	}
 
-		ManagedServer.ConfigItemSource source;
-		if (is_online(server)) {
-			source = ManagedServer.ConfigItemSource.ONLINE;
-		} else {
-			source = ManagedServer.ConfigItemSource.OFFLINE;
+	public void load_resolver() {
+		resolver = new ProfileResolver(
+				ProfileResolver.MOJANG,
+				task -> get_proxy().get_scheduler().runAsync(this, task),
+				TimeUnit.SECONDS.toMillis(get_config().uuid_cache.ttl_seconds),
+				get_config().uuid_cache.size,
+				new File(get_data_folder(), "uuid_cache.txt"));
+		try {
+			resolver.load();
+		} catch (IOException e) {
+			get_logger().log(Level.WARNING, "Failed to load uuid cache", e);
 		}
-
-		return cms.favicon(source);
 	}
 
-	public File get_data_folder() {
-		return data_dir;
+	public void save_resolver() {
+		if (resolver == null) return;
+
+		try {
+			resolver.save();
+		} catch (IOException e) {
+			get_logger().log(Level.WARNING, "Failed to save uuid cache", e);
+		}
+		resolver = null;
 	}
 
-	public ProxyServer get_proxy() {
-		return server;
+	public @NotNull PingResponseCache get_ping_responses() {
+		return this.ping_responses;
 	}
 
-	public @NotNull IVaneLogger get_logger() {
-		return logger;
+	public @NotNull ServerStarter get_server_starter() {
+		return this.server_starter;
 	}
 
-	public @NotNull Maintenance get_maintenance() {
-		return this.maintenance;
+	public @NotNull ServerHealthProber get_health() {
+		return this.health;
 	}
 
 	public @NotNull ConfigManager get_config() {
 		return this.config;
 	}
 
-	public void try_start_server(ManagedServer server) {
-		// FIXME: this is not async-safe and there might be conditions where two start commands can be executed 
-		// simultaneously. Don't rely on this as a user - instead use a start command that is atomic.
-		if (server_starting) return;
-
-		this.server.get_scheduler()
-				.runAsync(
-						this,
-						() -> {
-							try {
-								server_starting = true;
-								get_logger().log(Level.INFO, "Running start command for server " + server.id());
-								System.out.println("run start cmd for " + server.id()  + ": " + server.start_cmd());
-								final var timeout = server.command_timeout();
-								final var process = Runtime.getRuntime().exec(server.start_cmd());
-
-								if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
-									get_logger().log(
-											Level.SEVERE,
-											"Server '"
-													+ server.id()
-													+ "'s start command timed out!");
-								} else if (process.exitValue() != 0) {
-									get_logger().log(
-											Level.SEVERE,
-											"Server '"
-													+ server.id()
-													+ "'s start command returned a nonzero exit code!");
-								}
-							} catch (Exception e) {
-								e.printStackTrace();
-							}
-
-							server_starting = false;
-						}
-				);
-	}
-
 	@SuppressWarnings("BooleanMethodIsAlwaysInverted")
 	public boolean can_join_maintenance(UUID uuid) {
 		if (maintenance.enabled()) {
@@ -151,12 +106,8 @@ public abstract class VaneProxyPlugin {
 		return true;
 	}
 
-	public LinkedHashMap<UUID, UUID> get_multiplexed_uuids() {
-		return multiplexedUUIDs;
-	}
-
-	public LinkedHashMap<UUID, PreLoginEvent.MultiplexedPlayer> get_pending_multiplexer_logins() {
-		return pending_multiplexer_logins;
+	public MultiplexerLogins get_multiplexer_logins() {
+		return multiplexer_logins;
 	}
 
 }
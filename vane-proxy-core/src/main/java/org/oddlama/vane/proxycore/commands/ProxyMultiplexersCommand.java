@@ -0,0 +1,39 @@
+package org.oddlama.vane.proxycore.commands;
+
+import org.oddlama.vane.proxycore.ProxyPlayer;
+import org.oddlama.vane.proxycore.VaneProxyPlugin;
+
+public class ProxyMultiplexersCommand extends ProxyCommand {
+
+	public ProxyMultiplexersCommand(String permission, VaneProxyPlugin plugin) {
+		super(permission, plugin);
+	}
+
+	@Override
+	public void execute(ProxyCommandSender sender, String[] args) {
+		// Only check permission on players
+		if (sender instanceof ProxyPlayer player && !has_permission(player.get_unique_id())) {
+			sender.send_message("No permission!");
+			return;
+		}
+
+		final var multiplexers = plugin.get_config().multiplexer_by_id;
+		if (multiplexers.isEmpty()) {
+			sender.send_message("§7No auth multiplexers are configured.");
+			return;
+		}
+
+		final var logins = plugin.get_multiplexer_logins();
+		for (final var multiplexer : multiplexers.entrySet()) {
+			final var port = multiplexer.getValue().port;
+			final var counters = logins.counters(port);
+			sender.send_message("§7multiplexer §b" + multiplexer.getKey() + "§7 (port §b" + port + "§7): "
+					+ "§3" + counters.accepted.sum() + "§7 accepted, "
+					+ "§3" + counters.rejected.sum() + "§7 rejected, "
+					+ "§3" + counters.completed.sum() + "§7 completed, "
+					+ "§3" + counters.expired.sum() + "§7 expired, "
+					+ "§3" + counters.pending.get() + "§7 pending");
+		}
+	}
+
+}
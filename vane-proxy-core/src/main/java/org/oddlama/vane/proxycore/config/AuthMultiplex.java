@@ -6,15 +6,15 @@ import java.util.stream.Collectors;
 public class AuthMultiplex {
 
 	public Integer port;
-	private final List<UUID> allowed_uuids;
+	private final Set<UUID> allowed_uuids;
 
 	public AuthMultiplex(Integer port, List<String> allowed_uuids) {
 		this.port = port;
 
 		if (allowed_uuids == null || allowed_uuids.isEmpty()) {
-			this.allowed_uuids = List.of();
+			this.allowed_uuids = Set.of();
 		} else {
-			this.allowed_uuids = allowed_uuids.stream().filter(s -> !s.isEmpty()).map(UUID::fromString).collect(Collectors.toList());
+			this.allowed_uuids = allowed_uuids.stream().filter(s -> !s.isEmpty()).map(UUID::fromString).collect(Collectors.toCollection(HashSet::new));
 		}
 	}
 
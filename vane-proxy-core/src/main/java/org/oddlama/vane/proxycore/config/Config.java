@@ -14,6 +14,7 @@ public class Config {
 	// multiplexer_id, { Integer port, List<UUID> allowed_uuids }
 	public LinkedHashMap<Integer, AuthMultiplex> auth_multiplex;
 	public LinkedHashMap<String, ManagedServer> managed_servers;
+	public UuidCache uuid_cache;
 
 	public Config(File file) throws IOException {
 		CommentedFileConfig config = CommentedFileConfig.builder(file)
@@ -67,13 +68,16 @@ public class Config {
 					managed_server_config.get("display_name"),
 					managed_server_config.get("online"),
 					managed_server_config.get("offline"),
-					managed_server_config.get("start")
+					managed_server_config.get("start"),
+					managed_server_config.get("probe")
 			);
 
 			managed_servers.put(key, managed_server);
 		}
 
 		this.managed_servers = managed_servers;
+
+		this.uuid_cache = new UuidCache(config.get("uuid_cache"));
 	}
 
 }
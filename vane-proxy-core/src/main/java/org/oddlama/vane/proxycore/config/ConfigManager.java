@@ -15,6 +15,7 @@ public class ConfigManager {
 	public final Map<String, ManagedServer> managed_servers = new HashMap<>();
 	// port → alias id (starts at 1)
 	public final Map<Integer, AuthMultiplex> multiplexer_by_id = new HashMap<>();
+	public UuidCache uuid_cache = UuidCache.DEFAULT;
 	private final VaneProxyPlugin plugin;
 
 	public ConfigManager(final VaneProxyPlugin plugin) {
@@ -59,6 +60,8 @@ public class ConfigManager {
 
 		multiplexer_by_id.putAll(parsed_config.auth_multiplex);
 		managed_servers.putAll(parsed_config.managed_servers);
+		uuid_cache = parsed_config.uuid_cache;
+		plugin.get_ping_responses().invalidate();
 
 		return true;
 	}
@@ -9,14 +9,15 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
-import java.util.Random;
 
 public class ManagedServer {
 
 	public String display_name;
 	public ServerStart start;
+	public HealthProbe probe;
 
 	private final String id;
 	private final StatefulConfiguration online_config;
@@ -26,13 +27,15 @@ public class ManagedServer {
 						 String display_name,
 						 CommentedConfig online_config_section,
 						 CommentedConfig offline_config_section,
-						 CommentedConfig start) throws IOException {
+						 CommentedConfig start,
+						 CommentedConfig probe) throws IOException {
 		this.id = id;
 		this.display_name = display_name;
 
 		this.online_config = new StatefulConfiguration(id, display_name, online_config_section);
 		this.offline_config = new StatefulConfiguration(id, display_name, offline_config_section);
 		this.start = new ServerStart(id, display_name, start);
+		this.probe = new HealthProbe(id, probe);
 	}
 
 	public @NotNull String id() {
@@ -61,49 +64,45 @@ public class ManagedServer {
 		return start.kick_msg;
 	}
 
-	private String random_quote(ConfigItemSource source) {
-		final String[] quote_set;
-		switch (source) {
-			case ONLINE -> quote_set = online_config.quotes;
-			case OFFLINE -> quote_set = offline_config.quotes;
-			default -> {
-				return "";
-			}
-		}
-
-		if (quote_set == null || quote_set.length == 0) {
-			return "";
-		}
-		return quote_set[new Random().nextInt(quote_set.length)];
+	public int start_wait() {
+		return start.wait;
 	}
 
-	public String motd(ConfigItemSource source) {
+	// Returns the motd rendered with each quote, or just once if it contains no quote.
+	public String[] motd_variants(ConfigItemSource source) {
 		final String sourced_motd;
-		final ConfigItemSource quote_source;
+		final String[] quote_set;
 		switch (source) {
 			case ONLINE -> {
 				sourced_motd = online_config.motd;
-				quote_source = ConfigItemSource.ONLINE;
+				quote_set = online_config.quotes;
 			}
 			case OFFLINE -> {
 				sourced_motd = offline_config.motd;
-				quote_source = ConfigItemSource.OFFLINE;
+				quote_set = offline_config.quotes;
 			}
 			default -> {
-				return "";
+				return new String[]{""};
 			}
 		}
 
 		if (sourced_motd == null) {
-			return "";
+			return new String[]{""};
+		}
+		if (!sourced_motd.contains("{QUOTE}") || quote_set == null || quote_set.length == 0) {
+			return new String[]{sourced_motd.replace("{QUOTE}", "")};
 		}
-		return sourced_motd.replace("{QUOTE}", random_quote(quote_source));
+		return Arrays.stream(quote_set).map(quote -> sourced_motd.replace("{QUOTE}", quote)).toArray(String[]::new);
 	}
 
 	public Integer command_timeout() {
 		return start.timeout;
 	}
 
+	public HealthProbe health_probe() {
+		return probe;
+	}
+
 	public enum ConfigItemSource {
 		ONLINE,
 		OFFLINE,
@@ -183,14 +182,17 @@ public class ManagedServer {
 	private static class ServerStart {
 
 		private static final int DEFAULT_TIMEOUT_SECONDS = 10;
+		private static final int DEFAULT_WAIT_SECONDS = 20;
 		public String[] cmd;
 		public Integer timeout;
+		public int wait;
 		public String kick_msg;
 
 		public ServerStart(String id, String display_name, CommentedConfig config) {
 			List<String> cmd = config.get("cmd");
 			var timeout = config.get("timeout");
 			var kick_msg = config.get("kick_msg");
+			var wait = config.get("wait");
 
 			if (cmd != null) this.cmd = cmd.stream().map(s -> s.replace("{SERVER}", id)).toArray(String[]::new);
 			else this.cmd = null;
@@ -202,6 +204,11 @@ public class ManagedServer {
 				this.kick_msg = ((String) kick_msg).replace("{SERVER}", id).replace("{SERVER_DISPLAY_NAME}", display_name);
 			else this.kick_msg = null;
 
+			if (wait == null) this.wait = DEFAULT_WAIT_SECONDS;
+			else if (!(wait instanceof Integer) || (Integer) wait < 0)
+				throw new IllegalArgumentException("Managed server '" + id + "' has an invalid start wait time!");
+			else this.wait = (Integer) wait;
+
 			if (timeout == null) {
 				this.timeout = DEFAULT_TIMEOUT_SECONDS;
 				return;
@@ -215,4 +222,46 @@ public class ManagedServer {
 
 	}
 
+	public static class HealthProbe {
+
+		public static final HealthProbe DEFAULT = new HealthProbe(null, null);
+
+		private static final int DEFAULT_INTERVAL_MS = 2000;
+		private static final int DEFAULT_TIMEOUT_MS = 1000;
+		private static final int DEFAULT_RISE = 1;
+		private static final int DEFAULT_FALL = 2;
+		public final int interval_ms;
+		public final int timeout_ms;
+		public final int rise;
+		public final int fall;
+
+		public HealthProbe(String id, CommentedConfig config) {
+			// [managed_servers.my_server.probe]
+			if (config == null) {
+				// The whole section is missing
+				this.interval_ms = DEFAULT_INTERVAL_MS;
+				this.timeout_ms = DEFAULT_TIMEOUT_MS;
+				this.rise = DEFAULT_RISE;
+				this.fall = DEFAULT_FALL;
+				return;
+			}
+
+			this.interval_ms = positive_int(id, config, "interval", DEFAULT_INTERVAL_MS);
+			this.timeout_ms = positive_int(id, config, "timeout", DEFAULT_TIMEOUT_MS);
+			this.rise = positive_int(id, config, "rise", DEFAULT_RISE);
+			this.fall = positive_int(id, config, "fall", DEFAULT_FALL);
+		}
+
+		private static int positive_int(String id, CommentedConfig config, String key, int def) {
+			var value = config.get(key);
+			if (value == null) return def;
+
+			if (!(value instanceof Integer) || (Integer) value <= 0)
+				throw new IllegalArgumentException("Managed server '" + id + "' has an invalid probe " + key + "!");
+
+			return (Integer) value;
+		}
+
+	}
+
 }
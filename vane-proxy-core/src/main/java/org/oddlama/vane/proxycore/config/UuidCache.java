@@ -0,0 +1,37 @@
+package org.oddlama.vane.proxycore.config;
+
+import com.electronwill.nightconfig.core.CommentedConfig;
+
+public class UuidCache {
+
+	public static final UuidCache DEFAULT = new UuidCache(null);
+
+	private static final int DEFAULT_TTL_SECONDS = 6 * 60 * 60;
+	private static final int DEFAULT_SIZE = 4096;
+	public final int ttl_seconds;
+	public final int size;
+
+	public UuidCache(CommentedConfig config) {
+		// [uuid_cache]
+		if (config == null) {
+			// The whole section is missing
+			this.ttl_seconds = DEFAULT_TTL_SECONDS;
+			this.size = DEFAULT_SIZE;
+			return;
+		}
+
+		this.ttl_seconds = positive_int(config, "ttl", DEFAULT_TTL_SECONDS);
+		this.size = positive_int(config, "size", DEFAULT_SIZE);
+	}
+
+	private static int positive_int(CommentedConfig config, String key, int def) {
+		var value = config.get(key);
+		if (value == null) return def;
+
+		if (!(value instanceof Integer) || (Integer) value <= 0)
+			throw new IllegalArgumentException("The uuid cache has an invalid " + key + "!");
+
+		return (Integer) value;
+	}
+
+}
@@ -5,6 +5,8 @@ import org.oddlama.vane.proxycore.ProxyPendingConnection;
 import org.oddlama.vane.proxycore.VaneProxyPlugin;
 import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 public abstract class LoginEvent implements ProxyEvent, ProxyCancellableEvent {
@@ -25,7 +27,7 @@ public abstract class LoginEvent implements ProxyEvent, ProxyCancellableEvent {
 		// We're in the LoginEvent, the UUID should be resolved
 		assert connection_uuid != null;
 
-		final var uuid = plugin.get_multiplexed_uuids().getOrDefault(connection_uuid, connection_uuid);
+		final var uuid = plugin.get_multiplexer_logins().original_uuid(connection_uuid);
 
 		if (!plugin.can_join_maintenance(uuid)) {
 			this.cancel(plugin.get_maintenance().format_message(Maintenance.MESSAGE_CONNECT));
@@ -51,15 +53,29 @@ public abstract class LoginEvent implements ProxyEvent, ProxyCancellableEvent {
 				this.cancel("Could not start server");
 			} else {
 				// Client is connecting while startup
-				plugin.try_start_server(cms);
-
-				if (cms.start_kick_msg() == null) {
-					this.cancel("Server is starting");
-				} else {
-					this.cancel(cms.start_kick_msg());
+				final var online = plugin.get_server_starter().start(cms, server_info);
+				final var kick_msg = cms.start_kick_msg() == null ? "Server is starting" : cms.start_kick_msg();
+				if (cms.start_wait() == 0) {
+					this.cancel(kick_msg);
+					return;
 				}
+
+				// Hold the login until the server is online, and only kick the player
+				// if it takes longer than they are allowed to wait.
+				defer_until(online
+						.copy()
+						.completeOnTimeout(false, cms.start_wait(), TimeUnit.SECONDS)
+						.thenAccept(is_online -> {
+							if (!is_online) {
+								this.cancel(kick_msg);
+							}
+						}));
 			}
 		}
 	}
 
+	// Delays the login until the given future completes. The login may still
+	// be cancelled before that.
+	public abstract void defer_until(CompletableFuture<?> future);
+
 }
@@ -16,8 +16,9 @@ public abstract class PingEvent implements ProxyEvent {
 	}
 
 	public void fire() {
-		ping.set_description(plugin.get_motd(server));
-		ping.set_favicon(plugin.get_favicon(server));
+		final var responses = plugin.get_ping_responses();
+		ping.set_description(responses.motd(server));
+		ping.set_favicon(responses.favicon(server));
 
 		this.send_response();
 	}
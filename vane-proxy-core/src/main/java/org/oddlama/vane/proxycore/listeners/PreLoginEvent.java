@@ -3,22 +3,30 @@ package org.oddlama.vane.proxycore.listeners;
 import org.oddlama.vane.proxycore.Maintenance;
 import org.oddlama.vane.proxycore.ProxyPendingConnection;
 import org.oddlama.vane.proxycore.VaneProxyPlugin;
+import org.oddlama.vane.proxycore.config.AuthMultiplex;
 import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import static org.oddlama.vane.proxycore.Util.add_uuid;
-import static org.oddlama.vane.util.Resolve.resolve_uuid;
 
 public abstract class PreLoginEvent implements ProxyEvent, ProxyCancellableEvent {
 
 	public static String MESSAGE_MULTIPLEX_MOJANG_AUTH_NO_PERMISSION_KICK =
 			"§cYou have no permission to use this auth multiplexer!";
 
+	public static String MESSAGE_MULTIPLEX_TOO_MANY_PENDING_KICK =
+			"§cToo many players are logging in right now, please try again in a moment.";
+
+	private static final int RESOLVE_TIMEOUT_SECONDS = 10;
+
 	public VaneProxyPlugin plugin;
 
 	public PreLoginEvent(VaneProxyPlugin plugin) {
@@ -37,18 +45,25 @@ public abstract class PreLoginEvent implements ProxyEvent, ProxyCancellableEvent
 		final var multiplexer = plugin.get_config().get_multiplexer_for_port(port);
 		if (multiplexer == null) return;
 
-		final var multiplexer_id = multiplexer.getKey();
-
 		// This is pre-authentication, so we need to resolve the uuid ourselves.
-		String playerName = connection.get_name();
-		UUID uuid;
+		// The login is held until the uuid is resolved, without blocking any proxy thread.
+		final var player_name = connection.get_name();
+		defer_until(plugin.get_resolver()
+				.uuid(player_name)
+				.copy()
+				.orTimeout(RESOLVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+				.handle((uuid, e) -> {
+					if (e != null) {
+						plugin.get_logger().log(Level.WARNING, "Failed to resolve UUID for player '" + player_name + "'", e);
+					} else {
+						multiplex(destination, connection, port, multiplexer, uuid);
+					}
+					return null;
+				}));
+	}
 
-		try {
-			uuid = resolve_uuid(playerName);
-		} catch (IOException e) {
-			plugin.get_logger().log(Level.WARNING, "Failed to resolve UUID for player '" + playerName + "'", e);
-			return;
-		}
+	private void multiplex(PreLoginDestination destination, ProxyPendingConnection connection, int port, Map.Entry<Integer, AuthMultiplex> multiplexer, UUID uuid) {
+		final var multiplexer_id = multiplexer.getKey();
 
 		if (!plugin.can_join_maintenance(uuid)) {
 			this.cancel(plugin.get_maintenance().format_message(Maintenance.MESSAGE_CONNECT));
@@ -56,6 +71,7 @@ public abstract class PreLoginEvent implements ProxyEvent, ProxyCancellableEvent
 		}
 
 		if (!multiplexer.getValue().uuid_is_allowed(uuid)) {
+			plugin.get_multiplexer_logins().counters(port).rejected.increment();
 			this.cancel(MESSAGE_MULTIPLEX_MOJANG_AUTH_NO_PERMISSION_KICK);
 			return;
 		}
@@ -79,14 +95,28 @@ public abstract class PreLoginEvent implements ProxyEvent, ProxyCancellableEvent
 			return;
 		}
 
+		final var logins = plugin.get_multiplexer_logins();
 		switch (destination) {
-			case MULTIPLEXED_UUIDS -> plugin.get_multiplexed_uuids().put(multiplexed_player.new_uuid, multiplexed_player.original_uuid);
-			case PENDING_MULTIPLEXED_LOGINS -> plugin.get_pending_multiplexer_logins().put(uuid, multiplexed_player);
+			case MULTIPLEXED_UUIDS -> {
+				// Expires unless the login completes, see MultiplexerLogins.confirm_multiplexed
+				if (!logins.add_multiplexed_pending(port, multiplexed_player.new_uuid, multiplexed_player.original_uuid)) {
+					this.cancel(MESSAGE_MULTIPLEX_TOO_MANY_PENDING_KICK);
+				}
+			}
+			case PENDING_MULTIPLEXED_LOGINS -> {
+				if (!logins.add_pending(port, uuid, multiplexed_player)) {
+					this.cancel(MESSAGE_MULTIPLEX_TOO_MANY_PENDING_KICK);
+				}
+			}
 		}
 	}
 
 	public abstract boolean implementation_specific_auth(MultiplexedPlayer multiplexed_player);
 
+	// Delays the login until the given future completes. The login may still
+	// be cancelled before that.
+	public abstract void defer_until(CompletableFuture<?> future);
+
 	public static void register_auth_multiplex_player(IVaneProxyServerInfo server, PreLoginEvent.MultiplexedPlayer multiplexed_player) {
 		final var stream = new ByteArrayOutputStream();
 		final var out = new DataOutputStream(stream);
@@ -1,9 +1,12 @@
 package org.oddlama.vane.proxycore.listeners;
 
+import org.jetbrains.annotations.Nullable;
+import org.oddlama.vane.proxycore.PingResponseCache;
+
 public interface ProxyServerPing {
 
-	void set_description(String description);
+	void set_description(PingResponseCache.Rendered description);
 
-	void set_favicon(String encoded_favicon);
+	void set_favicon(@Nullable PingResponseCache.Rendered encoded_favicon);
 
 }
@@ -3,7 +3,7 @@ package org.oddlama.vane.regions;
 import static org.oddlama.vane.util.PlayerUtil.take_items;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -12,13 +12,11 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
-import com.google.common.collect.Sets;
-
 import org.apache.commons.lang.StringUtils;
-import org.bukkit.Chunk;
 import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -31,6 +29,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.event.world.WorldSaveEvent;
 import org.bukkit.event.world.WorldUnloadEvent;
@@ -49,6 +48,8 @@ import org.oddlama.vane.annotation.lang.LangMessage;
 import org.oddlama.vane.annotation.persistent.Persistent;
 import org.oddlama.vane.core.lang.TranslatedMessage;
 import org.oddlama.vane.core.module.Module;
+import org.oddlama.vane.core.persistent.BinaryCodec;
+import org.oddlama.vane.core.persistent.PersistentJournal;
 import org.oddlama.vane.core.persistent.PersistentSerializer;
 import org.oddlama.vane.regions.event.RegionEnvironmentSettingEnforcer;
 import org.oddlama.vane.regions.event.RegionRoleSettingEnforcer;
@@ -60,6 +61,8 @@ import org.oddlama.vane.regions.region.EnvironmentSetting;
 import org.oddlama.vane.regions.region.Region;
 import org.oddlama.vane.regions.region.RegionExtent;
 import org.oddlama.vane.regions.region.RegionGroup;
+import org.oddlama.vane.regions.region.RegionIndex;
+import org.oddlama.vane.regions.region.RegionProtectionCache;
 import org.oddlama.vane.regions.region.RegionSelection;
 import org.oddlama.vane.regions.region.Role;
 import org.oddlama.vane.regions.region.RoleSetting;
@@ -165,8 +168,12 @@ public class Regions extends Module<Regions> {
 	@Persistent
 	private Map<UUID, UUID> storage_default_region_group = new HashMap<>();
 
-	// Per-chunk lookup cache (world_id → chunk_key → [possible regions])
-	private Map<UUID, Map<Long, List<Region>>> regions_in_chunk_in_world = new HashMap<>();
+	// Spatial index for region lookups (one R-tree per world)
+	private final RegionIndex region_index = new RegionIndex();
+	// Tracks which regions need to be written to or removed from the world storage
+	private final PersistentJournal persistent_journal = new PersistentJournal();
+	// Resolved environment settings per chunk, derived from the index and the region groups
+	private final RegionProtectionCache protection_cache = new RegionProtectionCache(this, region_index);
 	// A map containing the current extent for each player who is currently selecting a region
 	// No key → Player not in selection mode
 	// extent.min or extent.max null → Selection mode active, but no selection has been made yet
@@ -239,6 +246,12 @@ public class Regions extends Module<Regions> {
 		return economy.setup(vault_api_plugin);
 	}
 
+	@Override
+	public void on_config_change() {
+		// Global environment overrides are baked into the cached settings
+		protection_cache.invalidate();
+	}
+
 	@Override
 	public void on_enable() {
 		final var portals_plugin = get_module().getServer().getPluginManager().getPlugin("vane-portals");
@@ -504,6 +517,8 @@ public class Regions extends Module<Regions> {
 			// Was already removed
 			return;
 		}
+		region.journal(null);
+		persistent_journal.mark_removed(region.extent().world(), region.id());
 
 		// Force update storage now, as a precaution.
 		update_persistent_data();
@@ -539,99 +554,73 @@ public class Regions extends Module<Regions> {
 
 	private void index_region(final Region region) {
 		regions.put(region.id(), region);
-
-		// Adds the region to the lookup map at all intersecting chunks
-		final var min = region.extent().min();
-		final var max = region.extent().max();
-
-		final var world_id = min.getWorld().getUID();
-		var regions_in_chunk = regions_in_chunk_in_world.computeIfAbsent(world_id, k -> new HashMap<>());
-
-		final var min_chunk = min.getChunk();
-		final var max_chunk = max.getChunk();
-
-		// Iterate all the chunks which intersect the region
-		for (int cx = min_chunk.getX(); cx <= max_chunk.getX(); ++cx) {
-			for (int cz = min_chunk.getZ(); cz <= max_chunk.getZ(); ++cz) {
-				final var chunk_key = Chunk.getChunkKey(cx, cz);
-				var possible_regions = regions_in_chunk.computeIfAbsent(chunk_key, k -> new ArrayList<>());
-				possible_regions.add(region);
-			}
+		region.journal(persistent_journal);
+		if (region.invalidated) {
+			region.invalidate();
 		}
 
+		// Add the region to the spatial index
+		region_index.add(region);
+		protection_cache.invalidate();
+
 		// Create map marker
 		update_marker(region);
 	}
 
 	private void index_remove_region(final Region region) {
-		// Removes the region from the lookup map at all intersecting chunks
-		final var min = region.extent().min();
-		final var max = region.extent().max();
-
-		final var world_id = min.getWorld().getUID();
-		final var regions_in_chunk = regions_in_chunk_in_world.get(world_id);
-		if (regions_in_chunk == null) {
-			return;
-		}
+		region_index.remove(region);
+		protection_cache.invalidate();
+	}
 
-		final var min_chunk = min.getChunk();
-		final var max_chunk = max.getChunk();
+	public RegionProtectionCache protection_cache() {
+		return protection_cache;
+	}
 
-		// Iterate all the chunks which intersect the region
-		for (int cx = min_chunk.getX(); cx <= max_chunk.getX(); ++cx) {
-			for (int cz = min_chunk.getZ(); cz <= max_chunk.getZ(); ++cz) {
-				final var chunk_key = Chunk.getChunkKey(cx, cz);
-				final var possible_regions = regions_in_chunk.get(chunk_key);
-				if (possible_regions == null) {
-					continue;
-				}
-				possible_regions.remove(region);
-			}
-		}
+	// Must be called whenever the environment settings of a region group
+	// or the region group of a region have been changed.
+	public void invalidate_protection_cache() {
+		protection_cache.invalidate();
 	}
 
 	public Region region_at(final Location loc) {
-		final var world_id = loc.getWorld().getUID();
-		final var regions_in_chunk = regions_in_chunk_in_world.get(world_id);
-		if (regions_in_chunk == null) {
-			return null;
-		}
-
-		final var chunk_key = loc.getChunk().getChunkKey();
-		final var possible_regions = regions_in_chunk.get(chunk_key);
-		if (possible_regions == null) {
-			return null;
-		}
-
-		for (final var region : possible_regions) {
-			if (region.extent().is_inside(loc)) {
-				return region;
-			}
-		}
-
-		return null;
+		return region_index.region_at(loc.getWorld().getUID(), loc.getX(), loc.getY(), loc.getZ());
 	}
 
 	public Region region_at(final Block block) {
-		final var world_id = block.getWorld().getUID();
-		final var regions_in_chunk = regions_in_chunk_in_world.get(world_id);
-		if (regions_in_chunk == null) {
-			return null;
-		}
+		return region_index.region_at(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+	}
 
-		final var chunk_key = block.getChunk().getChunkKey();
-		final var possible_regions = regions_in_chunk.get(chunk_key);
-		if (possible_regions == null) {
-			return null;
+	// Returns a bitset of the indices of all given blocks that are inside a region
+	// whose resolved environment setting equals check_against.
+	// The blocks are resolved in one pass, grouped by chunk. All blocks must be in the same world.
+	public BitSet check_setting_at(final List<Block> blocks, final EnvironmentSetting setting, final boolean check_against) {
+		if (blocks.isEmpty()) {
+			return new BitSet();
 		}
+		return protection_cache.check_setting_at(blocks.get(0).getWorld().getUID(), blocks, setting, check_against);
+	}
 
-		for (final var region : possible_regions) {
-			if (region.extent().is_inside(block)) {
-				return region;
-			}
+	// Returns a bitset of the indices of all given blocks that are inside a region matching the predicate.
+	// The blocks are resolved in one pass, grouped by chunk. All blocks must be in the same world.
+	public BitSet filter_regions_at(final List<Block> blocks, final Predicate<Region> predicate) {
+		if (blocks.isEmpty()) {
+			return new BitSet();
 		}
-
-		return null;
+		return protection_cache.filter_regions_at(blocks.get(0).getWorld().getUID(), blocks, predicate);
+	}
+
+	public boolean intersects_any_region(final RegionExtent extent) {
+		final var min = extent.min();
+		final var max = extent.max();
+		return region_index.any_intersecting(
+			extent.world(),
+			min.getX(),
+			min.getY(),
+			min.getZ(),
+			max.getX(),
+			max.getY(),
+			max.getZ()
+		);
 	}
 
 	public boolean may_administrate(final Player player, final RegionGroup group) {
@@ -683,6 +672,14 @@ public class Regions extends Module<Regions> {
 	public void on_unload_world(final WorldUnloadEvent event) {
 		// Save data before unloading a world (not called on stop)
 		update_persistent_data(event.getWorld());
+		protection_cache.invalidate_world(event.getWorld().getUID());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void on_unload_chunk(final ChunkUnloadEvent event) {
+		// Keep the protection cache limited to loaded chunks
+		final var chunk = event.getChunk();
+		protection_cache.invalidate_chunk(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ());
 	}
 
 	public static final NamespacedKey STORAGE_REGIONS = StorageUtil.namespaced_key("vane_regions", "regions");
@@ -699,10 +696,19 @@ public class Regions extends Module<Regions> {
 			.collect(Collectors.toSet());
 
 		for (final var region_id : pdc_regions) {
-			final var json_bytes = data.get(NamespacedKey.fromString(storage_region_prefix + region_id.toString()),
+			final var bytes = data.get(NamespacedKey.fromString(storage_region_prefix + region_id.toString()),
 				PersistentDataType.BYTE_ARRAY);
 			try {
-				final var region = PersistentSerializer.from_json(Region.class, new JSONObject(new String(json_bytes)));
+				// Regions are stored in binary format, but older ones may still be stored as json.
+				final Region region;
+				if (BinaryCodec.is_binary(bytes)) {
+					region = Region.deserialize_binary(bytes);
+					region.invalidated = false;
+				} else {
+					// Rewrite in binary format on next save
+					region = PersistentSerializer.from_json(Region.class, new JSONObject(new String(bytes)));
+					region.invalidated = true;
+				}
 				index_region(region);
 			} catch (IOException e) {
 				log.log(Level.SEVERE, "error while serializing persistent data!", e);
@@ -724,7 +730,7 @@ public class Regions extends Module<Regions> {
 			}
 
 			index_region(region);
-			region.invalidated = true;
+			region.invalidate();
 			converted += 1;
 		}
 
@@ -747,34 +753,30 @@ public class Regions extends Module<Regions> {
 	}
 
 	public void update_persistent_data(final World world) {
+		final var world_id = world.getUID();
+		if (persistent_journal.is_empty(world_id)) {
+			return;
+		}
+
 		final var data = world.getPersistentDataContainer();
 		final var storage_region_prefix = STORAGE_REGIONS + ".";
 
 		// Update invalidated regions
-		regions.values().stream()
-			.filter(x -> x.invalidated && x.extent().world().equals(world.getUID()))
-			.forEach(region -> {
-				try {
-					final var json = PersistentSerializer.to_json(Region.class, region);
-					data.set(NamespacedKey.fromString(storage_region_prefix + region.id().toString()),
-						PersistentDataType.BYTE_ARRAY, json.toString().getBytes());
-				} catch (IOException e) {
-					log.log(Level.SEVERE, "error while serializing persistent data!", e);
-					return;
-				}
-
-				region.invalidated = false;
-			});
+		for (final var region_id : persistent_journal.take_changed(world_id)) {
+			final var region = regions.get(region_id);
+			if (region == null || !region.invalidated) {
+				continue;
+			}
 
-		// Get all currently stored regions.
-		final var stored_regions = data.getKeys().stream()
-			.filter(key -> key.toString().startsWith(storage_region_prefix))
-			.map(key -> StringUtils.removeStart(key.toString(), storage_region_prefix))
-			.map(uuid -> UUID.fromString(uuid))
-			.collect(Collectors.toSet());
+			data.set(NamespacedKey.fromString(storage_region_prefix + region_id.toString()),
+				PersistentDataType.BYTE_ARRAY, Region.serialize_binary(region));
+			region.invalidated = false;
+		}
 
 		// Remove all regions that no longer exist
-		Sets.difference(stored_regions, regions.keySet()).forEach(id -> data.remove(NamespacedKey.fromString(storage_region_prefix + id.toString())));
+		for (final var region_id : persistent_journal.take_removed(world_id)) {
+			data.remove(NamespacedKey.fromString(storage_region_prefix + region_id.toString()));
+		}
 	}
 
 	@Override
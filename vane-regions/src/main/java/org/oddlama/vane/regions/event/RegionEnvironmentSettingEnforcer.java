@@ -1,5 +1,6 @@
 package org.oddlama.vane.regions.event;
 
+import java.util.List;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -33,35 +34,50 @@ public class RegionEnvironmentSettingEnforcer extends Listener<Regions> {
 		final EnvironmentSetting setting,
 		final boolean check_against
 	) {
-		final var region = get_module().region_at(location);
-		if (region == null) {
-			return false;
-		}
-
-		final var group = region.region_group(get_module());
-		return group.get_setting(setting) == check_against;
+		return get_module()
+			.protection_cache()
+			.check_setting_at(
+				location.getWorld().getUID(),
+				location.getBlockX(),
+				location.getBlockY(),
+				location.getBlockZ(),
+				setting,
+				check_against
+			);
 	}
 
 	public boolean check_setting_at(final Block block, final EnvironmentSetting setting, final boolean check_against) {
-		final var region = get_module().region_at(block);
-		if (region == null) {
-			return false;
+		return get_module()
+			.protection_cache()
+			.check_setting_at(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ(), setting, check_against);
+	}
+
+	private void remove_protected_blocks(final List<Block> blocks) {
+		final var protected_blocks = get_module().check_setting_at(blocks, EnvironmentSetting.EXPLOSIONS, false);
+		if (protected_blocks.isEmpty()) {
+			return;
 		}
 
-		final var group = region.region_group(get_module());
-		return group.get_setting(setting) == check_against;
+		// Compact the list in-place, keeping the order of the remaining blocks
+		int size = 0;
+		for (int i = 0; i < blocks.size(); ++i) {
+			if (!protected_blocks.get(i)) {
+				blocks.set(size++, blocks.get(i));
+			}
+		}
+		blocks.subList(size, blocks.size()).clear();
 	}
 
 	@EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
 	public void on_block_explode(final BlockExplodeEvent event) {
 		// Prevent explosions from removing region blocks
-		event.blockList().removeIf(block -> check_setting_at(block, EnvironmentSetting.EXPLOSIONS, false));
+		remove_protected_blocks(event.blockList());
 	}
 
 	@EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
 	public void on_entity_explode(final EntityExplodeEvent event) {
 		// Prevent explosions from removing region blocks
-		event.blockList().removeIf(block -> check_setting_at(block, EnvironmentSetting.EXPLOSIONS, false));
+		remove_protected_blocks(event.blockList());
 	}
 
 	@EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
@@ -78,13 +78,16 @@ public class RegionPortalRoleSettingEnforcer extends Listener<Regions> {
 	@EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
 	public void on_portal_construct(final PortalConstructEvent event) {
 		// We have to check all blocks here, because otherwise players
-		// could "steal" boundary blocks from unowned regions
-		for (final var block : event.getBoundary().all_blocks()) {
-			// Portals in regions may only be constructed by region administrators
-			if (check_setting_at(block, event.getPlayer(), RoleSetting.ADMIN, false)) {
-				event.setCancelled(true);
-				return;
-			}
+		// could "steal" boundary blocks from unowned regions.
+		// Portals in regions may only be constructed by region administrators
+		final var player_id = event.getPlayer().getUniqueId();
+		final var denied = get_module()
+			.filter_regions_at(
+				event.getBoundary().all_blocks(),
+				region -> !region.region_group(get_module()).get_role(player_id).get_setting(RoleSetting.ADMIN)
+			);
+		if (!denied.isEmpty()) {
+			event.setCancelled(true);
 		}
 	}
 
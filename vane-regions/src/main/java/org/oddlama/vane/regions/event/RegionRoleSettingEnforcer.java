@@ -45,6 +45,12 @@ public class RegionRoleSettingEnforcer extends Listener<Regions> {
 		final RoleSetting setting,
 		final boolean check_against
 	) {
+		// Most interactions happen in unclaimed land, so skip the lookup if the chunk has no region at all.
+		final var world_id = location.getWorld().getUID();
+		if (!get_module().protection_cache().has_region_in_chunk(world_id, location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+			return false;
+		}
+
 		final var region = get_module().region_at(location);
 		if (region == null) {
 			return false;
@@ -60,6 +66,11 @@ public class RegionRoleSettingEnforcer extends Listener<Regions> {
 		final RoleSetting setting,
 		final boolean check_against
 	) {
+		final var world_id = block.getWorld().getUID();
+		if (!get_module().protection_cache().has_region_in_chunk(world_id, block.getX() >> 4, block.getZ() >> 4)) {
+			return false;
+		}
+
 		final var region = get_module().region_at(block);
 		if (region == null) {
 			return false;
@@ -368,6 +368,7 @@ public class RegionGroupMenu extends ModuleComponent<Regions> {
 					}
 
 					group.settings().put(setting, !group.get_setting(setting));
+					get_module().invalidate_protection_cache();
 					mark_persistent_storage_dirty();
 					menu.update();
 					return ClickResult.SUCCESS;
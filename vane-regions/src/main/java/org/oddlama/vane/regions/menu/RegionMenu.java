@@ -229,6 +229,7 @@ public class RegionMenu extends ModuleComponent<Regions> {
 
 							m.close(player2);
 							region.region_group_id(group.id());
+							get_module().invalidate_protection_cache();
 							mark_persistent_storage_dirty();
 							menu.open(player2);
 							return ClickResult.SUCCESS;
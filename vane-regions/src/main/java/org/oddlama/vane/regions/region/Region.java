@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.util.UUID;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
+import org.oddlama.vane.core.persistent.BinaryCodec;
+import org.oddlama.vane.core.persistent.PersistentJournal;
 import org.oddlama.vane.regions.Regions;
 
 public class Region {
@@ -34,6 +36,35 @@ public class Region {
 		return region;
 	}
 
+	// Version of the binary format written by serialize_binary.
+	// Increment when changing the format and keep reading older versions.
+	private static final int BINARY_VERSION = 1;
+
+	public static byte[] serialize_binary(final Region region) {
+		final var out = new BinaryCodec.Writer(BINARY_VERSION);
+		out.write_uuid(region.id);
+		out.write_nullable_string(region.name);
+		out.write_nullable_uuid(region.owner);
+		out.write_nullable_uuid(region.region_group);
+		RegionExtent.serialize_binary(region.extent, out);
+		return out.to_byte_array();
+	}
+
+	public static Region deserialize_binary(final byte[] data) throws IOException {
+		final var in = new BinaryCodec.Reader(data);
+		if (in.version() != BINARY_VERSION) {
+			throw new IOException("Unsupported binary region format version " + in.version());
+		}
+
+		final var region = new Region();
+		region.id = in.read_uuid();
+		region.name = in.read_nullable_string();
+		region.owner = in.read_nullable_uuid();
+		region.region_group = in.read_nullable_uuid();
+		region.extent = RegionExtent.deserialize_binary(in);
+		return region;
+	}
+
 	private Region() {}
 
 	public Region(final String name, final UUID owner, final RegionExtent extent, final UUID region_group) {
@@ -50,7 +81,24 @@ public class Region {
 	private RegionExtent extent;
 	private UUID region_group;
 
+	// Whether the region should be saved on next occasion.
+	// Not a saved field.
 	public boolean invalidated = true;
+	// The journal that is notified when this region is invalidated.
+	// Not a saved field.
+	private PersistentJournal journal = null;
+
+	public void journal(final PersistentJournal journal) {
+		this.journal = journal;
+	}
+
+	// Marks the region to be saved on next occasion.
+	public void invalidate() {
+		invalidated = true;
+		if (journal != null) {
+			journal.mark_changed(extent.world(), id);
+		}
+	}
 
 	public UUID id() {
 		return id;
@@ -62,7 +110,7 @@ public class Region {
 
 	public void name(final String name) {
 		this.name = name;
-		this.invalidated = true;
+		invalidate();
 	}
 
 	public UUID owner() {
@@ -82,7 +130,7 @@ public class Region {
 	public void region_group_id(final UUID region_group) {
 		this.region_group = region_group;
 		this.cached_region_group = null;
-		this.invalidated = true;
+		invalidate();
 	}
 
 	public RegionGroup region_group(final Regions regions) {
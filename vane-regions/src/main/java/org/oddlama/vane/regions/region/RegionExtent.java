@@ -11,6 +11,7 @@ import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
+import org.oddlama.vane.core.persistent.BinaryCodec;
 import org.oddlama.vane.util.LazyBlock;
 
 public class RegionExtent {
@@ -30,6 +31,23 @@ public class RegionExtent {
 		return new RegionExtent(min, max);
 	}
 
+	public static void serialize_binary(final RegionExtent extent, final BinaryCodec.Writer out) {
+		out.write_nullable_uuid(extent.min.world_id());
+		out.write_block_delta(extent.min.x(), extent.min.y(), extent.min.z(), 0, 0, 0);
+		out.write_block_delta(extent.max.x(), extent.max.y(), extent.max.z(), extent.min.x(), extent.min.y(), extent.min.z());
+	}
+
+	public static RegionExtent deserialize_binary(final BinaryCodec.Reader in) throws IOException {
+		final var world_id = in.read_nullable_uuid();
+		final var min_x = in.read_zigzag();
+		final var min_y = in.read_zigzag();
+		final var min_z = in.read_zigzag();
+		final var max_x = min_x + in.read_zigzag();
+		final var max_y = min_y + in.read_zigzag();
+		final var max_z = min_z + in.read_zigzag();
+		return new RegionExtent(new LazyBlock(world_id, min_x, min_y, min_z), new LazyBlock(world_id, max_x, max_y, max_z));
+	}
+
 	// Both inclusive, so we don't run into errors with
 	// blocks outside of the world (y<min_height || y>max_height).
 	// Also, coordinates are sorted, so min is always the smaller coordinate on each axis.
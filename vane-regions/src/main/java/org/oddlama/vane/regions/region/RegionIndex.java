@@ -0,0 +1,276 @@
+package org.oddlama.vane.regions.region;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Spatial index for regions, with one R-tree per world. The trees are bulk-loaded using
+// the sort-tile-recursive (STR) algorithm, so they are tightly packed and point queries
+// take O(log n). Adding or removing a region only records the change and marks the tree
+// of that world dirty, which is then rebuilt in O(n log n) on the next query. As regions
+// are modified rarely compared to how often they are queried, this keeps both sides cheap.
+// Memory usage only depends on the amount of regions, not on their size.
+public class RegionIndex {
+	private static final int NODE_CAPACITY = 8;
+
+	private final Map<UUID, WorldTree> worlds = new HashMap<>();
+
+	public void add(final Region region) {
+		final var extent = region.extent();
+		final var min = extent.min();
+		final var max = extent.max();
+		final var entry = new Entry(region, min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+		worlds.computeIfAbsent(extent.world(), k -> new WorldTree()).add(entry);
+	}
+
+	public void remove(final Region region) {
+		final var tree = worlds.get(region.extent().world());
+		if (tree != null) {
+			tree.remove(region.id());
+		}
+	}
+
+	// Returns the region containing the given point, or null if there is none.
+	// Uses the same semantics as RegionExtent.is_inside, so block coordinates
+	// can be passed directly.
+	public Region region_at(final UUID world_id, double x, double y, double z) {
+		final var tree = worlds.get(world_id);
+		if (tree == null) {
+			return null;
+		}
+		return tree.region_at(x, y, z);
+	}
+
+	// Returns true if any region intersects the given box (all coordinates inclusive).
+	public boolean any_intersecting(final UUID world_id, int min_x, int min_y, int min_z, int max_x, int max_y, int max_z) {
+		final var tree = worlds.get(world_id);
+		if (tree == null) {
+			return false;
+		}
+		final var query = new Box(min_x, min_y, min_z, max_x, max_y, max_z);
+		return tree.any_intersecting(query);
+	}
+
+	// Calls the consumer for each region intersecting the given box (all coordinates inclusive).
+	public void for_each_intersecting(final UUID world_id, int min_x, int min_y, int min_z, int max_x, int max_y, int max_z, final Consumer<Region> consumer) {
+		final var tree = worlds.get(world_id);
+		if (tree == null) {
+			return;
+		}
+		final var query = new Box(min_x, min_y, min_z, max_x, max_y, max_z);
+		tree.for_each_intersecting(query, consumer);
+	}
+
+	private static class Box {
+		protected int min_x, min_y, min_z;
+		protected int max_x, max_y, max_z;
+
+		private Box() {}
+
+		private Box(int min_x, int min_y, int min_z, int max_x, int max_y, int max_z) {
+			this.min_x = min_x;
+			this.min_y = min_y;
+			this.min_z = min_z;
+			this.max_x = max_x;
+			this.max_y = max_y;
+			this.max_z = max_z;
+		}
+
+		private boolean contains(double x, double y, double z) {
+			return x >= min_x && x < (max_x + 1) && y >= min_y && y < (max_y + 1) && z >= min_z && z < (max_z + 1);
+		}
+
+		private boolean intersects(final Box o) {
+			return (
+				min_x <= o.max_x && o.min_x <= max_x &&
+				min_y <= o.max_y && o.min_y <= max_y &&
+				min_z <= o.max_z && o.min_z <= max_z
+			);
+		}
+
+		private long center_x() {
+			return (long)min_x + max_x;
+		}
+
+		private long center_z() {
+			return (long)min_z + max_z;
+		}
+	}
+
+	private static class Entry extends Box {
+		private final Region region;
+
+		private Entry(final Region region, int min_x, int min_y, int min_z, int max_x, int max_y, int max_z) {
+			super(min_x, min_y, min_z, max_x, max_y, max_z);
+			this.region = region;
+		}
+	}
+
+	private static class Node extends Box {
+		// Child range [start, end) in the next lower level
+		private int start;
+		private int end;
+	}
+
+	private static class WorldTree {
+		private final Map<UUID, Entry> entries = new LinkedHashMap<>();
+		private boolean dirty = false;
+
+		// levels[0] holds the entries, levels[i] the nodes referring to children in levels[i - 1].
+		// The last level always contains exactly one root node.
+		private Box[][] levels = null;
+
+		private void add(final Entry entry) {
+			entries.put(entry.region.id(), entry);
+			dirty = true;
+		}
+
+		private void remove(final UUID region_id) {
+			if (entries.remove(region_id) != null) {
+				dirty = true;
+			}
+		}
+
+		private Box[][] levels() {
+			if (dirty || levels == null) {
+				levels = build(entries.values().toArray(new Box[0]));
+				dirty = false;
+			}
+			return levels;
+		}
+
+		private Region region_at(double x, double y, double z) {
+			final var levels = levels();
+			if (levels.length == 0) {
+				return null;
+			}
+			return region_at(levels, levels.length - 1, 0, x, y, z);
+		}
+
+		private static Region region_at(final Box[][] levels, int level, int index, double x, double y, double z) {
+			final var box = levels[level][index];
+			if (!box.contains(x, y, z)) {
+				return null;
+			}
+
+			if (level == 0) {
+				return ((Entry)box).region;
+			}
+
+			final var node = (Node)box;
+			for (int i = node.start; i < node.end; ++i) {
+				final var region = region_at(levels, level - 1, i, x, y, z);
+				if (region != null) {
+					return region;
+				}
+			}
+			return null;
+		}
+
+		private boolean any_intersecting(final Box query) {
+			final var levels = levels();
+			if (levels.length == 0) {
+				return false;
+			}
+			return any_intersecting(levels, levels.length - 1, 0, query);
+		}
+
+		private static boolean any_intersecting(final Box[][] levels, int level, int index, final Box query) {
+			final var box = levels[level][index];
+			if (!box.intersects(query)) {
+				return false;
+			}
+
+			if (level == 0) {
+				return true;
+			}
+
+			final var node = (Node)box;
+			for (int i = node.start; i < node.end; ++i) {
+				if (any_intersecting(levels, level - 1, i, query)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void for_each_intersecting(final Box query, final Consumer<Region> consumer) {
+			final var levels = levels();
+			if (levels.length == 0) {
+				return;
+			}
+			for_each_intersecting(levels, levels.length - 1, 0, query, consumer);
+		}
+
+		private static void for_each_intersecting(final Box[][] levels, int level, int index, final Box query, final Consumer<Region> consumer) {
+			final var box = levels[level][index];
+			if (!box.intersects(query)) {
+				return;
+			}
+
+			if (level == 0) {
+				consumer.accept(((Entry)box).region);
+				return;
+			}
+
+			final var node = (Node)box;
+			for (int i = node.start; i < node.end; ++i) {
+				for_each_intersecting(levels, level - 1, i, query, consumer);
+			}
+		}
+
+		private static Box[][] build(final Box[] entries) {
+			if (entries.length == 0) {
+				return new Box[0][];
+			}
+
+			final var result = new ArrayList<Box[]>();
+			Box[] level = entries;
+			result.add(level);
+			do {
+				level = pack(level);
+				result.add(level);
+			} while (level.length > 1);
+			return result.toArray(new Box[0][]);
+		}
+
+		// Sorts the given boxes in-place into sort-tile-recursive order and
+		// returns the parent nodes, each covering up to NODE_CAPACITY consecutive children.
+		private static Node[] pack(final Box[] boxes) {
+			final var n = boxes.length;
+			final var node_count = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+			final var slice_count = (int)Math.ceil(Math.sqrt(node_count));
+			final var slice_size = slice_count * NODE_CAPACITY;
+
+			Arrays.sort(boxes, Comparator.comparingLong(Box::center_x));
+			for (int s = 0; s < n; s += slice_size) {
+				Arrays.sort(boxes, s, Math.min(n, s + slice_size), Comparator.comparingLong(Box::center_z));
+			}
+
+			final var nodes = new Node[node_count];
+			for (int i = 0; i < node_count; ++i) {
+				final var node = new Node();
+				node.start = i * NODE_CAPACITY;
+				node.end = Math.min(n, node.start + NODE_CAPACITY);
+				node.min_x = node.min_y = node.min_z = Integer.MAX_VALUE;
+				node.max_x = node.max_y = node.max_z = Integer.MIN_VALUE;
+				for (int c = node.start; c < node.end; ++c) {
+					final var child = boxes[c];
+					node.min_x = Math.min(node.min_x, child.min_x);
+					node.min_y = Math.min(node.min_y, child.min_y);
+					node.min_z = Math.min(node.min_z, child.min_z);
+					node.max_x = Math.max(node.max_x, child.max_x);
+					node.max_y = Math.max(node.max_y, child.max_y);
+					node.max_z = Math.max(node.max_z, child.max_z);
+				}
+				nodes[i] = node;
+			}
+			return nodes;
+		}
+	}
+}
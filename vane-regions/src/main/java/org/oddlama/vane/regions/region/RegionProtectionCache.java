@@ -0,0 +1,289 @@
+package org.oddlama.vane.regions.region;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+import org.bukkit.block.Block;
+import org.oddlama.vane.regions.Regions;
+
+// Caches the resolved environment settings per chunk. For each chunk we either remember
+// that no region intersects it at all (the common case for unclaimed land), or store a
+// table that maps each of the 256 block columns to the single region covering it,
+// together with the resolved setting bits of that region's group. Only columns that are
+// covered by more than one region (stacked in y) need a full index lookup.
+// Entries are built lazily on first access and must be invalidated whenever regions,
+// region groups or the global overrides change.
+public class RegionProtectionCache {
+	private static final ChunkProtection NO_REGION = new ChunkProtection(null);
+
+	// Column markers. Positive values are (region index + 1).
+	private static final byte COLUMN_NONE = 0;
+	private static final byte COLUMN_MIXED = -1;
+	private static final int MAX_REGIONS_PER_CHUNK = Byte.MAX_VALUE;
+
+	private final Regions regions;
+	private final RegionIndex index;
+	private final Map<UUID, Map<Long, ChunkProtection>> worlds = new HashMap<>();
+
+	// Explosions and fire are usually clustered, so remember the last accessed chunk.
+	private UUID last_world_id = null;
+	private long last_chunk_key = 0;
+	private ChunkProtection last_chunk = null;
+
+	public RegionProtectionCache(final Regions regions, final RegionIndex index) {
+		this.regions = regions;
+		this.index = index;
+	}
+
+	// Same layout as org.bukkit.Chunk.getChunkKey
+	private static long chunk_key(int cx, int cz) {
+		return ((long)cx & 0xFFFFFFFFl) | (((long)cz & 0xFFFFFFFFl) << 32);
+	}
+
+	private static int setting_bit(final EnvironmentSetting setting) {
+		return 1 << setting.ordinal();
+	}
+
+	public void invalidate() {
+		worlds.clear();
+		last_chunk = null;
+	}
+
+	public void invalidate_world(final UUID world_id) {
+		worlds.remove(world_id);
+		last_chunk = null;
+	}
+
+	public void invalidate_chunk(final UUID world_id, int cx, int cz) {
+		final var chunks = worlds.get(world_id);
+		if (chunks != null) {
+			chunks.remove(chunk_key(cx, cz));
+		}
+		last_chunk = null;
+	}
+
+	private ChunkProtection chunk(final UUID world_id, int cx, int cz) {
+		final var key = chunk_key(cx, cz);
+		if (last_chunk != null && key == last_chunk_key && world_id.equals(last_world_id)) {
+			return last_chunk;
+		}
+
+		final var chunks = worlds.computeIfAbsent(world_id, k -> new HashMap<>());
+		var chunk = chunks.get(key);
+		if (chunk == null) {
+			chunk = build(world_id, cx, cz);
+			chunks.put(key, chunk);
+		}
+
+		last_world_id = world_id;
+		last_chunk_key = key;
+		last_chunk = chunk;
+		return chunk;
+	}
+
+	private ChunkProtection build(final UUID world_id, int cx, int cz) {
+		final var min_x = cx << 4;
+		final var min_z = cz << 4;
+		final var found = new ArrayList<Region>();
+		index.for_each_intersecting(world_id, min_x, Integer.MIN_VALUE, min_z, min_x + 15, Integer.MAX_VALUE, min_z + 15, found::add);
+		if (found.isEmpty()) {
+			return NO_REGION;
+		}
+
+		final var chunk = new ChunkProtection(new byte[256]);
+		final var count = Math.min(found.size(), MAX_REGIONS_PER_CHUNK);
+		chunk.regions = new Region[count];
+		chunk.min_y = new int[count];
+		chunk.max_y = new int[count];
+		chunk.settings = new int[count];
+		for (int i = 0; i < found.size(); ++i) {
+			final var extent = found.get(i).extent();
+			final var min = extent.min();
+			final var max = extent.max();
+			final var from_x = Math.max(min.getX(), min_x) - min_x;
+			final var to_x = Math.min(max.getX(), min_x + 15) - min_x;
+			final var from_z = Math.max(min.getZ(), min_z) - min_z;
+			final var to_z = Math.min(max.getZ(), min_z + 15) - min_z;
+
+			// Regions beyond what we can address in a column are always resolved through the index.
+			byte marker = COLUMN_MIXED;
+			if (i < count) {
+				final var group = found.get(i).region_group(regions);
+				if (group != null) {
+					marker = (byte)(i + 1);
+					chunk.regions[i] = found.get(i);
+					chunk.min_y[i] = min.getY();
+					chunk.max_y[i] = max.getY();
+					for (final var setting : EnvironmentSetting.values()) {
+						if (group.get_setting(setting)) {
+							chunk.settings[i] |= setting_bit(setting);
+						}
+					}
+				}
+			}
+
+			for (int x = from_x; x <= to_x; ++x) {
+				for (int z = from_z; z <= to_z; ++z) {
+					final var column = (x << 4) | z;
+					chunk.columns[column] = chunk.columns[column] == COLUMN_NONE ? marker : COLUMN_MIXED;
+				}
+			}
+		}
+		return chunk;
+	}
+
+	// Whether any region intersects the given chunk.
+	public boolean has_region_in_chunk(final UUID world_id, int cx, int cz) {
+		return chunk(world_id, cx, cz) != NO_REGION;
+	}
+
+	// Returns true if there is a region at the given block and its
+	// resolved setting equals check_against.
+	public boolean check_setting_at(final UUID world_id, int x, int y, int z, final EnvironmentSetting setting, final boolean check_against) {
+		return check_setting_at(chunk(world_id, x >> 4, z >> 4), world_id, x, y, z, setting, check_against);
+	}
+
+	private boolean check_setting_at(final ChunkProtection chunk, final UUID world_id, int x, int y, int z, final EnvironmentSetting setting, final boolean check_against) {
+		if (chunk == NO_REGION) {
+			return false;
+		}
+
+		final var marker = chunk.columns[((x & 15) << 4) | (z & 15)];
+		if (marker == COLUMN_NONE) {
+			return false;
+		}
+
+		if (marker == COLUMN_MIXED) {
+			final var region = index.region_at(world_id, x, y, z);
+			if (region == null) {
+				return false;
+			}
+			return region.region_group(regions).get_setting(setting) == check_against;
+		}
+
+		final var i = marker - 1;
+		if (y < chunk.min_y[i] || y > chunk.max_y[i]) {
+			return false;
+		}
+		return ((chunk.settings[i] & setting_bit(setting)) != 0) == check_against;
+	}
+
+	private Region region_at(final ChunkProtection chunk, final UUID world_id, int x, int y, int z) {
+		if (chunk == NO_REGION) {
+			return null;
+		}
+
+		final var marker = chunk.columns[((x & 15) << 4) | (z & 15)];
+		if (marker == COLUMN_NONE) {
+			return null;
+		}
+
+		if (marker == COLUMN_MIXED) {
+			return index.region_at(world_id, x, y, z);
+		}
+
+		final var i = marker - 1;
+		if (y < chunk.min_y[i] || y > chunk.max_y[i]) {
+			return null;
+		}
+		return chunk.regions[i];
+	}
+
+	// Returns the indices of the given blocks sorted by chunk, so that blocks in the same chunk
+	// are adjacent. Each entry packs the chunk offset relative to the first block into the upper
+	// 32 bits and the block index into the lower 32 bits. Offsets are truncated to 16 bits,
+	// which can only cause chunks to be resolved more than once, never a wrong result.
+	private static long[] sorted_by_chunk(final List<Block> blocks) {
+		final var first = blocks.get(0);
+		final var base_cx = first.getX() >> 4;
+		final var base_cz = first.getZ() >> 4;
+		final var entries = new long[blocks.size()];
+		for (int i = 0; i < entries.length; ++i) {
+			final var block = blocks.get(i);
+			final var dcx = (block.getX() >> 4) - base_cx;
+			final var dcz = (block.getZ() >> 4) - base_cz;
+			entries[i] = (((long)dcx & 0xFFFFl) << 48) | (((long)dcz & 0xFFFFl) << 32) | i;
+		}
+		Arrays.sort(entries);
+		return entries;
+	}
+
+	// Batch version of check_setting_at. All blocks must be in the given world.
+	// Returns a bitset of the indices of all blocks for which check_setting_at would return true.
+	// Every chunk is resolved only once, regardless of how many blocks it contains.
+	public BitSet check_setting_at(final UUID world_id, final List<Block> blocks, final EnvironmentSetting setting, final boolean check_against) {
+		final var result = new BitSet(blocks.size());
+		if (blocks.isEmpty()) {
+			return result;
+		}
+
+		ChunkProtection chunk = null;
+		int chunk_x = 0;
+		int chunk_z = 0;
+		for (final var entry : sorted_by_chunk(blocks)) {
+			final var i = (int)entry;
+			final var block = blocks.get(i);
+			final var x = block.getX();
+			final var z = block.getZ();
+			if (chunk == null || (x >> 4) != chunk_x || (z >> 4) != chunk_z) {
+				chunk_x = x >> 4;
+				chunk_z = z >> 4;
+				chunk = chunk(world_id, chunk_x, chunk_z);
+			}
+
+			if (check_setting_at(chunk, world_id, x, block.getY(), z, setting, check_against)) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+
+	// Resolves the region of each given block and returns a bitset of the indices of all blocks
+	// that are inside a region matching the given predicate. All blocks must be in the given world.
+	// Every chunk is resolved only once, and blocks in chunks without any region are skipped.
+	public BitSet filter_regions_at(final UUID world_id, final List<Block> blocks, final Predicate<Region> predicate) {
+		final var result = new BitSet(blocks.size());
+		if (blocks.isEmpty()) {
+			return result;
+		}
+
+		ChunkProtection chunk = null;
+		int chunk_x = 0;
+		int chunk_z = 0;
+		for (final var entry : sorted_by_chunk(blocks)) {
+			final var i = (int)entry;
+			final var block = blocks.get(i);
+			final var x = block.getX();
+			final var z = block.getZ();
+			if (chunk == null || (x >> 4) != chunk_x || (z >> 4) != chunk_z) {
+				chunk_x = x >> 4;
+				chunk_z = z >> 4;
+				chunk = chunk(world_id, chunk_x, chunk_z);
+			}
+
+			final var region = region_at(chunk, world_id, x, block.getY(), z);
+			if (region != null && predicate.test(region)) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+
+	private static class ChunkProtection {
+		private final byte[] columns;
+		// Per region in this chunk: the region, its vertical extent and resolved setting bits
+		private Region[] regions;
+		private int[] min_y;
+		private int[] max_y;
+		private int[] settings;
+
+		private ChunkProtection(final byte[] columns) {
+			this.columns = columns;
+		}
+	}
+}
@@ -21,18 +21,7 @@ public class RegionSelection {
 	}
 
 	public boolean intersects_existing() {
-		final var extent = extent();
-		for (final var r : regions.all_regions()) {
-			if (!r.extent().min().getWorld().equals(primary.getWorld())) {
-				continue;
-			}
-
-			if (extent.intersects_extent(r.extent())) {
-				return true;
-			}
-		}
-
-		return false;
+		return regions.intersects_any_region(extent());
 	}
 
 	public double price() {
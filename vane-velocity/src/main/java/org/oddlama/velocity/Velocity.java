@@ -18,6 +18,7 @@ import org.oddlama.vane.proxycore.VaneProxyPlugin;
 import org.oddlama.vane.proxycore.log.slf4jCompatLogger;
 import org.oddlama.vane.util.Version;
 import org.oddlama.velocity.commands.Maintenance;
+import org.oddlama.velocity.commands.Multiplexers;
 import org.oddlama.velocity.commands.Ping;
 import org.oddlama.velocity.compat.VelocityCompatProxyServer;
 import org.oddlama.velocity.listeners.*;
@@ -71,6 +72,8 @@ public class Velocity extends VaneProxyPlugin {
 		event_manager.register(this, new ProxyDisconnectListener(this));
 
 		maintenance.load();
+		load_resolver();
+		multiplexer_logins.start();
 
 		CommandManager command_manager = velocity_server.getCommandManager();
 
@@ -80,6 +83,9 @@ public class Velocity extends VaneProxyPlugin {
 		CommandMeta maintenance_meta = command_manager.metaBuilder("maintenance").build();
 		command_manager.register(maintenance_meta, new Maintenance(this));
 
+		CommandMeta multiplexers_meta = command_manager.metaBuilder("multiplexers").build();
+		command_manager.register(multiplexers_meta, new Multiplexers(this));
+
 		velocity_server.getChannelRegistrar().register(CHANNEL);
 
 		if (!config.multiplexer_by_id.isEmpty()) {
@@ -117,6 +123,10 @@ public class Velocity extends VaneProxyPlugin {
 			velocity_server.shutdown();
 		}
 
+		server_starter.stop();
+		health.stop();
+		save_resolver();
+		multiplexer_logins.stop();
 		server = null;
 		logger = null;
 	}
@@ -0,0 +1,27 @@
+package org.oddlama.velocity.commands;
+
+import com.velocitypowered.api.command.SimpleCommand;
+import com.velocitypowered.api.proxy.Player;
+import org.oddlama.vane.proxycore.commands.ProxyMultiplexersCommand;
+import org.oddlama.velocity.Velocity;
+import org.oddlama.velocity.compat.VelocityCompatProxyCommandSender;
+import org.oddlama.velocity.compat.VelocityCompatProxyPlayer;
+
+public class Multiplexers implements SimpleCommand {
+
+	ProxyMultiplexersCommand cmd;
+
+	public Multiplexers(final Velocity plugin) {
+		this.cmd = new ProxyMultiplexersCommand("vane_proxy.commands.multiplexers", plugin);
+	}
+
+	@Override
+	public void execute(Invocation invocation) {
+		final var sender = invocation.source();
+		cmd.execute(sender instanceof final Player player ?
+						new VelocityCompatProxyPlayer(player) :
+						new VelocityCompatProxyCommandSender(sender),
+				invocation.arguments());
+	}
+
+}
@@ -3,6 +3,7 @@ package org.oddlama.velocity.compat;
 import com.velocitypowered.api.proxy.server.ServerPing;
 import com.velocitypowered.api.util.Favicon;
 import net.kyori.adventure.text.Component;
+import org.oddlama.vane.proxycore.PingResponseCache;
 import org.oddlama.vane.proxycore.listeners.ProxyServerPing;
 
 public class VelocityCompatProxyServerPing implements ProxyServerPing {
@@ -14,13 +15,13 @@ public class VelocityCompatProxyServerPing implements ProxyServerPing {
 	}
 
 	@Override
-	public void set_description(String description) {
-		ping.description(Component.text(description));
+	public void set_description(PingResponseCache.Rendered description) {
+		ping.description(description.encoded(Component::text));
 	}
 
 	@Override
-	public void set_favicon(String encoded_favicon) {
-		if (encoded_favicon != null) ping.favicon(new Favicon(encoded_favicon));
+	public void set_favicon(PingResponseCache.Rendered encoded_favicon) {
+		if (encoded_favicon != null) ping.favicon(encoded_favicon.encoded(Favicon::new));
 	}
 
 }
@@ -7,9 +7,12 @@ import org.oddlama.vane.proxycore.VaneProxyPlugin;
 import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
 import org.oddlama.vane.proxycore.listeners.LoginEvent;
 
+import java.util.concurrent.CompletableFuture;
+
 public class VelocityCompatLoginEvent extends LoginEvent {
 
 	final com.velocitypowered.api.event.connection.LoginEvent event;
+	CompletableFuture<?> deferred = null;
 
 	public VelocityCompatLoginEvent(com.velocitypowered.api.event.connection.LoginEvent event, VaneProxyPlugin plugin, IVaneProxyServerInfo server_info, ProxyPendingConnection connection) {
 		super(plugin, server_info, connection);
@@ -26,6 +29,16 @@ public class VelocityCompatLoginEvent extends LoginEvent {
 		event.setResult(ResultedEvent.ComponentResult.denied(Component.text(reason)));
 	}
 
+	@Override
+	public void defer_until(CompletableFuture<?> future) {
+		deferred = future;
+	}
+
+	// The future the login has to wait for, or null
+	public CompletableFuture<?> deferred() {
+		return deferred;
+	}
+
 	@Override
 	public ProxyPendingConnection get_connection() {
 		return null;
@@ -5,11 +5,13 @@ import org.oddlama.vane.proxycore.ProxyPendingConnection;
 import org.oddlama.vane.proxycore.VaneProxyPlugin;
 import org.oddlama.vane.proxycore.listeners.PreLoginEvent;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 public class VelocityCompatPreLoginEvent extends PreLoginEvent {
 
 	final com.velocitypowered.api.event.connection.PreLoginEvent event;
+	CompletableFuture<?> deferred = null;
 
 	public VelocityCompatPreLoginEvent(VaneProxyPlugin plugin, com.velocitypowered.api.event.connection.PreLoginEvent event) {
 		super(plugin);
@@ -45,5 +47,15 @@ public class VelocityCompatPreLoginEvent extends PreLoginEvent {
 		return true;
 	}
 
+	@Override
+	public void defer_until(CompletableFuture<?> future) {
+		deferred = future;
+	}
+
+	// The future the login has to wait for, or null
+	public CompletableFuture<?> deferred() {
+		return deferred;
+	}
+
 }
 
@@ -18,7 +18,7 @@ public final class ProxyDisconnectListener {
 	@Subscribe(order = PostOrder.LAST)
 	public void disconnect(DisconnectEvent event) {
 		final var uuid = event.getPlayer().getUniqueId();
-		velocity.get_multiplexed_uuids().remove(uuid);
+		velocity.get_multiplexer_logins().remove_multiplexed(uuid);
 	}
 
 }
@@ -30,17 +30,17 @@ public class ProxyGameProfileRequestListener {
 		final var multiplexer = velocity.get_config().get_multiplexer_for_port(virtual_host.get().getPort());
 		if (multiplexer == null) return;
 
-		final var pending_multiplexer_logins = velocity.get_pending_multiplexer_logins();
-		if (pending_multiplexer_logins.isEmpty()) return;
+		final var multiplexer_logins = velocity.get_multiplexer_logins();
+		if (!multiplexer_logins.has_pending()) return;
 
 		// ====================== End check ======================
 
 		final var profile = event.getGameProfile();
 		final var target_uuid = profile.getId();
 
-		PreLoginEvent.MultiplexedPlayer player = pending_multiplexer_logins.remove(target_uuid);
+		PreLoginEvent.MultiplexedPlayer player = multiplexer_logins.complete_pending(target_uuid);
 		if (player == null) {
-			// We somehow have a multiplexer connection, but it wasn't registered in `pending_multiplexer_logins`
+			// We somehow have a multiplexer connection, but it wasn't registered as pending login or it expired
 			// Not much to do here, the event isn't cancellable
 			velocity.get_logger().log(Level.WARNING, "Unregistered multiplexer connection managed to get through!");
 			return;
@@ -53,8 +53,8 @@ public class ProxyGameProfileRequestListener {
 		final var server_info = new VelocityCompatServerInfo(server);
 		PreLoginEvent.register_auth_multiplex_player(server_info, player);
 
-		// Now we can finally put our player in `multiplexed_uuids` :)
-		velocity.get_multiplexed_uuids().put(player.new_uuid, player.original_uuid);
+		// Now we can finally register our player as multiplexed :)
+		multiplexer_logins.add_multiplexed(player.new_uuid, player.original_uuid);
 	}
 
 }
@@ -1,10 +1,10 @@
 package org.oddlama.velocity.listeners;
 
 import com.google.inject.Inject;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.PostOrder;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.proxy.ProxyServer;
-import org.oddlama.vane.proxycore.listeners.LoginEvent;
 import org.oddlama.velocity.Velocity;
 import org.oddlama.velocity.compat.VelocityCompatServerInfo;
 import org.oddlama.velocity.compat.event.VelocityCompatLoginEvent;
@@ -22,19 +22,23 @@ public class ProxyLoginListener {
 	}
 
 	@Subscribe(order = PostOrder.LAST)
-	public void login(com.velocitypowered.api.event.connection.LoginEvent event) {
-		if (!event.getResult().isAllowed()) return;
+	public EventTask login(com.velocitypowered.api.event.connection.LoginEvent event) {
+		if (!event.getResult().isAllowed()) return null;
 
 		ProxyServer proxy = velocity.get_raw_proxy();
 
 		final var virtual_host = event.getPlayer().getVirtualHost();
-		if (virtual_host.isEmpty()) return;
+		if (virtual_host.isEmpty()) return null;
 
 		final var server = get_server_for_host(proxy, virtual_host.get());
 
 		var server_info = new VelocityCompatServerInfo(server);
-		LoginEvent proxy_event = new VelocityCompatLoginEvent(event, velocity, server_info, new VelocityCompatPendingConnection(event.getPlayer()));
+		VelocityCompatLoginEvent proxy_event = new VelocityCompatLoginEvent(event, velocity, server_info, new VelocityCompatPendingConnection(event.getPlayer()));
 		proxy_event.fire();
+
+		// Hold the login while the server is starting
+		final var deferred = proxy_event.deferred();
+		return deferred == null ? null : EventTask.resumeWhenComplete(deferred);
 	}
 
 }
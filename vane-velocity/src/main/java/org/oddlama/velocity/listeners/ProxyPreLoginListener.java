@@ -1,6 +1,7 @@
 package org.oddlama.velocity.listeners;
 
 import com.google.inject.Inject;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.Subscribe;
 import org.oddlama.vane.proxycore.listeners.PreLoginEvent;
 import org.oddlama.velocity.Velocity;
@@ -16,12 +17,16 @@ public class ProxyPreLoginListener {
 	}
 
 	@Subscribe
-	public void pre_login(final com.velocitypowered.api.event.connection.PreLoginEvent event) {
-		PreLoginEvent proxy_event = new VelocityCompatPreLoginEvent(velocity, event);
+	public EventTask pre_login(final com.velocitypowered.api.event.connection.PreLoginEvent event) {
+		VelocityCompatPreLoginEvent proxy_event = new VelocityCompatPreLoginEvent(velocity, event);
 
 		// For Velocity, our multiplexer connections need more work, they
 		// later get handled in `ProxyGameProfileRequestListener`
 		proxy_event.fire(PreLoginEvent.PreLoginDestination.PENDING_MULTIPLEXED_LOGINS);
+
+		// Hold the login while the uuid is resolved
+		final var deferred = proxy_event.deferred();
+		return deferred == null ? null : EventTask.resumeWhenComplete(deferred);
 	}
 
 }
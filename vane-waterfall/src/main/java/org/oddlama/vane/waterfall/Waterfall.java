@@ -35,6 +35,8 @@ public class Waterfall extends VaneProxyPlugin implements Listener {
 		}
 
 		maintenance.load();
+		load_resolver();
+		multiplexer_logins.start();
 
 		final var proxy = plugin.getProxy();
 		final var plugin_manager = proxy.getPluginManager();
@@ -46,6 +48,7 @@ public class Waterfall extends VaneProxyPlugin implements Listener {
 
 		plugin_manager.registerCommand(plugin, new org.oddlama.vane.waterfall.commands.Ping(this));
 		plugin_manager.registerCommand(plugin, new org.oddlama.vane.waterfall.commands.Maintenance(this));
+		plugin_manager.registerCommand(plugin, new org.oddlama.vane.waterfall.commands.Multiplexers(this));
 
 		proxy.registerChannel(CHANNEL_AUTH_MULTIPLEX);
 	}
@@ -58,6 +61,10 @@ public class Waterfall extends VaneProxyPlugin implements Listener {
 
 		proxy.unregisterChannel(CHANNEL_AUTH_MULTIPLEX);
 
+		server_starter.stop();
+		health.stop();
+		save_resolver();
+		multiplexer_logins.stop();
 		metrics = null;
 		logger = null;
 		data_dir = null;
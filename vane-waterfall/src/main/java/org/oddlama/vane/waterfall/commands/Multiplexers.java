@@ -0,0 +1,27 @@
+package org.oddlama.vane.waterfall.commands;
+
+import net.md_5.bungee.api.CommandSender;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.plugin.Command;
+import org.oddlama.vane.proxycore.commands.ProxyMultiplexersCommand;
+import org.oddlama.vane.waterfall.Waterfall;
+import org.oddlama.vane.waterfall.compat.BungeeCompatProxyCommandSender;
+import org.oddlama.vane.waterfall.compat.BungeeCompatProxyPlayer;
+
+public class Multiplexers extends Command {
+
+	ProxyMultiplexersCommand cmd;
+
+	public Multiplexers(final Waterfall plugin) {
+		super("multiplexers");
+		this.cmd = new ProxyMultiplexersCommand("vane_proxy.commands.multiplexers", plugin);
+	}
+
+	@Override
+	public void execute(CommandSender sender, String[] args) {
+		cmd.execute(sender instanceof final ProxiedPlayer player ?
+				new BungeeCompatProxyPlayer(player) :
+				new BungeeCompatProxyCommandSender(sender), args);
+	}
+
+}
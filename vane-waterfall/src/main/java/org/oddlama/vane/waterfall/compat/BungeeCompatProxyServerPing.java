@@ -1,7 +1,9 @@
 package org.oddlama.vane.waterfall.compat;
 
 import net.md_5.bungee.api.ServerPing;
+import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.TextComponent;
+import org.oddlama.vane.proxycore.PingResponseCache;
 import org.oddlama.vane.proxycore.listeners.ProxyServerPing;
 
 public class BungeeCompatProxyServerPing implements ProxyServerPing {
@@ -13,14 +15,17 @@ public class BungeeCompatProxyServerPing implements ProxyServerPing {
 	}
 
 	@Override
-	public void set_description(String description) {
-		ping.setDescriptionComponent(new TextComponent(TextComponent.fromLegacyText(description)));
+	public void set_description(PingResponseCache.Rendered description) {
+		// Only the parsed components are shared, the wrapping component is created per ping
+		// in case another plugin modifies the description.
+		final BaseComponent[] components = description.encoded(TextComponent::fromLegacyText);
+		ping.setDescriptionComponent(new TextComponent(components));
 	}
 
 	@Override
 	@SuppressWarnings("deprecation")
-	public void set_favicon(String encoded_favicon) {
-		ping.setFavicon(encoded_favicon);
+	public void set_favicon(PingResponseCache.Rendered encoded_favicon) {
+		ping.setFavicon(encoded_favicon == null ? null : encoded_favicon.value);
 	}
 
 }
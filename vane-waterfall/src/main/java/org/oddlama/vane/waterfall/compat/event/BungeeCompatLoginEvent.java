@@ -2,28 +2,49 @@ package org.oddlama.vane.waterfall.compat.event;
 
 import net.md_5.bungee.api.chat.TextComponent;
 import org.oddlama.vane.proxycore.ProxyPendingConnection;
-import org.oddlama.vane.proxycore.VaneProxyPlugin;
 import org.oddlama.vane.proxycore.config.IVaneProxyServerInfo;
 import org.oddlama.vane.proxycore.listeners.LoginEvent;
+import org.oddlama.vane.waterfall.Waterfall;
+
+import java.util.concurrent.CompletableFuture;
 
 public class BungeeCompatLoginEvent extends LoginEvent {
 
 	net.md_5.bungee.api.event.LoginEvent event;
+	Waterfall waterfall;
 
-	public BungeeCompatLoginEvent(net.md_5.bungee.api.event.LoginEvent event, VaneProxyPlugin plugin, IVaneProxyServerInfo server_info, ProxyPendingConnection connection) {
-		super(plugin, server_info, connection);
+	public BungeeCompatLoginEvent(net.md_5.bungee.api.event.LoginEvent event, Waterfall waterfall, IVaneProxyServerInfo server_info, ProxyPendingConnection connection) {
+		super(waterfall, server_info, connection);
 		this.event = event;
+		this.waterfall = waterfall;
 	}
 
 	@Override
 	public void cancel() {
 		event.setCancelled(true);
+		forget_multiplexed();
 	}
 
 	@Override
 	public void cancel(String reason) {
 		event.setCancelReason(TextComponent.fromLegacyText(reason));
 		event.setCancelled(true);
+		forget_multiplexed();
+	}
+
+	// A multiplexed player whose login is cancelled will never disconnect
+	private void forget_multiplexed() {
+		final var uuid = event.getConnection().getUniqueId();
+		if (uuid != null) {
+			waterfall.get_multiplexer_logins().remove_multiplexed(uuid);
+		}
+	}
+
+	@Override
+	public void defer_until(CompletableFuture<?> future) {
+		final var plugin = waterfall.get_plugin();
+		event.registerIntent(plugin);
+		future.whenComplete((result, e) -> event.completeIntent(plugin));
 	}
 
 	@Override
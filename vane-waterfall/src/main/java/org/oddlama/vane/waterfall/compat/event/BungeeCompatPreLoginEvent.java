@@ -9,6 +9,7 @@ import org.oddlama.vane.proxycore.listeners.PreLoginEvent;
 import org.oddlama.vane.waterfall.Waterfall;
 import org.oddlama.vane.waterfall.compat.BungeeCompatServerInfo;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 public class BungeeCompatPreLoginEvent extends PreLoginEvent {
@@ -88,4 +89,10 @@ public class BungeeCompatPreLoginEvent extends PreLoginEvent {
 		return true;
 	}
 
+	@Override
+	public void defer_until(CompletableFuture<?> future) {
+		event.registerIntent(bungee_plugin);
+		future.whenComplete((result, e) -> event.completeIntent(bungee_plugin));
+	}
+
 }
@@ -1,6 +1,6 @@
 package org.oddlama.vane.waterfall.listeners;
 
-import net.md_5.bungee.api.event.ServerDisconnectEvent;
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
 import net.md_5.bungee.event.EventPriority;
@@ -15,9 +15,9 @@ public class ProxyDisconnectListener implements Listener {
 	}
 
 	@EventHandler(priority = EventPriority.LOWEST)
-	public void on_disconnect(ServerDisconnectEvent event) {
+	public void on_disconnect(PlayerDisconnectEvent event) {
 		final var uuid = event.getPlayer().getUniqueId();
-		waterfall.get_multiplexed_uuids().remove(uuid);
+		waterfall.get_multiplexer_logins().remove_multiplexed(uuid);
 	}
 
 }
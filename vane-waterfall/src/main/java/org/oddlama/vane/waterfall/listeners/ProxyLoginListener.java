@@ -2,6 +2,7 @@ package org.oddlama.vane.waterfall.listeners;
 
 
 import net.md_5.bungee.api.AbstractReconnectHandler;
+import net.md_5.bungee.api.event.PostLoginEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
 import net.md_5.bungee.event.EventPriority;
@@ -33,4 +34,10 @@ public class ProxyLoginListener implements Listener {
 		proxy_event.fire();
 	}
 
+	@EventHandler(priority = EventPriority.LOWEST)
+	public void on_post_login(PostLoginEvent event) {
+		// The login completed, so the multiplexed uuid is kept until the player disconnects
+		waterfall.get_multiplexer_logins().confirm_multiplexed(event.getPlayer().getUniqueId());
+	}
+
 }
@@ -23,7 +23,7 @@ public class ProxyPreLoginListener implements Listener {
 
 		PreLoginEvent proxy_event = new BungeeCompatPreLoginEvent(waterfall, event);
 
-		// Unlike Velocity, we can just immediately put the new UUID in `multiplexed_uuids`
+		// Unlike Velocity, we can just immediately put the new UUID in the multiplexed uuids
 		proxy_event.fire(PreLoginEvent.PreLoginDestination.MULTIPLEXED_UUIDS);
 	}
 